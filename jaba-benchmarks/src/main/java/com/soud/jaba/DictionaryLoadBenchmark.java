@@ -0,0 +1,84 @@
+package com.soud.jaba;
+
+import com.soud.jaba.enumeration.TrieEngineEnum;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 加载字典的耗时：解析 dict.txt 并生成 trie，以及 mmap {@link DictionaryCompiler} 生成的快照
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DictionaryLoadBenchmark {
+
+    @Param({"HANKCS", "DOUBLE_ARRAY"})
+    public TrieEngineEnum engine;
+
+    private byte[] dict;
+    private Path snapshot;
+
+    @Setup
+    public void setup() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (InputStream inputStream = Jaba.class.getResourceAsStream("/dict.txt")) {
+            if (inputStream == null) {
+                throw new IOException("/dict.txt not found");
+            }
+            byte[] buf = new byte[1 << 16];
+            int n;
+            while ((n = inputStream.read(buf)) > 0) {
+                bytes.write(buf, 0, n);
+            }
+        }
+        dict = bytes.toByteArray();
+        snapshot = Files.createTempFile("jaba", ".snapshot");
+        try (OutputStream outputStream = Files.newOutputStream(snapshot)) {
+            DictionaryCompiler.compile(Collections.singletonList(new ByteArrayInputStream(dict)), engine, outputStream);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(snapshot);
+    }
+
+    @Benchmark
+    public Dictionary loadText() throws IOException {
+        TreeMap<String, Integer> freqMap = new TreeMap<>();
+        TreeMap<String, String> tagMap = new TreeMap<>();
+        int total = Tokenizer.readDictionary(new ByteArrayInputStream(dict), freqMap, tagMap);
+        return Dictionary.EMPTY.merge(freqMap, tagMap, total, engine);
+    }
+
+    @Benchmark
+    public Dictionary loadSnapshot() throws IOException {
+        DictionarySnapshot snapshot = DictionarySnapshot.map(this.snapshot);
+        return new Dictionary(snapshot.getTotal(), snapshot.getWords(), snapshot.getFreqs(), snapshot.getTags(),
+                snapshot.getTrie());
+    }
+}
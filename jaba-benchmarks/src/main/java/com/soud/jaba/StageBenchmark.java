@@ -0,0 +1,137 @@
+package com.soud.jaba;
+
+import com.soud.jaba.benchmark.Corpus;
+import com.soud.jaba.enumeration.TokenKindEnum;
+import com.soud.jaba.util.CharClassifier;
+import com.soud.jaba.util.RegexSplitUtils;
+import com.soud.jaba.viterbi.FinalSeg;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * 分词各个阶段的耗时，每次调用处理整份语料。
+ * 放在 com.soud.jaba 包中以便直接调用 {@link SentenceDAG} 等包内的方法
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StageBenchmark {
+    /**
+     * 改用 {@link CharClassifier} 之前切分短句使用的正则表达式
+     */
+    private static final Pattern RE_HAN_DEFAULT = Pattern.compile("([\u4E00-\\u9FD5a-zA-Z0-9+#&\\._%\\-]+)");
+
+    @Param({"short", "medium", "long", "oov"})
+    public String corpus;
+
+    private List<String> documents;
+    private List<String> blocks;
+    private List<String> hanRuns;
+    private Dictionary dictionary;
+    private SentenceDAG sentenceDAG;
+    private List<SentenceDAG> dags;
+    private FinalSeg finalSeg;
+
+    @Setup
+    public void setup() {
+        documents = Corpus.load(corpus);
+        blocks = Corpus.blocks(documents);
+        hanRuns = Corpus.hanRuns(documents);
+        dictionary = Tokenizer.getInstance().getDictionary();
+        sentenceDAG = new SentenceDAG();
+        dags = new ArrayList<>();
+        for (String block : blocks) {
+            SentenceDAG dag = new SentenceDAG();
+            dag.reset(block, dictionary);
+            dags.add(dag);
+        }
+        finalSeg = FinalSeg.getInstance();
+    }
+
+    @Benchmark
+    public void regexSplit(Blackhole blackhole) {
+        for (String document : documents) {
+            blackhole.consume(RegexSplitUtils.split(RE_HAN_DEFAULT, document));
+        }
+    }
+
+    @Benchmark
+    public void charClassifierSplit(Blackhole blackhole) {
+        for (String document : documents) {
+            int len = document.length();
+            int start = 0;
+            while (start < len) {
+                start = CharClassifier.isHanDefault(document.charAt(start))
+                        ? CharClassifier.hanDefaultEnd(document, start, len)
+                        : CharClassifier.otherEnd(document, start, len);
+                blackhole.consume(start);
+            }
+        }
+    }
+
+    @Benchmark
+    public void makeDAG(Blackhole blackhole) {
+        for (String block : blocks) {
+            blackhole.consume(SentenceDAG.makeDAG(block, dictionary));
+        }
+    }
+
+    /**
+     * 全模式使用的部分：查询 trie 并生成 CSR 形式的 DAG，不计算最大概率路径
+     */
+    @Benchmark
+    public void sentenceEdges(Blackhole blackhole) {
+        for (String block : blocks) {
+            sentenceDAG.resetEdges(block, dictionary);
+            blackhole.consume(sentenceDAG.getEdgeStart(block.length()));
+        }
+    }
+
+    /**
+     * 查询 trie、生成 CSR 形式的 DAG 并计算最大概率路径
+     */
+    @Benchmark
+    public void sentenceDAG(Blackhole blackhole) {
+        for (String block : blocks) {
+            sentenceDAG.reset(block, dictionary);
+            blackhole.consume(sentenceDAG.getRouteEnd(0));
+        }
+    }
+
+    /**
+     * 只计算最大概率路径，每个短句的 DAG 在 setup 中预先生成
+     */
+    @Benchmark
+    public void calcMaxProbPath(Blackhole blackhole) {
+        for (SentenceDAG dag : dags) {
+            dag.calcMaxProbPath();
+            blackhole.consume(dag.getRouteEnd(0));
+        }
+    }
+
+    @Benchmark
+    public void viterbi(Blackhole blackhole) {
+        TokenHandler handler = (int start, int end, TokenKindEnum kind) -> blackhole.consume(end);
+        for (String run : hanRuns) {
+            finalSeg.tokenize(run, 0, run.length(), handler);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.soud.jaba.benchmark;
+
+import com.soud.jaba.util.CharClassifier;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基准测试使用的语料，位于 resources/corpus 下，每行一篇文档：
+ * short 为搜索词和商品标题，medium 为单句，long 为长段落，oov 为人名、地名、网络用语等未登录词较多的句子
+ */
+public final class Corpus {
+
+    private Corpus() {
+    }
+
+    /**
+     * 读取语料的所有行
+     * @param name 语料名称，即 short、medium、long、oov
+     */
+    public static List<String> load(String name) {
+        String path = "/corpus/" + name + ".txt";
+        InputStream inputStream = Corpus.class.getResourceAsStream(path);
+        if (inputStream == null) {
+            throw new IllegalArgumentException("corpus not found: " + path);
+        }
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    lines.add(line);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return lines;
+    }
+
+    /**
+     * 按分词时的规则把文档切成短句，只保留短句部分
+     */
+    public static List<String> blocks(List<String> documents) {
+        List<String> blocks = new ArrayList<>();
+        for (String document : documents) {
+            int len = document.length();
+            int start = 0;
+            while (start < len) {
+                if (CharClassifier.isHanDefault(document.charAt(start))) {
+                    int end = CharClassifier.hanDefaultEnd(document, start, len);
+                    blocks.add(document.substring(start, end));
+                    start = end;
+                } else {
+                    start = CharClassifier.otherEnd(document, start, len);
+                }
+            }
+        }
+        return blocks;
+    }
+
+    /**
+     * 文档中连续的汉字，即 HMM 识别未登录词时 viterbi 的输入
+     */
+    public static List<String> hanRuns(List<String> documents) {
+        List<String> runs = new ArrayList<>();
+        for (String document : documents) {
+            int len = document.length();
+            int start = 0;
+            while (start < len) {
+                if (CharClassifier.isHan(document.charAt(start))) {
+                    int end = CharClassifier.hanEnd(document, start, len);
+                    runs.add(document.substring(start, end));
+                    start = end;
+                } else {
+                    start = CharClassifier.nonHanEnd(document, start, len);
+                }
+            }
+        }
+        return runs;
+    }
+}
@@ -0,0 +1,89 @@
+package com.soud.jaba.benchmark;
+
+import com.soud.jaba.Jaba;
+import com.soud.jaba.TokenBuffer;
+import com.soud.jaba.enumeration.CutModeEnum;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每种分词模式对整份语料分词的耗时，以及多线程共享同一个 {@link Jaba} 时的吞吐
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CutBenchmark {
+
+    @Param({"short", "medium", "long", "oov"})
+    public String corpus;
+
+    @Param({"CUT", "CUT_ALL", "CUT_WITHOUT_HMM", "CUT_FOR_SEARCH"})
+    public CutModeEnum cutMode;
+
+    private List<String> documents;
+    private Jaba jaba;
+
+    @State(Scope.Thread)
+    public static class Buffer {
+        final TokenBuffer tokenBuffer = new TokenBuffer();
+    }
+
+    @Setup
+    public void setup() {
+        documents = Corpus.load(corpus);
+        jaba = Jaba.getInstance();
+    }
+
+    @Benchmark
+    public void cut(Blackhole blackhole) {
+        for (String document : documents) {
+            blackhole.consume(jaba.cut(document, cutMode));
+        }
+    }
+
+    /**
+     * 只输出词语位置，不创建字符串
+     */
+    @Benchmark
+    public void tokenize(Buffer buffer, Blackhole blackhole) {
+        for (String document : documents) {
+            buffer.tokenBuffer.clear();
+            jaba.tokenize(document, cutMode, buffer.tokenBuffer);
+            blackhole.consume(buffer.tokenBuffer.size());
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void cutThreads4(Blackhole blackhole) {
+        cut(blackhole);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void cutThreadsMax(Blackhole blackhole) {
+        cut(blackhole);
+    }
+
+    @Benchmark
+    public List<List<String>> cutBatch() {
+        return jaba.cutBatch(documents, cutMode);
+    }
+}
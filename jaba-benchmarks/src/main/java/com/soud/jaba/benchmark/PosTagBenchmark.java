@@ -0,0 +1,80 @@
+package com.soud.jaba.benchmark;
+
+import com.soud.jaba.Jaba;
+import com.soud.jaba.TaggedTokenHandler;
+import com.soud.jaba.TokenBuffer;
+import com.soud.jaba.enumeration.CutModeEnum;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 词性标注相对于只分词的开销，两者都只输出位置，不创建字符串
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PosTagBenchmark {
+
+    @Param({"medium", "long", "oov"})
+    public String corpus;
+
+    @Param({"CUT", "CUT_WITHOUT_HMM"})
+    public CutModeEnum cutMode;
+
+    private List<String> documents;
+    private Jaba jaba;
+
+    @State(Scope.Thread)
+    public static class Buffer {
+        final TokenBuffer tokenBuffer = new TokenBuffer();
+        int tagged;
+        final TaggedTokenHandler handler = (start, end, kind, tag) -> tagged += tag.length();
+    }
+
+    @Setup
+    public void setup() {
+        documents = Corpus.load(corpus);
+        jaba = Jaba.getInstance();
+    }
+
+    @Benchmark
+    public void tokenize(Buffer buffer, Blackhole blackhole) {
+        for (String document : documents) {
+            buffer.tokenBuffer.clear();
+            jaba.tokenize(document, cutMode, buffer.tokenBuffer);
+            blackhole.consume(buffer.tokenBuffer.size());
+        }
+    }
+
+    @Benchmark
+    public void tokenizeWithTag(Buffer buffer, Blackhole blackhole) {
+        for (String document : documents) {
+            buffer.tagged = 0;
+            jaba.tokenizeWithTag(document, cutMode, buffer.handler);
+            blackhole.consume(buffer.tagged);
+        }
+    }
+
+    @Benchmark
+    public void cutWithTag(Blackhole blackhole) {
+        for (String document : documents) {
+            blackhole.consume(jaba.cutWithTag(document, cutMode));
+        }
+    }
+}
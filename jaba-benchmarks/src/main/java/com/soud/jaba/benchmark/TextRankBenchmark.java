@@ -0,0 +1,71 @@
+package com.soud.jaba.benchmark;
+
+import com.soud.jaba.Jaba;
+import com.soud.jaba.analyse.TextRankAnalyzer;
+import com.soud.jaba.enumeration.CutModeEnum;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TextRank 关键词提取的耗时，分为包含分词和只对分好的词建图迭代两种
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextRankBenchmark {
+
+    @Param({"medium", "long", "oov"})
+    public String corpus;
+
+    private List<String> documents;
+    private List<List<String>> words;
+    private TextRankAnalyzer analyzer;
+
+    @Setup
+    public void setup() {
+        documents = Corpus.load(corpus);
+        words = new ArrayList<>();
+        for (String document : documents) {
+            words.add(Jaba.getInstance().cut(document, CutModeEnum.CUT));
+        }
+        analyzer = TextRankAnalyzer.getInstance();
+    }
+
+    @Benchmark
+    public void extractTags(Blackhole blackhole) {
+        for (String document : documents) {
+            blackhole.consume(analyzer.extractTags(document, 20));
+        }
+    }
+
+    @Benchmark
+    public void extractTagsFromWords(Blackhole blackhole) {
+        for (List<String> document : words) {
+            blackhole.consume(analyzer.extractTags(document, 20));
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void extractTagsThreads4(Blackhole blackhole) {
+        extractTags(blackhole);
+    }
+}
@@ -0,0 +1,88 @@
+package com.soud.jaba.benchmark;
+
+import com.soud.jaba.Jaba;
+import com.soud.jaba.TokenBuffer;
+import com.soud.jaba.enumeration.CutModeEnum;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 输入为 UTF-8 字节、输出为每个词的字节时，先解码成字符串分词再把词语编码回字节，与直接对字节分词的对比
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Utf8Benchmark {
+
+    @Param({"short", "medium", "long"})
+    public String corpus;
+
+    @Param({"CUT", "CUT_WITHOUT_HMM"})
+    public CutModeEnum cutMode;
+
+    private byte[][] documents;
+    private Jaba jaba;
+
+    @State(Scope.Thread)
+    public static class Buffer {
+        final TokenBuffer tokenBuffer = new TokenBuffer();
+    }
+
+    @Setup
+    public void setup() {
+        List<String> lines = Corpus.load(corpus);
+        documents = new byte[lines.size()][];
+        for (int i = 0; i < documents.length; i++) {
+            documents[i] = lines.get(i).getBytes(StandardCharsets.UTF_8);
+        }
+        jaba = Jaba.getInstance();
+    }
+
+    @Benchmark
+    public void decodeAndEncode(Buffer buffer, Blackhole blackhole) {
+        for (byte[] document : documents) {
+            String text = new String(document, StandardCharsets.UTF_8);
+            buffer.tokenBuffer.clear();
+            jaba.tokenize(text, cutMode, buffer.tokenBuffer);
+            for (int i = 0; i < buffer.tokenBuffer.size(); i++) {
+                blackhole.consume(buffer.tokenBuffer.getToken(text, i).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    @Benchmark
+    public void decodeOnly(Buffer buffer, Blackhole blackhole) {
+        for (byte[] document : documents) {
+            String text = new String(document, StandardCharsets.UTF_8);
+            buffer.tokenBuffer.clear();
+            jaba.tokenize(text, cutMode, buffer.tokenBuffer);
+            blackhole.consume(buffer.tokenBuffer.size());
+        }
+    }
+
+    @Benchmark
+    public void utf8(Buffer buffer, Blackhole blackhole) {
+        for (byte[] document : documents) {
+            buffer.tokenBuffer.clear();
+            jaba.tokenize(document, 0, document.length, cutMode, buffer.tokenBuffer);
+            blackhole.consume(buffer.tokenBuffer.size());
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package com.soud.jaba.server;
+
+import com.soud.jaba.Jaba;
+import com.soud.jaba.Pair;
+import com.soud.jaba.TokenBuffer;
+import com.soud.jaba.analyse.TFIDFAnalyzer;
+import com.soud.jaba.analyse.TextRankAnalyzer;
+import com.soud.jaba.enumeration.CutModeEnum;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 基于 JDK 自带 HttpServer 的分词服务，一个常驻的 JVM 通过本机回环地址为同一台机器上的其他服务分词。
+ * 请求体为 UTF-8 文本，参数在查询字符串中，返回 JSON：
+ * <pre>
+ * POST /cut?mode=cut                         ["我","爱","北京"]
+ * POST /tokenize?mode=cut                    [[0,1,"WORD"],[1,2,"WORD"],[2,4,"WORD"]]
+ * POST /extract_tags?topK=20&amp;method=tfidf    [["北京",1.2],...]，method 为 tfidf 或 textrank
+ * GET  /stats                                吞吐量、队列、批大小和耗时
+ * </pre>
+ * HttpServer 的线程只读取请求和检查参数，分词在 {@link MicroBatcher} 的工作线程上成批执行。
+ * 队列已满或请求在队列中等待过久时返回 503 和 Retry-After，由客户端重试
+ *
+ * @author Soud
+ */
+public class JabaServer implements Closeable {
+    public static final int DEFAULT_PORT = 8900;
+    private static final int MAX_BODY_BYTES = 1 << 20;
+    private static final int IO_THREADS = 2;
+
+    /**
+     * 工作线程复用的分词结果和响应缓冲区
+     */
+    private static final ThreadLocal<TokenBuffer> TOKENS = ThreadLocal.withInitial(TokenBuffer::new);
+    private static final ThreadLocal<StringBuilder> RESPONSE = ThreadLocal.withInitial(StringBuilder::new);
+
+    private final Jaba jaba;
+    private final HttpServer server;
+    private final ExecutorService ioExecutor;
+    private final MicroBatcher batcher;
+    private final ServerStats stats = new ServerStats();
+
+    /**
+     * 检查参数，返回在工作线程上对请求文本执行的操作，参数错误时抛出 IllegalArgumentException
+     */
+    interface Endpoint {
+        Function<String, String> prepare(Map<String, String> params);
+    }
+
+    /**
+     * 使用 CPU 核数的工作线程，队列容量 1024，每批最多 32 个请求，在队列中最多等待 1 秒
+     */
+    public JabaServer(Jaba jaba, InetSocketAddress address) throws IOException {
+        this(jaba, address, Runtime.getRuntime().availableProcessors(), 1024, 32, 1000);
+    }
+
+    /**
+     * @param jaba 用于分词
+     * @param address 监听的地址
+     * @param workers 工作线程数
+     * @param queueCapacity 等待分词的请求数上限，超过时拒绝新的请求
+     * @param maxBatchSize 工作线程每次最多取出的请求数
+     * @param maxQueueMillis 请求在队列中的最长等待时间，超过时不再分词
+     */
+    public JabaServer(Jaba jaba, InetSocketAddress address, int workers, int queueCapacity, int maxBatchSize,
+                      long maxQueueMillis) throws IOException {
+        this.jaba = jaba;
+        this.server = HttpServer.create(address, 0);
+        this.batcher = new MicroBatcher(workers, queueCapacity, maxBatchSize,
+                TimeUnit.MILLISECONDS.toNanos(maxQueueMillis), stats);
+        this.ioExecutor = Executors.newFixedThreadPool(IO_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "jaba-http");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(ioExecutor);
+        addEndpoint("/cut", this::cut);
+        addEndpoint("/tokenize", this::tokenize);
+        addEndpoint("/extract_tags", this::extractTags);
+        server.createContext("/stats", exchange -> respond(exchange, 200, stats.toJson(batcher.queueSize())));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * 实际监听的地址，端口为 0 时可以从这里得到分配的端口
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    public ServerStats getStats() {
+        return stats;
+    }
+
+    /**
+     * 停止监听，队列中还没有执行的请求返回 503
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        batcher.close();
+        ioExecutor.shutdown();
+    }
+
+    /**
+     * 注册一个在工作线程上执行的 POST 接口
+     */
+    void addEndpoint(String path, Endpoint endpoint) {
+        server.createContext(path, exchange -> handle(exchange, endpoint));
+    }
+
+    private void handle(HttpExchange exchange, Endpoint endpoint) throws IOException {
+        long receivedNanos = System.nanoTime();
+        stats.received();
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            stats.failed();
+            respond(exchange, 405, error("POST required"));
+            return;
+        }
+        Function<String, String> operation;
+        String text;
+        try {
+            operation = endpoint.prepare(parseQuery(exchange.getRequestURI().getRawQuery()));
+            text = readBody(exchange);
+        } catch (IllegalArgumentException e) {
+            stats.failed();
+            respond(exchange, 400, error(e.getMessage()));
+            return;
+        }
+        if (text == null) {
+            stats.failed();
+            respond(exchange, 413, error("request body exceeds " + MAX_BODY_BYTES + " bytes"));
+            return;
+        }
+        MicroBatcher.Task task = new MicroBatcher.Task() {
+            @Override
+            void run() {
+                String response;
+                try {
+                    response = operation.apply(text);
+                } catch (RuntimeException e) {
+                    stats.failed();
+                    try {
+                        respond(exchange, 500, error(e.toString()));
+                    } catch (IOException io) {
+                        exchange.close();
+                    }
+                    return;
+                }
+                try {
+                    respond(exchange, 200, response);
+                    stats.completed(System.nanoTime() - receivedNanos);
+                } catch (IOException | RuntimeException e) {
+                    stats.failed();
+                    exchange.close();
+                }
+            }
+
+            @Override
+            void shed() {
+                overloaded(exchange);
+            }
+        };
+        if (!batcher.submit(task)) {
+            stats.rejected();
+            overloaded(exchange);
+        }
+    }
+
+    private Function<String, String> cut(Map<String, String> params) {
+        CutModeEnum cutMode = cutMode(params);
+        return text -> {
+            TokenBuffer tokens = tokens(text, cutMode);
+            StringBuilder sb = response();
+            sb.append('[');
+            for (int i = 0; i < tokens.size(); i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                Json.string(sb, text, tokens.getStart(i), tokens.getEnd(i));
+            }
+            return sb.append(']').toString();
+        };
+    }
+
+    private Function<String, String> tokenize(Map<String, String> params) {
+        CutModeEnum cutMode = cutMode(params);
+        return text -> {
+            TokenBuffer tokens = tokens(text, cutMode);
+            StringBuilder sb = response();
+            sb.append('[');
+            for (int i = 0; i < tokens.size(); i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                sb.append('[').append(tokens.getStart(i)).append(',').append(tokens.getEnd(i)).append(",\"")
+                        .append(tokens.getKind(i)).append("\"]");
+            }
+            return sb.append(']').toString();
+        };
+    }
+
+    private Function<String, String> extractTags(Map<String, String> params) {
+        int topK = Integer.parseInt(params.getOrDefault("topK", "20"));
+        if (topK < 0) {
+            throw new IllegalArgumentException("topK must not be negative: " + topK);
+        }
+        String method = params.getOrDefault("method", "tfidf");
+        Function<List<String>, List<Pair<String, Double>>> extractor;
+        if ("tfidf".equals(method)) {
+            extractor = words -> TFIDFAnalyzer.getInstance().extractTags(words, topK);
+        } else if ("textrank".equals(method)) {
+            extractor = words -> TextRankAnalyzer.getInstance().extractTags(words, topK);
+        } else {
+            throw new IllegalArgumentException("unknown method: " + method);
+        }
+        return text -> {
+            List<Pair<String, Double>> tags = extractor.apply(jaba.cut(text, CutModeEnum.CUT));
+            StringBuilder sb = response();
+            sb.append('[');
+            for (int i = 0; i < tags.size(); i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                sb.append('[');
+                Json.string(sb, tags.get(i).getKey());
+                sb.append(',').append(tags.get(i).getValue()).append(']');
+            }
+            return sb.append(']').toString();
+        };
+    }
+
+    private static CutModeEnum cutMode(Map<String, String> params) {
+        return CutModeEnum.valueOf(params.getOrDefault("mode", "cut").toUpperCase(Locale.ROOT));
+    }
+
+    private TokenBuffer tokens(String text, CutModeEnum cutMode) {
+        TokenBuffer tokens = TOKENS.get();
+        tokens.clear();
+        jaba.tokenize(text, cutMode, tokens);
+        return tokens;
+    }
+
+    private static StringBuilder response() {
+        StringBuilder sb = RESPONSE.get();
+        sb.setLength(0);
+        return sb;
+    }
+
+    private static String error(String message) {
+        StringBuilder sb = new StringBuilder("{\"error\":");
+        Json.string(sb, String.valueOf(message));
+        return sb.append('}').toString();
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        try {
+            for (String pair : query.split("&")) {
+                int eq = pair.indexOf('=');
+                if (eq > 0) {
+                    params.put(URLDecoder.decode(pair.substring(0, eq), "UTF-8"),
+                            URLDecoder.decode(pair.substring(eq + 1), "UTF-8"));
+                }
+            }
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+        return params;
+    }
+
+    /**
+     * 读取 UTF-8 请求体，超过上限时返回 null
+     */
+    private static String readBody(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        try (InputStream in = exchange.getRequestBody()) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                if (body.size() + n > MAX_BODY_BYTES) {
+                    return null;
+                }
+                body.write(buffer, 0, n);
+            }
+        }
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private void overloaded(HttpExchange exchange) {
+        exchange.getResponseHeaders().set("Retry-After", "1");
+        try {
+            respond(exchange, 503, error("server overloaded"));
+        } catch (IOException e) {
+            exchange.close();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * 启动服务，参数为端口（默认 8900）和工作线程数（默认 CPU 核数），只监听 127.0.0.1
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int workers = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        Jaba jaba = Jaba.getInstance();
+        JabaServer server = new JabaServer(jaba, new InetSocketAddress(InetAddress.getLoopbackAddress(), port),
+                workers, 1024, 32, 1000);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        server.start();
+        System.out.println("jaba server listening on " + server.getAddress());
+    }
+}
@@ -0,0 +1,48 @@
+package com.soud.jaba.server;
+
+/**
+ * 写 JSON 字符串，不依赖 JSON 库
+ */
+final class Json {
+
+    private Json() {
+    }
+
+    static void string(StringBuilder sb, String text) {
+        string(sb, text, 0, text.length());
+    }
+
+    /**
+     * 把 text 的 [start, end) 写成 JSON 字符串
+     */
+    static void string(StringBuilder sb, CharSequence text, int start, int end) {
+        sb.append('"');
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        sb.append('"');
+    }
+}
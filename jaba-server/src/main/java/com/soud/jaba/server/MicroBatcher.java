@@ -0,0 +1,124 @@
+package com.soud.jaba.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 把并发的小请求合并成批，在固定数量的工作线程上执行。
+ * <p>
+ * 请求放入有界队列，队列已满时 {@link #submit(Task)} 立即返回 false，由调用方拒绝请求（背压）。
+ * 每个工作线程被唤醒后一次取出队列中已有的请求（最多 maxBatchSize 个）依次执行，
+ * 负载低时每批只有一个请求，不为凑批等待；负载高时一次唤醒处理多个请求，减少线程切换，
+ * 同一批请求在同一个线程上执行，复用该线程的分词缓冲区。
+ * 在队列中等待超过 maxQueueNanos 的请求不再执行，直接丢弃（降级），避免积压时所有请求都超时
+ */
+class MicroBatcher {
+    /**
+     * 队列中的请求
+     */
+    abstract static class Task {
+        final long enqueueNanos = System.nanoTime();
+
+        /**
+         * 在工作线程上执行并写回响应
+         */
+        abstract void run();
+
+        /**
+         * 丢弃请求，在工作线程或关闭服务的线程上调用
+         */
+        abstract void shed();
+    }
+
+    private final BlockingQueue<Task> queue;
+    private final int maxBatchSize;
+    private final long maxQueueNanos;
+    private final ServerStats stats;
+    private final Thread[] workers;
+    private volatile boolean running = true;
+
+    /**
+     * @param workers 工作线程数
+     * @param capacity 队列容量
+     * @param maxBatchSize 每批最多的请求数
+     * @param maxQueueNanos 请求在队列中的最长等待时间
+     */
+    MicroBatcher(int workers, int capacity, int maxBatchSize, long maxQueueNanos, ServerStats stats) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxBatchSize = maxBatchSize;
+        this.maxQueueNanos = maxQueueNanos;
+        this.stats = stats;
+        this.workers = new Thread[workers];
+        for (int i = 0; i < workers; i++) {
+            Thread worker = new Thread(this::work, "jaba-worker-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            this.workers[i] = worker;
+        }
+    }
+
+    /**
+     * 放入队列，队列已满或已关闭时返回 false
+     */
+    boolean submit(Task task) {
+        return running && queue.offer(task);
+    }
+
+    int queueSize() {
+        return queue.size();
+    }
+
+    private void work() {
+        List<Task> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            Task first;
+            try {
+                first = queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (first == null) {
+                continue;
+            }
+            batch.add(first);
+            queue.drainTo(batch, maxBatchSize - 1);
+            stats.batch(batch.size());
+            for (Task task : batch) {
+                long queueNanos = System.nanoTime() - task.enqueueNanos;
+                stats.queued(queueNanos);
+                if (queueNanos > maxQueueNanos) {
+                    stats.expired();
+                    task.shed();
+                } else {
+                    task.run();
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * 停止工作线程，丢弃队列中剩余的请求
+     */
+    void close() {
+        running = false;
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        Task task;
+        while ((task = queue.poll()) != null) {
+            task.shed();
+        }
+    }
+}
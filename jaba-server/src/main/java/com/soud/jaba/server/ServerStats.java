@@ -0,0 +1,141 @@
+package com.soud.jaba.server;
+
+import com.soud.jaba.metrics.LatencyHistogram;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 服务的吞吐量和耗时统计，记录时没有锁
+ */
+public class ServerStats {
+    private final long startNanos = System.nanoTime();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder batchedRequests = new LongAdder();
+    private final LatencyHistogram queueTime = new LatencyHistogram();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    void received() {
+        received.increment();
+    }
+
+    /**
+     * 请求处理完成，latency 从收到请求到写完响应
+     */
+    void completed(long latencyNanos) {
+        completed.increment();
+        latency.record(latencyNanos);
+    }
+
+    void failed() {
+        failed.increment();
+    }
+
+    /**
+     * 队列已满，请求被拒绝
+     */
+    void rejected() {
+        rejected.increment();
+    }
+
+    /**
+     * 在队列中等待超时，请求被丢弃
+     */
+    void expired() {
+        expired.increment();
+    }
+
+    void batch(int size) {
+        batches.increment();
+        batchedRequests.add(size);
+    }
+
+    void queued(long queueNanos) {
+        queueTime.record(queueNanos);
+    }
+
+    public long getReceived() {
+        return received.sum();
+    }
+
+    public long getCompleted() {
+        return completed.sum();
+    }
+
+    /**
+     * 参数错误、分词出错或写响应失败的请求数
+     */
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public long getExpired() {
+        return expired.sum();
+    }
+
+    /**
+     * 启动以来平均每秒完成的请求数
+     */
+    public double getThroughput() {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return seconds > 0 ? completed.sum() / seconds : 0;
+    }
+
+    /**
+     * 平均每批的请求数
+     */
+    public double getMeanBatchSize() {
+        long count = batches.sum();
+        return count == 0 ? 0 : (double) batchedRequests.sum() / count;
+    }
+
+    public LatencyHistogram.Snapshot getQueueTime() {
+        return queueTime.snapshot();
+    }
+
+    public LatencyHistogram.Snapshot getLatency() {
+        return latency.snapshot();
+    }
+
+    /**
+     * 写成 JSON，耗时的单位为微秒
+     */
+    String toJson(int queueSize) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"uptimeSeconds\":").append((System.nanoTime() - startNanos) / 1_000_000_000L)
+                .append(",\"received\":").append(received.sum())
+                .append(",\"completed\":").append(completed.sum())
+                .append(",\"failed\":").append(failed.sum())
+                .append(",\"rejected\":").append(rejected.sum())
+                .append(",\"expired\":").append(expired.sum())
+                .append(",\"queueSize\":").append(queueSize)
+                .append(",\"throughput\":").append(String.format(Locale.ROOT, "%.1f", getThroughput()))
+                .append(",\"batches\":").append(batches.sum())
+                .append(",\"meanBatchSize\":").append(String.format(Locale.ROOT, "%.2f", getMeanBatchSize()))
+                .append(",\"queueTimeMicros\":");
+        histogram(sb, getQueueTime());
+        sb.append(",\"latencyMicros\":");
+        histogram(sb, getLatency());
+        return sb.append('}').toString();
+    }
+
+    private static void histogram(StringBuilder sb, LatencyHistogram.Snapshot snapshot) {
+        sb.append("{\"count\":").append(snapshot.getCount())
+                .append(",\"mean\":").append(snapshot.getMean() / 1000)
+                .append(",\"p50\":").append(snapshot.getP50() / 1000.)
+                .append(",\"p90\":").append(snapshot.getP90() / 1000.)
+                .append(",\"p99\":").append(snapshot.getP99() / 1000.)
+                .append(",\"p999\":").append(snapshot.getP999() / 1000.)
+                .append(",\"max\":").append(snapshot.getMax() / 1000.)
+                .append('}');
+    }
+}
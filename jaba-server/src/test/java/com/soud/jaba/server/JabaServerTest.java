@@ -0,0 +1,159 @@
+package com.soud.jaba.server;
+
+import com.soud.jaba.Jaba;
+import com.soud.jaba.TokenBuffer;
+import com.soud.jaba.enumeration.CutModeEnum;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class JabaServerTest {
+
+    private Jaba jaba = Jaba.getInstance();
+
+    private JabaServer server;
+
+    @Before
+    public void start() throws IOException {
+        server = new JabaServer(jaba, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 2, 16, 8, 1000);
+        server.start();
+    }
+
+    @After
+    public void stop() {
+        server.close();
+    }
+
+    private String[] request(String method, String path, String body) throws IOException {
+        URL url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + path);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod(method);
+        if (body != null) {
+            connection.setDoOutput(true);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        int status = connection.getResponseCode();
+        InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            response.write(buffer, 0, n);
+        }
+        in.close();
+        return new String[]{String.valueOf(status), new String(response.toByteArray(), StandardCharsets.UTF_8)};
+    }
+
+    @Test
+    public void testEndpoints() throws IOException {
+        String text = "我来到北京清华大学，\"他说\"";
+        StringBuilder expected = new StringBuilder("[");
+        for (String word : jaba.cut(text, CutModeEnum.CUT_FOR_SEARCH)) {
+            if (expected.length() > 1) {
+                expected.append(',');
+            }
+            Json.string(expected, word);
+        }
+        expected.append(']');
+        String[] cut = request("POST", "/cut?mode=cut_for_search", text);
+        assertEquals("200", cut[0]);
+        assertEquals(expected.toString(), cut[1]);
+
+        TokenBuffer tokens = new TokenBuffer();
+        jaba.tokenize(text, CutModeEnum.CUT, tokens);
+        String[] tokenize = request("POST", "/tokenize", text);
+        assertEquals("200", tokenize[0]);
+        assertTrue(tokenize[1], tokenize[1].startsWith("[[0," + tokens.getEnd(0) + ",\"" + tokens.getKind(0) + "\"]"));
+
+        String[] tags = request("POST", "/extract_tags?topK=2&method=textrank", "我来到北京清华大学，北京清华大学很好");
+        assertEquals("200", tags[0]);
+        assertTrue(tags[1], tags[1].startsWith("[["));
+
+        assertEquals("400", request("POST", "/cut?mode=unknown", text)[0]);
+        assertEquals("400", request("POST", "/extract_tags?topK=x", text)[0]);
+        assertEquals("405", request("GET", "/cut", null)[0]);
+
+        String[] stats = request("GET", "/stats", null);
+        assertEquals("200", stats[0]);
+        assertTrue(stats[1], stats[1].contains("\"completed\":3"));
+        assertTrue(stats[1], stats[1].contains("\"latencyMicros\":{\"count\":3"));
+    }
+
+    @Test
+    public void testOperationFailure() throws IOException {
+        server.addEndpoint("/fail", params -> text -> {
+            throw new IllegalStateException("broken");
+        });
+        String[] failed = request("POST", "/fail", "我来到北京清华大学");
+        assertEquals("500", failed[0]);
+        assertTrue(failed[1], failed[1].startsWith("{\"error\":") && failed[1].contains("broken"));
+        assertEquals(1, server.getStats().getFailed());
+    }
+
+    @Test
+    public void testBackpressure() throws InterruptedException {
+        ServerStats stats = new ServerStats();
+        MicroBatcher batcher = new MicroBatcher(1, 2, 4, Long.MAX_VALUE, stats);
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger ran = new AtomicInteger();
+        AtomicInteger shed = new AtomicInteger();
+        class CountingTask extends MicroBatcher.Task {
+            @Override
+            void run() {
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                ran.incrementAndGet();
+            }
+
+            @Override
+            void shed() {
+                shed.incrementAndGet();
+            }
+        }
+        // 第一个请求占住唯一的工作线程，队列容量为 2
+        assertTrue(batcher.submit(new CountingTask()));
+        blocked.await();
+        assertTrue(batcher.submit(new CountingTask()));
+        assertTrue(batcher.submit(new CountingTask()));
+        assertFalse(batcher.submit(new CountingTask()));
+        release.countDown();
+        while (ran.get() < 3) {
+            Thread.sleep(1);
+        }
+        // 后两个请求在同一批中执行
+        assertEquals(1.5, stats.getMeanBatchSize(), 1e-9);
+        batcher.close();
+        assertEquals(0, shed.get());
+
+        MicroBatcher expiring = new MicroBatcher(1, 2, 4, 0, stats);
+        assertTrue(expiring.submit(new CountingTask()));
+        while (shed.get() < 1) {
+            Thread.sleep(1);
+        }
+        expiring.close();
+        assertEquals(1, stats.getExpired());
+    }
+}
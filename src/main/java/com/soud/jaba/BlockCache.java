@@ -0,0 +1,453 @@
+package com.soud.jaba;
+
+import com.soud.jaba.enumeration.CutModeEnum;
+
+import java.util.HashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 短句分词结果的缓存，搜索词、商品标题、聊天消息中反复出现的短句不必重新计算 DAG、路径和 HMM。
+ * <p>
+ * 以 (短句, 分词模式, 字典版本, HMM 版本) 为键，缓存短句内各个词的相对位置和类别。
+ * 按键的哈希分成若干段，每段有自己的锁和容量，各段使用 W-TinyLFU 淘汰：
+ * 新的短句先进入占容量 1% 的 LRU 窗口，被挤出窗口时和主区域中最久未用的短句比较
+ * Count-Min Sketch 统计的近期访问频率，频率更高的留下；
+ * 主区域分为试用区和保护区（占主区域的 80%），试用区中再次命中的短句进入保护区。
+ * <p>
+ * 容量按估算的字节数限制。增删词语、加载用户字典或替换 HMM 模型后，
+ * 首次用新版本查询时清空整个缓存，旧版本的结果也不会再被放入。
+ */
+public class BlockCache {
+    private static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+    /**
+     * 每个缓存项除了短句和位置数组之外的大约字节数：键、节点、数组头等
+     */
+    private static final int ENTRY_OVERHEAD = 96;
+
+    private final long maxBytes;
+    private final Segment[] segments;
+    private final int segmentMask;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private final LongAdder invalidationCount = new LongAdder();
+
+    /**
+     * 见过的最新的字典版本和 HMM 版本
+     */
+    private volatile long dictionaryVersion;
+    private volatile int hmmVersion;
+
+    /**
+     * @param maxBytes 缓存占用的最大字节数（估算值）
+     */
+    public BlockCache(long maxBytes) {
+        this(maxBytes, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * @param maxBytes 缓存占用的最大字节数（估算值）
+     * @param concurrencyLevel 预计同时分词的线程数，决定分段的个数
+     */
+    public BlockCache(long maxBytes, int concurrencyLevel) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be positive: " + maxBytes);
+        }
+        int segmentCount = 1;
+        while (segmentCount < concurrencyLevel && segmentCount < (1 << 16)) {
+            segmentCount <<= 1;
+        }
+        this.maxBytes = maxBytes;
+        this.segments = new Segment[segmentCount];
+        this.segmentMask = segmentCount - 1;
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(Math.max(1, maxBytes / segmentCount));
+        }
+    }
+
+    /**
+     * 查询短句的分词结果
+     * @return 每个词的 (start, end, kind) 三元组，位置相对于短句开头；未缓存时返回 null
+     */
+    int[] get(Dictionary dictionary, int hmmVersion, CutModeEnum cutMode, String block) {
+        if (!advance(dictionary.getVersion(), hmmVersion)) {
+            missCount.increment();
+            return null;
+        }
+        Key key = new Key(block, cutMode, dictionary.getVersion(), hmmVersion);
+        int[] spans = segmentFor(key).get(key);
+        if (spans == null) {
+            missCount.increment();
+        } else {
+            hitCount.increment();
+        }
+        return spans;
+    }
+
+    /**
+     * 保存短句的分词结果，数组保存后不能再修改
+     */
+    void put(Dictionary dictionary, int hmmVersion, CutModeEnum cutMode, String block, int[] spans) {
+        if (!advance(dictionary.getVersion(), hmmVersion)) {
+            return;
+        }
+        Key key = new Key(block, cutMode, dictionary.getVersion(), hmmVersion);
+        long weight = ENTRY_OVERHEAD + 2L * block.length() + 4L * spans.length;
+        int evicted = segmentFor(key).put(key, spans, weight);
+        if (evicted > 0) {
+            evictionCount.add(evicted);
+        }
+    }
+
+    /**
+     * 遇到更新的版本时清空缓存
+     * @return 给出的版本是否为最新版本，旧版本的结果不再查询和保存
+     */
+    private boolean advance(long dictionaryVersion, int hmmVersion) {
+        if (dictionaryVersion == this.dictionaryVersion && hmmVersion == this.hmmVersion) {
+            return true;
+        }
+        synchronized (this) {
+            if (dictionaryVersion < this.dictionaryVersion || hmmVersion < this.hmmVersion) {
+                return false;
+            }
+            if (dictionaryVersion > this.dictionaryVersion || hmmVersion > this.hmmVersion) {
+                invalidateAll();
+                this.dictionaryVersion = dictionaryVersion;
+                this.hmmVersion = hmmVersion;
+            }
+            return true;
+        }
+    }
+
+    private Segment segmentFor(Key key) {
+        return segments[(key.hash ^ (key.hash >>> 16)) & segmentMask];
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void invalidateAll() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+        invalidationCount.increment();
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * 当前缓存的短句个数
+     */
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * 当前缓存占用的字节数（估算值）
+     */
+    public long getWeightedSize() {
+        long weight = 0;
+        for (Segment segment : segments) {
+            weight += segment.weight();
+        }
+        return weight;
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * 命中率，还没有查询过时为 0
+     */
+    public double getHitRate() {
+        long hits = getHitCount();
+        long requests = hits + getMissCount();
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+
+    /**
+     * 因容量不足被淘汰或未被接纳的短句个数
+     */
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * 整个缓存被清空的次数，包括字典或 HMM 模型修改导致的自动清空
+     */
+    public long getInvalidationCount() {
+        return invalidationCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BlockCache{size=%d, bytes=%d/%d, hits=%d, misses=%d, evictions=%d, invalidations=%d}",
+                size(), getWeightedSize(), maxBytes, getHitCount(), getMissCount(), getEvictionCount(),
+                getInvalidationCount());
+    }
+
+    private static final class Key {
+        final String block;
+        final CutModeEnum cutMode;
+        final long dictionaryVersion;
+        final int hmmVersion;
+        final int hash;
+
+        Key(String block, CutModeEnum cutMode, long dictionaryVersion, int hmmVersion) {
+            this.block = block;
+            this.cutMode = cutMode;
+            this.dictionaryVersion = dictionaryVersion;
+            this.hmmVersion = hmmVersion;
+            this.hash = (block.hashCode() * 31 + cutMode.ordinal()) * 0x9E3779B9;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hash == other.hash && cutMode == other.cutMode && dictionaryVersion == other.dictionaryVersion
+                    && hmmVersion == other.hmmVersion && block.equals(other.block);
+        }
+    }
+
+    private static final class Node {
+        final Key key;
+        final int[] spans;
+        final long weight;
+        Node prev;
+        Node next;
+        Queue queue;
+
+        Node(Key key, int[] spans, long weight) {
+            this.key = key;
+            this.spans = spans;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * 按访问顺序排列的双向链表，表头为最久未使用
+     */
+    private static final class Queue {
+        final Node head = new Node(null, null, 0);
+        long weight;
+
+        Queue() {
+            head.prev = head;
+            head.next = head;
+        }
+
+        Node first() {
+            return head.next == head ? null : head.next;
+        }
+
+        void addLast(Node node) {
+            node.prev = head.prev;
+            node.next = head;
+            head.prev.next = node;
+            head.prev = node;
+            node.queue = this;
+            weight += node.weight;
+        }
+
+        void remove(Node node) {
+            node.prev.next = node.next;
+            node.next.prev = node.prev;
+            node.prev = null;
+            node.next = null;
+            node.queue = null;
+            weight -= node.weight;
+        }
+
+        void moveToLast(Node node) {
+            remove(node);
+            addLast(node);
+        }
+
+        void clear() {
+            head.prev = head;
+            head.next = head;
+            weight = 0;
+        }
+    }
+
+    /**
+     * 一段缓存，所有操作都在这一段的锁内进行
+     */
+    private static final class Segment {
+        private final long maxWeight;
+        private final long windowMaxWeight;
+        private final long mainMaxWeight;
+        private final long protectedMaxWeight;
+
+        private final HashMap<Key, Node> map = new HashMap<>();
+        private final Queue window = new Queue();
+        private final Queue probation = new Queue();
+        private final Queue protect = new Queue();
+        private final FrequencySketch sketch;
+
+        Segment(long maxWeight) {
+            this.maxWeight = maxWeight;
+            this.windowMaxWeight = Math.max(1, maxWeight / 100);
+            this.mainMaxWeight = maxWeight - windowMaxWeight;
+            this.protectedMaxWeight = mainMaxWeight * 4 / 5;
+            // 按平均每项约 128 字节估算能容纳的短句数
+            this.sketch = new FrequencySketch(maxWeight / 128);
+        }
+
+        synchronized int[] get(Key key) {
+            sketch.increment(key.hash);
+            Node node = map.get(key);
+            if (node == null) {
+                return null;
+            }
+            if (node.queue == probation) {
+                probation.remove(node);
+                protect.addLast(node);
+                while (protect.weight > protectedMaxWeight) {
+                    Node demoted = protect.first();
+                    protect.remove(demoted);
+                    probation.addLast(demoted);
+                }
+            } else {
+                node.queue.moveToLast(node);
+            }
+            return node.spans;
+        }
+
+        /**
+         * @return 被淘汰的短句个数
+         */
+        synchronized int put(Key key, int[] spans, long weight) {
+            if (weight > maxWeight || map.containsKey(key)) {
+                // 比整段还大的不缓存；已被其他线程放入的结果相同，不需要替换
+                return weight > maxWeight ? 1 : 0;
+            }
+            Node node = new Node(key, spans, weight);
+            map.put(key, node);
+            window.addLast(node);
+            int evicted = 0;
+            while (window.weight > windowMaxWeight) {
+                Node candidate = window.first();
+                window.remove(candidate);
+                evicted += admit(candidate);
+            }
+            return evicted;
+        }
+
+        /**
+         * 把挤出窗口的短句放入试用区，空间不足时和主区域最久未用的短句比较访问频率，淘汰频率低的
+         * @return 被淘汰的短句个数
+         */
+        private int admit(Node candidate) {
+            int evicted = 0;
+            int candidateFreq = sketch.frequency(candidate.key.hash);
+            while (probation.weight + protect.weight + candidate.weight > mainMaxWeight) {
+                Node victim = probation.first();
+                if (victim == null) {
+                    victim = protect.first();
+                }
+                if (victim == null || candidateFreq <= sketch.frequency(victim.key.hash)) {
+                    map.remove(candidate.key);
+                    return evicted + 1;
+                }
+                victim.queue.remove(victim);
+                map.remove(victim.key);
+                evicted++;
+            }
+            probation.addLast(candidate);
+            return evicted;
+        }
+
+        synchronized void clear() {
+            map.clear();
+            window.clear();
+            probation.clear();
+            protect.clear();
+        }
+
+        synchronized int size() {
+            return map.size();
+        }
+
+        synchronized long weight() {
+            return window.weight + probation.weight + protect.weight;
+        }
+    }
+
+    /**
+     * 4 行的 Count-Min Sketch，计数到 15 为止，计数次数达到宽度的 10 倍时全部减半，使频率反映近期的访问
+     */
+    private static final class FrequencySketch {
+        private static final int[] SEEDS = {0x97CB3127, 0xB7A1E6D5, 0x1B873593, 0x85EBCA6B};
+        private static final int MAX_COUNT = 15;
+
+        private final byte[] table;
+        private final int width;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(long expectedSize) {
+            int w = 16;
+            while (w < expectedSize && w < (1 << 22)) {
+                w <<= 1;
+            }
+            width = w;
+            mask = w - 1;
+            table = new byte[w * SEEDS.length];
+            sampleSize = 10 * w;
+        }
+
+        private int index(int hash, int row) {
+            int h = hash * SEEDS[row];
+            h ^= h >>> 15;
+            return row * width + (h & mask);
+        }
+
+        void increment(int hash) {
+            boolean added = false;
+            for (int row = 0; row < SEEDS.length; row++) {
+                int i = index(hash, row);
+                if (table[i] < MAX_COUNT) {
+                    table[i]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                for (int i = 0; i < table.length; i++) {
+                    table[i] >>= 1;
+                }
+                additions /= 2;
+            }
+        }
+
+        int frequency(int hash) {
+            int freq = MAX_COUNT;
+            for (int row = 0; row < SEEDS.length; row++) {
+                freq = Math.min(freq, table[index(hash, row)]);
+            }
+            return freq;
+        }
+    }
+}
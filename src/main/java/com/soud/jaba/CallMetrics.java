@@ -0,0 +1,78 @@
+package com.soud.jaba;
+
+import com.soud.jaba.enumeration.CounterEnum;
+import com.soud.jaba.enumeration.StageEnum;
+import com.soud.jaba.enumeration.TokenKindEnum;
+import com.soud.jaba.metrics.Instrumentation;
+
+/**
+ * 一次分词调用的统计，只在设置了 {@link Instrumentation} 时创建。
+ * 包在调用者的 handler 外面统计输出的词，计数在调用结束时一次性交给 Instrumentation
+ */
+class CallMetrics implements TokenHandler {
+    private final Instrumentation instrumentation;
+    private final TokenHandler handler;
+    private long tokens;
+    private long oovTokens;
+    private long blocks;
+    private long blockNanos;
+    private long dagEdges;
+    private long hmmCalls;
+
+    CallMetrics(Instrumentation instrumentation, TokenHandler handler) {
+        this.instrumentation = instrumentation;
+        this.handler = handler;
+    }
+
+    @Override
+    public void token(int start, int end, TokenKindEnum kind) {
+        tokens++;
+        if (kind == TokenKindEnum.HMM && end - start > 1) {
+            oovTokens++;
+        }
+        handler.token(start, end, kind);
+    }
+
+    /**
+     * 生成了一个短句的 DAG
+     */
+    void dag(long nanos, int edges) {
+        blocks++;
+        dagEdges += edges;
+        instrumentation.recordTime(StageEnum.DAG, nanos);
+    }
+
+    void route(long nanos) {
+        instrumentation.recordTime(StageEnum.ROUTE, nanos);
+    }
+
+    void hmm(long nanos) {
+        hmmCalls++;
+        instrumentation.recordTime(StageEnum.HMM, nanos);
+    }
+
+    /**
+     * 处理一个短句（含查询缓存）的耗时，其余时间计入 {@link StageEnum#SPLIT}
+     */
+    void block(long nanos) {
+        blockNanos += nanos;
+    }
+
+    void finish(long nanos, int chars) {
+        instrumentation.recordTime(StageEnum.TOKENIZE, nanos);
+        instrumentation.recordTime(StageEnum.SPLIT, nanos - blockNanos);
+        instrumentation.recordCount(CounterEnum.CALLS, 1);
+        count(CounterEnum.CHARS, chars);
+        count(CounterEnum.TOKENS, tokens);
+        count(CounterEnum.BLOCKS, blocks);
+        count(CounterEnum.DAG_EDGES, dagEdges);
+        count(CounterEnum.HMM_CALLS, hmmCalls);
+        count(CounterEnum.OOV_TOKENS, oovTokens);
+    }
+
+    private void count(CounterEnum counter, long count) {
+        if (count > 0) {
+            instrumentation.recordCount(counter, count);
+        }
+    }
+}
@@ -0,0 +1,435 @@
+package com.soud.jaba;
+
+import com.soud.jaba.enumeration.TrieEngineEnum;
+import com.soud.jaba.trie.DoubleArrayTrie;
+import com.soud.jaba.trie.HitHandler;
+import com.soud.jaba.trie.WordTrie;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 一份完整的字典：基础字典的词语、词频和 trie，加上运行时增删的少量词语（overlay）。
+ * 创建后不再修改，增删词语时由 {@link Tokenizer} 生成新的字典整体替换，
+ * 分词时每个句子只读取一次，所以多个线程并发分词时看到的总是一致的数据。
+ * <p>
+ * 基础字典的词语 id 为 [0, baseSize)，overlay 中的词语 id 为 baseSize + 在 overlay 中的序号。
+ * overlay 中的词会覆盖基础字典中的同名词，词频为 0 表示该词已被删除，不再作为 DAG 的边。
+ * overlay 只有少量词语，每次修改都重新生成；积累到一定数量后由 {@link #compact(TrieEngineEnum)} 合并成新的基础字典。
+ * <p>
+ * 词性和词频一样按词语 id 保存，trie 命中或最大概率路径给出的 id 即可直接取到词性，不需要再查询字典。
+ */
+class Dictionary {
+    private static final AtomicLong VERSIONS = new AtomicLong();
+    static final Dictionary EMPTY = new Dictionary(0, Collections.emptyList(), new int[0], null, null);
+    private static final double[] NO_LOG_FREQS = new double[0];
+
+    /**
+     * 字典的版本号，每生成一份字典递增，后生成的字典版本号更大
+     */
+    private final long version = VERSIONS.incrementAndGet();
+
+    private final int total;
+    private final double logTotal;
+    /**
+     * 不在字典中的单字的对数概率，即 log(1) - log(total)
+     */
+    private final double unknownLogProb;
+
+    private final List<String> words;
+    private final int[] wordFreqs;
+    /**
+     * 按词语 id 预先算好的 log(freq)，词频为 0 的按 1 计算，分词时减去 log(total) 即为对数概率，
+     * total 变化时不需要重新计算
+     */
+    private final double[] logFreqs;
+    /**
+     * 按词语 id 保存的词性，字典中没有词性时为 null，没有词性的词为 null
+     */
+    private final String[] tags;
+    private final WordTrie trie;
+
+    /**
+     * 运行时增删的词语及词频，按字典序排列，没有时为空
+     */
+    private final SortedMap<String, Integer> overlay;
+    /**
+     * 运行时指定了词性的词语，都在 overlay 中
+     */
+    private final SortedMap<String, String> overlayTags;
+    private final DoubleArrayTrie overlayTrie;
+    private final int[] overlayFreqs;
+    private final double[] overlayLogFreqs;
+    /**
+     * overlay 中词语的词性，没有指定时沿用基础字典中的词性
+     */
+    private final String[] overlayTagArray;
+    /**
+     * 被 overlay 覆盖的基础字典词语 id
+     */
+    private final BitSet overridden;
+    /**
+     * 被删除过的词语，HMM 识别出这些词时也要拆成单字，和 jieba 一样即使之后重新添加也不会移除
+     */
+    private final Set<String> forceSplitWords;
+    /**
+     * 估算的内存占用，第一次查询时计算
+     */
+    private volatile long footprint = -1;
+
+    Dictionary(int total, List<String> words, int[] wordFreqs, WordTrie trie) {
+        this(total, words, wordFreqs, null, trie);
+    }
+
+    /**
+     * @param tags 按词语 id 保存的词性，可以为 null
+     */
+    Dictionary(int total, List<String> words, int[] wordFreqs, String[] tags, WordTrie trie) {
+        this(total, words, wordFreqs, calcLogFreqs(wordFreqs), tags, trie, Collections.emptySortedMap(),
+                Collections.emptySortedMap(), Collections.emptySet());
+    }
+
+    private Dictionary(int total, List<String> words, int[] wordFreqs, double[] logFreqs, String[] tags, WordTrie trie,
+                       SortedMap<String, Integer> overlay, SortedMap<String, String> overlayTags,
+                       Set<String> forceSplitWords) {
+        this.total = total;
+        this.logTotal = Math.log(total);
+        this.unknownLogProb = Math.log(1) - logTotal;
+        this.words = words;
+        this.wordFreqs = wordFreqs;
+        this.logFreqs = logFreqs;
+        this.tags = tags;
+        this.trie = trie;
+        this.overlay = overlay;
+        this.overlayTags = overlayTags;
+        if (overlay.isEmpty()) {
+            overlayTrie = null;
+            overlayFreqs = new int[0];
+            overlayLogFreqs = NO_LOG_FREQS;
+            overlayTagArray = null;
+            overridden = null;
+        } else {
+            TreeMap<String, Integer> ids = new TreeMap<>();
+            overlayFreqs = new int[overlay.size()];
+            overlayTagArray = new String[overlay.size()];
+            overridden = new BitSet();
+            overlay.forEach((word, freq) -> {
+                overlayFreqs[ids.size()] = freq;
+                int id = trie == null ? -1 : trie.exactMatch(word);
+                String tag = overlayTags.get(word);
+                overlayTagArray[ids.size()] = tag == null && id >= 0 && tags != null ? tags[id] : tag;
+                ids.put(word, ids.size());
+                if (id >= 0) {
+                    overridden.set(id);
+                }
+            });
+            overlayTrie = DoubleArrayTrie.build(ids);
+            overlayLogFreqs = calcLogFreqs(overlayFreqs);
+        }
+        this.forceSplitWords = addDeleted(forceSplitWords, overlay);
+    }
+
+    /**
+     * 把 changes 中词频为 0 的词语加入 forceSplitWords，没有时直接返回原集合
+     */
+    private static Set<String> addDeleted(Set<String> forceSplitWords, Map<String, Integer> changes) {
+        Set<String> result = forceSplitWords;
+        for (Map.Entry<String, Integer> entry : changes.entrySet()) {
+            if (entry.getValue() == 0 && !result.contains(entry.getKey())) {
+                if (result == forceSplitWords) {
+                    result = new HashSet<>(forceSplitWords);
+                }
+                result.add(entry.getKey());
+            }
+        }
+        return result == forceSplitWords ? result : Collections.unmodifiableSet(result);
+    }
+
+    private static double[] calcLogFreqs(int[] freqs) {
+        double[] result = new double[freqs.length];
+        for (int i = 0; i < result.length; i++) {
+            int freq = freqs[i];
+            result[i] = Math.log(freq > 0 ? freq : 1);
+        }
+        return result;
+    }
+
+    /**
+     * 在当前字典上增删词语，返回新的字典，基础字典的数组和 trie 直接共享
+     * @param changes 词语和新的词频，词频为 0 表示删除
+     * @param total 新的总词频
+     */
+    Dictionary withOverlay(Map<String, Integer> changes, int total) {
+        return withOverlay(changes, Collections.emptyMap(), total);
+    }
+
+    /**
+     * 同 {@link #withOverlay(Map, int)}，同时修改词语的词性
+     * @param tagChanges 词语和新的词性，词语必须也在 changes 中
+     */
+    Dictionary withOverlay(Map<String, Integer> changes, Map<String, String> tagChanges, int total) {
+        TreeMap<String, Integer> merged = new TreeMap<>(overlay);
+        merged.putAll(changes);
+        SortedMap<String, String> mergedTags = overlayTags;
+        if (!tagChanges.isEmpty()) {
+            mergedTags = new TreeMap<>(overlayTags);
+            mergedTags.putAll(tagChanges);
+        }
+        return new Dictionary(total, words, wordFreqs, logFreqs, tags, trie, merged, mergedTags, forceSplitWords);
+    }
+
+    /**
+     * 把 overlay 合并进基础字典，重新生成 trie，返回没有 overlay 的新字典
+     */
+    Dictionary compact(TrieEngineEnum engine) {
+        return merge(Collections.emptyMap(), total, engine);
+    }
+
+    Dictionary merge(Map<String, Integer> changes, int total, TrieEngineEnum engine) {
+        return merge(changes, Collections.emptyMap(), total, engine);
+    }
+
+    /**
+     * 把 overlay 和 changes 一起合并进基础字典，重新生成 trie，返回没有 overlay 的新字典。
+     * 被删除的词语不再保留在新的基础字典中
+     * @param changes 词语和新的词频，词频为 0 表示删除
+     * @param tagChanges 词语和新的词性
+     * @param total 新的总词频
+     */
+    Dictionary merge(Map<String, Integer> changes, Map<String, String> tagChanges, int total, TrieEngineEnum engine) {
+        TreeMap<String, Integer> freqMap = new TreeMap<>();
+        Map<String, String> tagMap = new HashMap<>();
+        for (int i = 0; i < words.size(); i++) {
+            freqMap.put(words.get(i), wordFreqs[i]);
+            if (tags != null && tags[i] != null) {
+                tagMap.put(words.get(i), tags[i]);
+            }
+        }
+        tagMap.putAll(overlayTags);
+        tagMap.putAll(tagChanges);
+        TreeMap<String, Integer> merged = new TreeMap<>(overlay);
+        merged.putAll(changes);
+        merged.forEach((word, freq) -> {
+            if (freq > 0) {
+                freqMap.put(word, freq);
+            } else {
+                freqMap.remove(word);
+            }
+        });
+        // 由于trie需要传入的字典要求保证字典序，所以使用TreeMap先预缓存字典。
+        List<String> newWords = new ArrayList<>(freqMap.size());
+        int[] freqs = new int[freqMap.size()];
+        String[] newTags = tagMap.isEmpty() ? null : new String[freqMap.size()];
+        TreeMap<String, Integer> trieMap = new TreeMap<>();
+        freqMap.forEach((word, freq) -> {
+            trieMap.put(word, newWords.size());
+            freqs[newWords.size()] = freq;
+            if (newTags != null) {
+                newTags[newWords.size()] = tagMap.get(word);
+            }
+            newWords.add(word);
+        });
+        return new Dictionary(total, newWords, freqs, calcLogFreqs(freqs), newTags, engine.build(trieMap),
+                Collections.emptySortedMap(), Collections.emptySortedMap(), addDeleted(forceSplitWords, merged));
+    }
+
+    /**
+     * 两份字典是否共享同一个基础字典
+     */
+    boolean sameBase(Dictionary other) {
+        return words == other.words;
+    }
+
+    /**
+     * 估算字典占用的内存字节数：词语字符串、词频数组、trie 的数组和 overlay，
+     * 与其他字典共享的基础字典也计算在内
+     */
+    long getFootprint() {
+        long result = footprint;
+        if (result < 0) {
+            result = 4L * wordFreqs.length + 8L * logFreqs.length + (tags == null ? 0 : 4L * tags.length);
+            for (String word : words) {
+                // 引用、String 对象和字符数组
+                result += 4 + 40 + 2L * word.length();
+            }
+            result += trieBytes(trie) + trieBytes(overlayTrie);
+            result += 16L * overlayFreqs.length + 64L * overlay.size() + 64L * overlayTags.size();
+            footprint = result;
+        }
+        return result;
+    }
+
+    /**
+     * trie 的数组大小，即写入字典快照时的字节数
+     */
+    private static long trieBytes(WordTrie trie) {
+        if (trie == null) {
+            return 0;
+        }
+        DataOutputStream out = new DataOutputStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        });
+        try {
+            trie.save(out);
+        } catch (IOException e) {
+            return 0;
+        }
+        return out.size();
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    boolean hasOverlay() {
+        return overlayTrie != null;
+    }
+
+    SortedMap<String, Integer> getOverlay() {
+        return overlay;
+    }
+
+    SortedMap<String, String> getOverlayTags() {
+        return overlayTags;
+    }
+
+    Set<String> getForceSplitWords() {
+        return forceSplitWords;
+    }
+
+    /**
+     * 查询词语的词频，不在字典中或已被删除时返回 0
+     */
+    int getWordFreq(String word) {
+        return getWordFreq(word, 0);
+    }
+
+    /**
+     * 查询词语的词频，不在字典中时返回 defaultFreq，已被删除时返回 0
+     */
+    int getWordFreq(String word, int defaultFreq) {
+        Integer freq = overlay.get(word);
+        if (freq != null) {
+            return freq;
+        }
+        int idx = trie == null ? -1 : trie.exactMatch(word);
+        return idx < 0 ? defaultFreq : wordFreqs[idx];
+    }
+
+    /**
+     * 按词语 id 查询词频，id 即 {@link #hits(String, HitHandler)} 给出的 wordId
+     */
+    int getWordFreq(int wordId) {
+        return wordId < wordFreqs.length ? wordFreqs[wordId] : overlayFreqs[wordId - wordFreqs.length];
+    }
+
+    /**
+     * 按词语 id 查询词性，id 为 -1 或没有词性时返回 null
+     */
+    String getTag(int wordId) {
+        if (wordId < 0) {
+            return null;
+        }
+        if (wordId < wordFreqs.length) {
+            return tags == null ? null : tags[wordId];
+        }
+        return overlayTagArray[wordId - wordFreqs.length];
+    }
+
+    /**
+     * 查询词语的词性，不在字典中或没有词性时返回 null
+     */
+    String getTag(String word) {
+        if (overlay.containsKey(word)) {
+            return overlayTagArray[overlay.headMap(word).size()];
+        }
+        int idx = trie == null || tags == null ? -1 : trie.exactMatch(word);
+        return idx < 0 ? null : tags[idx];
+    }
+
+    /**
+     * 基础字典按词语 id 索引的 log(freq)，长度即基础字典的词数
+     */
+    double[] getLogFreqs() {
+        return logFreqs;
+    }
+
+    /**
+     * overlay 按 id - 基础字典词数 索引的 log(freq)
+     */
+    double[] getOverlayLogFreqs() {
+        return overlayLogFreqs;
+    }
+
+    double getLogTotal() {
+        return logTotal;
+    }
+
+    double getUnknownLogProb() {
+        return unknownLogProb;
+    }
+
+    /**
+     * 把所有命中依次交给 handler 处理，不生成 Hit 对象。
+     * 有 overlay 时先给出基础字典中未被覆盖的命中，再给出 overlay 中未被删除的命中，
+     * 同一起点的命中不再保证按结束位置递增
+     */
+    void hits(String sentence, HitHandler handler) {
+        if (overlayTrie == null) {
+            if (trie != null) {
+                trie.parseText(sentence, handler);
+            }
+            return;
+        }
+        if (trie != null) {
+            trie.parseText(sentence, (begin, end, wordId) -> {
+                if (!overridden.get(wordId)) {
+                    handler.hit(begin, end, wordId);
+                }
+            });
+        }
+        int baseSize = wordFreqs.length;
+        overlayTrie.parseText(sentence, (begin, end, wordId) -> {
+            if (overlayFreqs[wordId] > 0) {
+                handler.hit(begin, end, baseSize + wordId);
+            }
+        });
+    }
+
+    int getTotal() {
+        return total;
+    }
+
+    List<String> getWords() {
+        return words;
+    }
+
+    int[] getWordFreqs() {
+        return wordFreqs;
+    }
+
+    /**
+     * 基础字典按词语 id 保存的词性，没有词性时为 null
+     */
+    String[] getTags() {
+        return tags;
+    }
+}
@@ -0,0 +1,86 @@
+package com.soud.jaba;
+
+import com.soud.jaba.enumeration.TrieEngineEnum;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * 字典编译器，把 dict.txt 和用户字典合并编译成二进制快照，
+ * 启动时设置系统属性 -Djaba.dict.snapshot=快照路径 即可由 {@link Jaba#getInstance()} 直接加载。
+ * <pre>
+ * java -cp jaba.jar com.soud.jaba.DictionaryCompiler dict.snapshot dict.txt [userdict.txt ...]
+ * </pre>
+ * 快照中 trie 的实现由系统属性 {@link TrieEngineEnum#PROPERTY} 决定，加载时以快照中记录的实现为准。
+ * 合并规则和依次调用 {@link Jaba#loadUserDict(InputStream)} 一致：后出现的词频和词性覆盖先出现的，总词频累加。
+ */
+public class DictionaryCompiler {
+
+    /**
+     * 编译字典
+     * @param output 快照输出路径
+     * @param dicts 主字典和用户字典，按加载顺序排列
+     */
+    public static void compile(Path output, List<Path> dicts) throws IOException {
+        List<InputStream> inputStreams = new ArrayList<>();
+        try {
+            for (Path dict : dicts) {
+                inputStreams.add(Files.newInputStream(dict));
+            }
+            try (OutputStream outputStream = Files.newOutputStream(output)) {
+                compile(inputStreams, outputStream);
+            }
+        } finally {
+            for (InputStream inputStream : inputStreams) {
+                inputStream.close();
+            }
+        }
+    }
+
+    /**
+     * 编译字典
+     * @param dicts 主字典和用户字典，按加载顺序排列
+     * @param outputStream 快照输出流
+     */
+    public static void compile(List<InputStream> dicts, OutputStream outputStream) throws IOException {
+        compile(dicts, TrieEngineEnum.fromSystemProperty(), outputStream);
+    }
+
+    /**
+     * 编译字典
+     * @param dicts 主字典和用户字典，按加载顺序排列
+     * @param engine 快照中 trie 的实现
+     * @param outputStream 快照输出流
+     */
+    public static void compile(List<InputStream> dicts, TrieEngineEnum engine, OutputStream outputStream)
+            throws IOException {
+        TreeMap<String, Integer> freqMap = new TreeMap<>();
+        TreeMap<String, String> tagMap = new TreeMap<>();
+        int total = 0;
+        for (InputStream dict : dicts) {
+            total += Tokenizer.readDictionary(dict, freqMap, tagMap);
+        }
+        DictionarySnapshot.write(freqMap, tagMap, total, engine, outputStream);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: DictionaryCompiler <snapshot> <dict.txt> [userdict.txt ...]");
+            System.exit(1);
+        }
+        List<Path> dicts = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            dicts.add(Paths.get(args[i]));
+        }
+        long t = System.currentTimeMillis();
+        compile(Paths.get(args[0]), dicts);
+        System.out.println(String.format("compiled %s in %d ms", args[0], System.currentTimeMillis() - t));
+    }
+}
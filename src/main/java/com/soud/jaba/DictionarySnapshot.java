@@ -0,0 +1,214 @@
+package com.soud.jaba;
+
+import com.soud.jaba.enumeration.TrieEngineEnum;
+import com.soud.jaba.trie.WordTrie;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.TreeMap;
+
+import static com.soud.jaba.util.BufferUtils.readInts;
+import static com.soud.jaba.util.BufferUtils.slice;
+
+/**
+ * 预编译的二进制字典快照。
+ * 快照中保存了构建好的 trie、词频表、词性和总词频，
+ * 加载时以只读方式 mmap 整个文件，不再需要逐行解析 dict.txt 和重新构建 trie。
+ * <p>
+ * 词语列表和 double_array 引擎的 trie 直接读取 mmap 区域，同一台机器上的多个 JVM 共享这部分文件页；
+ * 词频表（以及 {@link Dictionary} 由它算出的对数概率）和词性在分词时逐字查询，会复制到每个 JVM 的堆上，
+ * aho_corasick 引擎依赖的第三方库只接受 int[]，它的 trie 数组同样会复制到堆上。
+ *
+ * 文件格式（大端序）：
+ * <pre>
+ * int      magic, version, engine, total, wordCount
+ * int[]    freqs[wordCount]
+ * int[]    wordOffsets[wordCount + 1]，词语在 wordChars 中的起止位置
+ * char[]   wordChars
+ * int      tagCount，接着每个词性：int 长度, char[] 词性
+ * short[]  tagIndexes[wordCount]，词性在上面的序号 + 1，0 为没有词性，tagCount 为 0 时省略
+ * ...      trie 的数组，格式由 engine 对应的 {@link WordTrie#save} 决定
+ * </pre>
+ * 由 {@link DictionaryCompiler} 生成。
+ */
+class DictionarySnapshot {
+    private static final int MAGIC = 0x4A414241;
+    private static final int VERSION = 3;
+
+    private final int total;
+    private final int[] freqs;
+    private final List<String> words;
+    private final String[] tags;
+    private final TrieEngineEnum engine;
+    private final WordTrie trie;
+
+    private DictionarySnapshot(TrieEngineEnum engine, int total, int[] freqs, List<String> words, String[] tags,
+                               WordTrie trie) {
+        this.engine = engine;
+        this.total = total;
+        this.freqs = freqs;
+        this.words = words;
+        this.tags = tags;
+        this.trie = trie;
+    }
+
+    int getTotal() {
+        return total;
+    }
+
+    int[] getFreqs() {
+        return freqs;
+    }
+
+    List<String> getWords() {
+        return words;
+    }
+
+    /**
+     * 按词语 id 保存的词性，字典中没有词性时为 null
+     */
+    String[] getTags() {
+        return tags;
+    }
+
+    TrieEngineEnum getEngine() {
+        return engine;
+    }
+
+    WordTrie getTrie() {
+        return trie;
+    }
+
+    /**
+     * 将按字典序排列的词典写成快照，词语的编号即其在 freqMap 中的序号
+     * @param tagMap 词语的词性，可以只包含部分词语
+     */
+    static void write(Map<String, Integer> freqMap, Map<String, String> tagMap, int total, TrieEngineEnum engine,
+                      OutputStream outputStream) throws IOException {
+        Map<String, Integer> acTrieMap = new TreeMap<>();
+        int[] freqs = new int[freqMap.size()];
+        int[] wordOffsets = new int[freqMap.size() + 1];
+        StringBuilder wordChars = new StringBuilder();
+        int id = 0;
+        for (Map.Entry<String, Integer> entry : freqMap.entrySet()) {
+            acTrieMap.put(entry.getKey(), id);
+            freqs[id] = entry.getValue();
+            wordChars.append(entry.getKey());
+            wordOffsets[++id] = wordChars.length();
+        }
+        WordTrie trie = engine.build(acTrieMap);
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(engine.ordinal());
+        out.writeInt(total);
+        out.writeInt(freqs.length);
+        for (int freq : freqs) {
+            out.writeInt(freq);
+        }
+        for (int offset : wordOffsets) {
+            out.writeInt(offset);
+        }
+        out.writeChars(wordChars.toString());
+        Map<String, Integer> tagIndexes = new TreeMap<>();
+        for (String word : freqMap.keySet()) {
+            String tag = tagMap.get(word);
+            if (tag != null && !tagIndexes.containsKey(tag)) {
+                tagIndexes.put(tag, 0);
+            }
+        }
+        out.writeInt(tagIndexes.size());
+        int tagIndex = 0;
+        for (Map.Entry<String, Integer> entry : tagIndexes.entrySet()) {
+            entry.setValue(++tagIndex);
+            out.writeInt(entry.getKey().length());
+            out.writeChars(entry.getKey());
+        }
+        if (!tagIndexes.isEmpty()) {
+            for (String word : freqMap.keySet()) {
+                String tag = tagMap.get(word);
+                out.writeShort(tag == null ? 0 : tagIndexes.get(tag));
+            }
+        }
+        trie.save(out);
+        out.flush();
+    }
+
+    /**
+     * 以只读方式 mmap 快照文件并还原字典
+     */
+    static DictionarySnapshot map(Path path) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException(path + " is not a jaba dictionary snapshot");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException(path + " has unsupported snapshot version " + version);
+        }
+        TrieEngineEnum engine = TrieEngineEnum.values()[buffer.getInt()];
+        int total = buffer.getInt();
+        int wordCount = buffer.getInt();
+        int[] freqs = readInts(buffer, wordCount);
+        IntBuffer wordOffsets = slice(buffer, (wordCount + 1) * Integer.BYTES).asIntBuffer();
+        int charCount = wordOffsets.get(wordCount);
+        CharBuffer wordChars = slice(buffer, charCount * Character.BYTES).asCharBuffer();
+        String[] tagNames = new String[buffer.getInt()];
+        for (int i = 0; i < tagNames.length; i++) {
+            char[] chars = new char[buffer.getInt()];
+            slice(buffer, chars.length * Character.BYTES).asCharBuffer().get(chars);
+            tagNames[i] = new String(chars).intern();
+        }
+        String[] tags = null;
+        if (tagNames.length > 0) {
+            tags = new String[wordCount];
+            for (int i = 0; i < wordCount; i++) {
+                int tagIndex = buffer.getShort() & 0xFFFF;
+                tags[i] = tagIndex == 0 ? null : tagNames[tagIndex - 1];
+            }
+        }
+        WordTrie trie = engine.load(buffer);
+        return new DictionarySnapshot(engine, total, freqs, new WordList(wordOffsets, wordChars), tags, trie);
+    }
+
+    /**
+     * 直接读取 mmap 区域的词语列表，只有在访问时才创建 String
+     */
+    private static class WordList extends AbstractList<String> implements RandomAccess {
+        private final IntBuffer offsets;
+        private final CharBuffer chars;
+
+        WordList(IntBuffer offsets, CharBuffer chars) {
+            this.offsets = offsets;
+            this.chars = chars;
+        }
+
+        @Override
+        public String get(int index) {
+            int st = offsets.get(index);
+            int ed = offsets.get(index + 1);
+            return chars.subSequence(st, ed).toString();
+        }
+
+        @Override
+        public int size() {
+            return offsets.limit() - 1;
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package com.soud.jaba;
+
+import com.soud.jaba.enumeration.CutModeEnum;
+import com.soud.jaba.enumeration.OutputFormatEnum;
+import com.soud.jaba.enumeration.TokenKindEnum;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 多线程批量切分按行分隔的 UTF-8 大文件，输出的行序与输入相同。
+ * <pre>
+ * java -cp jaba.jar com.soud.jaba.FileSegmenter [-m cut] [-t 线程数] [-f text|json] input.txt output.txt
+ * </pre>
+ * 读取线程把输入文件按块内存映射，每块在最后一个换行符处截断，保证不会切开一行；
+ * 工作线程把每块解码、逐行分词并编码成输出的字节；调用 {@link #segment} 的线程按块的顺序写出。
+ * 等待写出的块数不超过线程数的两倍，输出较慢时读取线程会等待，所以占用的内存与文件大小无关
+ */
+public class FileSegmenter {
+    static final int DEFAULT_CHUNK_SIZE = 4 << 20;
+
+    /**
+     * 读取线程结束的标记
+     */
+    private static final Future<byte[]> END = CompletableFuture.completedFuture(null);
+
+    /**
+     * 每个工作线程复用的分词结果和输出缓冲区
+     */
+    private static final ThreadLocal<TokenBuffer> TOKENS = ThreadLocal.withInitial(TokenBuffer::new);
+    private static final ThreadLocal<StringBuilder> OUTPUT = ThreadLocal.withInitial(StringBuilder::new);
+
+    private final Jaba jaba;
+    private final CutModeEnum cutMode;
+    private final int threads;
+    private final OutputFormatEnum format;
+    private final int chunkSize;
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder lines = new LongAdder();
+    private final LongAdder words = new LongAdder();
+
+    /**
+     * @param jaba 用于分词
+     * @param cutMode 分词模式
+     * @param threads 分词线程数
+     * @param format 输出格式
+     */
+    public FileSegmenter(Jaba jaba, CutModeEnum cutMode, int threads, OutputFormatEnum format) {
+        this(jaba, cutMode, threads, format, DEFAULT_CHUNK_SIZE);
+    }
+
+    FileSegmenter(Jaba jaba, CutModeEnum cutMode, int threads, OutputFormatEnum format, int chunkSize) {
+        this.jaba = jaba;
+        this.cutMode = cutMode;
+        this.threads = threads;
+        this.format = format;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * 切分 input 的每一行并按顺序写到 output，output 不会被关闭
+     * @param progress 定期输出进度和吞吐量，为 null 时不输出
+     */
+    public void segment(Path input, OutputStream output, PrintStream progress) throws IOException {
+        AtomicInteger threadId = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "jaba-segment-" + threadId.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        BlockingQueue<Future<byte[]>> pending = new ArrayBlockingQueue<>(threads * 2);
+        long size = Files.size(input);
+        Thread reader = new Thread(() -> read(input, workers, pending), "jaba-segment-reader");
+        reader.setDaemon(true);
+        ScheduledExecutorService reporter = null;
+        if (progress != null) {
+            reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "jaba-segment-progress");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long startNanos = System.nanoTime();
+            reporter.scheduleAtFixedRate(() -> progress.println(progress(size, startNanos)), 5, 5, TimeUnit.SECONDS);
+        }
+        reader.start();
+        try {
+            Future<byte[]> chunk;
+            while ((chunk = pending.take()) != END) {
+                output.write(chunk.get());
+            }
+            output.flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        } finally {
+            reader.interrupt();
+            workers.shutdownNow();
+            if (reporter != null) {
+                reporter.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * 按块映射文件并提交给工作线程，出错时把异常放入队列由写出的线程抛出
+     */
+    private void read(Path input, ExecutorService workers, BlockingQueue<Future<byte[]>> pending) {
+        try {
+            try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+                long size = channel.size();
+                long position = 0;
+                while (position < size) {
+                    ByteBuffer chunk = map(channel, position, size);
+                    position += chunk.limit();
+                    pending.put(workers.submit(() -> segmentChunk(chunk)));
+                }
+            } catch (IOException | RuntimeException e) {
+                CompletableFuture<byte[]> failed = new CompletableFuture<>();
+                failed.completeExceptionally(e);
+                pending.put(failed);
+            }
+            pending.put(END);
+        } catch (InterruptedException e) {
+            // 写出的线程已经结束
+        }
+    }
+
+    /**
+     * 从 position 开始映射一块，在块内最后一个换行符之后截断；一行比块还长时加倍映射的长度
+     */
+    private ByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+        long length = Math.min(chunkSize, size - position);
+        while (true) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            int end = (int) length;
+            while (end > 0 && buffer.get(end - 1) != '\n') {
+                end--;
+            }
+            if (end > 0 || position + length == size) {
+                // 转成 Buffer 调用，避免在 java 8 上找不到协变返回的方法
+                ((Buffer) buffer).limit(end > 0 ? end : (int) length);
+                return buffer;
+            }
+            if (length * 2 > Integer.MAX_VALUE) {
+                throw new IOException("line at byte " + position + " is too long");
+            }
+            length = Math.min(length * 2, size - position);
+        }
+    }
+
+    /**
+     * 逐行分词，\r\n 中的 \r 不作为行的内容
+     */
+    private byte[] segmentChunk(ByteBuffer chunk) {
+        int chunkBytes = chunk.remaining();
+        String text = StandardCharsets.UTF_8.decode(chunk).toString();
+        TokenBuffer tokens = TOKENS.get();
+        StringBuilder sb = OUTPUT.get();
+        sb.setLength(0);
+        int lineCount = 0;
+        long wordCount = 0;
+        int start = 0;
+        while (start < text.length()) {
+            int end = text.indexOf('\n', start);
+            if (end < 0) {
+                end = text.length();
+            }
+            int lineEnd = end > start && text.charAt(end - 1) == '\r' ? end - 1 : end;
+            String line = text.substring(start, lineEnd);
+            tokens.clear();
+            jaba.tokenize(line, cutMode, tokens);
+            wordCount += tokens.size();
+            if (format == OutputFormatEnum.JSON) {
+                appendJson(sb, line, tokens);
+            } else {
+                appendText(sb, line, tokens);
+            }
+            sb.append('\n');
+            lineCount++;
+            start = end + 1;
+        }
+        byte[] result = sb.toString().getBytes(StandardCharsets.UTF_8);
+        if (sb.capacity() > chunkSize * 4) {
+            // 超长的行之后不保留过大的缓冲区
+            OUTPUT.remove();
+        }
+        bytes.add(chunkBytes);
+        lines.add(lineCount);
+        words.add(wordCount);
+        return result;
+    }
+
+    private static void appendText(StringBuilder sb, String line, TokenBuffer tokens) {
+        boolean first = true;
+        for (int i = 0; i < tokens.size(); i++) {
+            if (tokens.getKind(i) == TokenKindEnum.WHITESPACE) {
+                continue;
+            }
+            if (!first) {
+                sb.append(' ');
+            }
+            sb.append(line, tokens.getStart(i), tokens.getEnd(i));
+            first = false;
+        }
+    }
+
+    private static void appendJson(StringBuilder sb, String line, TokenBuffer tokens) {
+        sb.append('[');
+        for (int i = 0; i < tokens.size(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append('"');
+            for (int k = tokens.getStart(i); k < tokens.getEnd(i); k++) {
+                char c = line.charAt(k);
+                if (c == '"' || c == '\\') {
+                    sb.append('\\').append(c);
+                } else if (c < 0x20) {
+                    sb.append(String.format("\\u%04x", (int) c));
+                } else {
+                    sb.append(c);
+                }
+            }
+            sb.append('"');
+        }
+        sb.append(']');
+    }
+
+    /**
+     * 已处理的输入字节数
+     */
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    /**
+     * 已处理的行数
+     */
+    public long getLines() {
+        return lines.sum();
+    }
+
+    /**
+     * 已切分出的词数，包括标点和空白
+     */
+    public long getWords() {
+        return words.sum();
+    }
+
+    private String progress(long size, long startNanos) {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        long processed = getBytes();
+        return String.format(Locale.ROOT, "%.1f%% %d/%d bytes, %d lines, %d words, %.1f MB/s",
+                size == 0 ? 100.0 : processed * 100.0 / size, processed, size, getLines(), getWords(),
+                processed / 1e6 / seconds);
+    }
+
+    public static void main(String[] args) throws IOException {
+        CutModeEnum cutMode = CutModeEnum.CUT;
+        int threads = Runtime.getRuntime().availableProcessors();
+        OutputFormatEnum format = OutputFormatEnum.TEXT;
+        int i = 0;
+        for (; i + 1 < args.length && args[i].startsWith("-"); i += 2) {
+            switch (args[i]) {
+                case "-m":
+                    cutMode = CutModeEnum.valueOf(args[i + 1].toUpperCase(Locale.ROOT));
+                    break;
+                case "-t":
+                    threads = Integer.parseInt(args[i + 1]);
+                    break;
+                case "-f":
+                    format = OutputFormatEnum.valueOf(args[i + 1].toUpperCase(Locale.ROOT));
+                    break;
+                default:
+                    i = args.length;
+            }
+        }
+        if (args.length - i != 2) {
+            System.err.println("usage: FileSegmenter [-m cut|cut_all|cut_without_hmm|cut_for_search] [-t threads] "
+                    + "[-f text|json] <input> <output|->");
+            System.exit(1);
+        }
+        Path input = Paths.get(args[i]);
+        FileSegmenter segmenter = new FileSegmenter(Jaba.getInstance(), cutMode, threads, format);
+        long t = System.nanoTime();
+        if ("-".equals(args[i + 1])) {
+            OutputStream output = new BufferedOutputStream(System.out, 1 << 16);
+            segmenter.segment(input, output, System.err);
+        } else {
+            try (OutputStream output = Files.newOutputStream(Paths.get(args[i + 1]))) {
+                segmenter.segment(input, output, System.err);
+            }
+        }
+        System.err.println(segmenter.progress(Files.size(input), t));
+    }
+}
@@ -1,16 +1,37 @@
 package com.soud.jaba;
 
 import com.soud.jaba.enumeration.CutModeEnum;
-import com.soud.jaba.util.RegexSplitUtils;
+import com.soud.jaba.enumeration.TokenKindEnum;
+import com.soud.jaba.metrics.Instrumentation;
+import com.soud.jaba.util.CharClassifier;
 import com.soud.jaba.util.WordBuilder;
 import com.soud.jaba.viterbi.FinalSeg;
+import com.soud.jaba.viterbi.PosSeg;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Pattern;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * jieba 的 java 版本
@@ -20,21 +41,150 @@ import java.util.regex.Pattern;
  */
 public class Jaba {
 
-    private static final Pattern RE_HAN_DEFAULT = Pattern.compile("([\u4E00-\\u9FD5a-zA-Z0-9+#&\\._%\\-]+)");
-    private static final Pattern RE_SKIP_DEFAULT = Pattern.compile("(\\r\\n|\\s)");
-    private static final Pattern RE_ENG = Pattern.compile("[a-zA-Z0-9]");
 
-    private static Tokenizer tokenizer = Tokenizer.getInstance();
     private static FinalSeg finalSeg = FinalSeg.getInstance();
 
+    private static final TokenKindEnum[] KINDS = TokenKindEnum.values();
+
+    private final Tokenizer tokenizer;
+
+    /**
+     * 短句分词结果的缓存，为 null 时不缓存
+     */
+    private volatile BlockCache blockCache;
+
+    /**
+     * 分词的统计，为 null 时不做任何计时
+     */
+    private volatile Instrumentation instrumentation;
+
+    /**
+     * 设置该系统属性为 {@link DictionaryCompiler} 生成的字典快照路径后，
+     * 首次调用 {@link #getInstance()} 时会 mmap 快照而不是解析 dict.txt，快照不存在时仍使用 dict.txt
+     */
+    public static final String DICT_SNAPSHOT_PROPERTY = Tokenizer.SNAPSHOT_PROPERTY;
+
+    /**
+     * 每个线程复用的 DAG 和词语缓冲，精确模式分词时不再为每个短句分配新的数组
+     */
+    private static final ThreadLocal<Workspace> WORKSPACE = ThreadLocal.withInitial(Workspace::new);
+
+    private static class Workspace {
+        final SentenceDAG sentenceDAG = new SentenceDAG();
+        final WordBuilder wordBuilder = new WordBuilder(sentenceDAG);
+        final SearchExpander searchExpander = new SearchExpander();
+        final TokenBuffer tokenBuffer = new TokenBuffer();
+        final PosTagger posTagger = new PosTagger(sentenceDAG, new WordBuilder(sentenceDAG));
+        final Utf8Text utf8Text = new Utf8Text();
+        /**
+         * 正在分词，handler 再次调用 Jaba 时不能复用
+         */
+        boolean busy;
+        /**
+         * 嵌套调用使用的工作区记录外层的工作区，结束时恢复
+         */
+        Workspace outer;
+    }
+
+    /**
+     * 取得当前线程的工作区并标记为使用中。handler 在分词过程中再次调用 Jaba 时，
+     * 嵌套的调用换用新的工作区，由 {@link #exit(Workspace)} 恢复，外层调用的 DAG 和缓冲区不会被覆盖
+     */
+    private static Workspace enter() {
+        Workspace workspace = WORKSPACE.get();
+        if (workspace.busy) {
+            Workspace nested = new Workspace();
+            nested.outer = workspace;
+            WORKSPACE.set(nested);
+            workspace = nested;
+        }
+        workspace.busy = true;
+        return workspace;
+    }
+
+    private static void exit(Workspace workspace) {
+        workspace.busy = false;
+        if (workspace.outer != null) {
+            WORKSPACE.set(workspace.outer);
+        }
+    }
+
     private static class JabaHolder {
-        static Jaba instance = new Jaba();
+        static Jaba instance = new Jaba(Tokenizer.getInstance());
     }
 
     public static Jaba getInstance() {
         return Jaba.JabaHolder.instance;
     }
 
+    private Jaba(Tokenizer tokenizer) {
+        this.tokenizer = tokenizer;
+    }
+
+    /**
+     * 创建一个叠加在当前字典之上的 Jaba，例如为每个租户分别维护自己的词语。
+     * 新的 Jaba 共享当前字典的数组和 trie，不复制基础字典；
+     * 在新 Jaba 上加载用户字典、增删词语只影响它自己，当前字典的修改则会同时反映到新 Jaba
+     * @return 新的 Jaba
+     */
+    public Jaba newLayer() {
+        return new Jaba(tokenizer.newLayer());
+    }
+
+    /**
+     * 设置短句分词结果的缓存，重复出现的短句直接使用缓存的结果，分词结果不变。
+     * 缓存只属于当前 Jaba，{@link #newLayer()} 创建的 Jaba 需要单独设置
+     * @param blockCache 缓存，为 null 时不再缓存
+     */
+    public void setBlockCache(BlockCache blockCache) {
+        this.blockCache = blockCache;
+    }
+
+    public BlockCache getBlockCache() {
+        return blockCache;
+    }
+
+    /**
+     * 设置分词的统计，之后每次分词都会记录各阶段的耗时和计数，见 {@link com.soud.jaba.metrics.JabaMetrics}。
+     * 只属于当前 Jaba，{@link #newLayer()} 创建的 Jaba 需要单独设置
+     * @param instrumentation 统计，为 null 时不再统计
+     */
+    public void setInstrumentation(Instrumentation instrumentation) {
+        if (instrumentation != null) {
+            instrumentation.attach(this);
+        }
+        this.instrumentation = instrumentation;
+    }
+
+    public Instrumentation getInstrumentation() {
+        return instrumentation;
+    }
+
+    /**
+     * 当前字典占用的内存字节数（估算值），包括与其他 Jaba 共享的基础字典
+     */
+    public long getDictionaryFootprint() {
+        return tokenizer.getDictionary().getFootprint();
+    }
+
+    /**
+     * 查询词语的词频，不在字典中时返回 0
+     */
+    public int getWordFreq(String word) {
+        return tokenizer.getWordFreq(word);
+    }
+
+    /**
+     * 字典中所有词的词频之和
+     */
+    public int getTotal() {
+        return tokenizer.getTotal();
+    }
+
+    Tokenizer getTokenizer() {
+        return tokenizer;
+    }
+
     /**
      * 加载用户自定义字典
      * @param inputStream 字典
@@ -43,6 +193,82 @@ public class Jaba {
         tokenizer.loadDictionary(inputStream);
     }
 
+    /**
+     * 添加词语或修改词语的词频，不重新生成整个字典的 trie，立即对之后的分词生效
+     * @param word 词语
+     * @param freq 词频，为 0 时等同于 {@link #deleteWord(String)}
+     */
+    public void addWord(String word, int freq) {
+        tokenizer.addWord(word, freq);
+    }
+
+    /**
+     * 添加词语或修改词语的词频和词性，见 {@link #addWord(String, int)}
+     * @param word 词语
+     * @param freq 词频
+     * @param tag 词性，为 null 时不修改词性
+     */
+    public void addWord(String word, int freq, String tag) {
+        tokenizer.addWord(word, freq, tag);
+    }
+
+    /**
+     * 添加词语，词频为 {@link #suggestFreq(String, boolean)} 给出的能使该词被切分出来的词频
+     * @param word 词语
+     */
+    public void addWord(String word) {
+        addWord(word, suggestFreq(word, false));
+    }
+
+    /**
+     * 删除词语，同时 HMM 也不会再把它识别为未登录词
+     * @param word 词语
+     */
+    public void deleteWord(String word) {
+        addWord(word, 0);
+    }
+
+    /**
+     * 计算能使 word 作为一个整体被切分出来的词频
+     * @param word 词语
+     * @param tune 是否把词频修改为计算出的值
+     * @return 建议的词频
+     */
+    public int suggestFreq(String word, boolean tune) {
+        Dictionary dictionary = tokenizer.getDictionary();
+        double total = dictionary.getTotal();
+        double freq = 1;
+        for (String seg : cut(word, CutModeEnum.CUT_WITHOUT_HMM)) {
+            freq *= dictionary.getWordFreq(seg, 1) / total;
+        }
+        int result = Math.max((int) (freq * dictionary.getTotal()) + 1, dictionary.getWordFreq(word, 1));
+        if (tune) {
+            addWord(word, result);
+        }
+        return result;
+    }
+
+    /**
+     * 计算能使 segments 连起来的词被切分成 segments 的词频
+     * @param segments 希望切分出的各个部分
+     * @param tune 是否把词频修改为计算出的值
+     * @return 建议的词频
+     */
+    public int suggestFreq(String[] segments, boolean tune) {
+        Dictionary dictionary = tokenizer.getDictionary();
+        double total = dictionary.getTotal();
+        double freq = 1;
+        for (String seg : segments) {
+            freq *= dictionary.getWordFreq(seg, 1) / total;
+        }
+        String word = String.join("", segments);
+        int result = Math.min((int) (freq * dictionary.getTotal()), dictionary.getWordFreq(word, 0));
+        if (tune) {
+            addWord(word, result);
+        }
+        return result;
+    }
+
     /**
      * 将段落/句子分词
      * @param paragraph 待分词段落
@@ -51,125 +277,435 @@ public class Jaba {
      */
     public List<String> cut(String paragraph, CutModeEnum cutMode) {
         List<String> result = new ArrayList<>();
+        tokenize(paragraph, cutMode, (start, end, kind) -> result.add(paragraph.substring(start, end)));
+        return result;
+    }
+
+    /**
+     * 在 {@link ForkJoinPool#commonPool()} 上并行地对多篇文档分词，见 {@link #cutBatch(Collection, CutModeEnum, ExecutorService)}
+     */
+    public List<List<String>> cutBatch(Collection<String> paragraphs, CutModeEnum cutMode) {
+        return cutBatch(paragraphs, cutMode, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 并行地对多篇文档分词。文档按顺序分成若干段交给 executor，每个线程使用自己的 DAG 和缓冲区，
+     * 字典、HMM 模型都只读共享，结果和依次调用 {@link #cut(String, CutModeEnum)} 一致并保持输入的顺序
+     * @param paragraphs 待分词的文档
+     * @param cutMode 分词模式
+     * @param executor 执行分词的线程池
+     * @return 每篇文档的分词结果
+     */
+    public List<List<String>> cutBatch(Collection<String> paragraphs, CutModeEnum cutMode, ExecutorService executor) {
+        List<String> input = new ArrayList<>(paragraphs);
+        int parallelism = executor instanceof ForkJoinPool
+                ? ((ForkJoinPool) executor).getParallelism() : Runtime.getRuntime().availableProcessors();
+        // 每个线程分到几段，文档长短不一时也能均衡
+        int batchSize = Math.max(1, input.size() / (parallelism * 4));
+        List<Future<List<List<String>>>> futures = new ArrayList<>();
+        for (int from = 0; from < input.size(); from += batchSize) {
+            List<String> batch = input.subList(from, Math.min(input.size(), from + batchSize));
+            futures.add(executor.submit(() -> {
+                List<List<String>> results = new ArrayList<>(batch.size());
+                for (String paragraph : batch) {
+                    results.add(cut(paragraph, cutMode));
+                }
+                return results;
+            }));
+        }
+        List<List<String>> result = new ArrayList<>(input.size());
+        try {
+            for (Future<List<List<String>>> future : futures) {
+                result.addAll(future.get());
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new CancellationException("cutBatch interrupted");
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new CompletionException(e.getCause());
+        }
+        return result;
+    }
+
+    /**
+     * 并行地对文档流分词，结果保持文档的顺序。
+     * 分词在执行终端操作的 ForkJoinPool 中进行（默认为 commonPool），
+     * 需要使用别的线程池时在该线程池中执行终端操作即可
+     * @param paragraphs 待分词的文档
+     * @param cutMode 分词模式
+     * @return 每篇文档的分词结果
+     */
+    public Stream<List<String>> cutBatch(Stream<String> paragraphs, CutModeEnum cutMode) {
+        return paragraphs.parallel().map(paragraph -> cut(paragraph, cutMode));
+    }
+
+    /**
+     * 将段落/句子分词，按顺序把每个词在段落中的位置和类别交给 handler，不创建词语的字符串。
+     * 传入 {@link TokenBuffer} 即可把结果保存在可复用的 int 数组中
+     * @param paragraph 待分词段落
+     * @param cutMode 分词模式
+     * @param handler 接收分词结果
+     */
+    public void tokenize(String paragraph, CutModeEnum cutMode, TokenHandler handler) {
+        Workspace workspace = enter();
+        try {
+            Instrumentation instrumentation = this.instrumentation;
+            if (instrumentation == null) {
+                tokenize(paragraph, cutMode, null, handler);
+                return;
+            }
+            CallMetrics metrics = new CallMetrics(instrumentation, handler);
+            long startTime = System.nanoTime();
+            tokenize(paragraph, cutMode, metrics, metrics);
+            metrics.finish(System.nanoTime() - startTime, paragraph.length());
+        } finally {
+            exit(workspace);
+        }
+    }
+
+    /**
+     * 对 UTF-8 字节分词，和 {@link #tokenize(String, CutModeEnum, TokenHandler)} 的结果相同，
+     * 但交给 handler 的位置是词语在 utf8 中的字节下标，不需要先解码成字符串、再把词语编码回字节。
+     * 不合法的字节按 U+FFFD 分词；补充平面的字符（如 emoji）被切开时整个字符算在前一个词中，不会输出空的词语
+     * @param utf8 UTF-8 编码的段落
+     * @param offset 段落在 utf8 中的起始下标
+     * @param length 段落的字节数
+     * @param cutMode 分词模式
+     * @param handler 接收分词结果，位置为在 utf8 中的下标
+     */
+    public void tokenize(byte[] utf8, int offset, int length, CutModeEnum cutMode, TokenHandler handler) {
+        if (offset < 0 || length < 0 || offset + length > utf8.length || offset + length < 0) {
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", size " + utf8.length);
+        }
+        Workspace workspace = enter();
+        try {
+            Utf8Text text = workspace.utf8Text;
+            text.decode(utf8, offset, offset + length, 0);
+            tokenize(text, cutMode, handler);
+        } finally {
+            exit(workspace);
+        }
+    }
+
+    /**
+     * 对 utf8 的 [position, limit) 分词，交给 handler 的位置是在 utf8 中的下标（与 get(int) 相同），
+     * 不修改 utf8 的 position，见 {@link #tokenize(byte[], int, int, CutModeEnum, TokenHandler)}
+     * @param utf8 UTF-8 编码的段落
+     * @param cutMode 分词模式
+     * @param handler 接收分词结果，位置为在 utf8 中的下标
+     */
+    public void tokenize(ByteBuffer utf8, CutModeEnum cutMode, TokenHandler handler) {
+        Workspace workspace = enter();
+        try {
+            Utf8Text text = workspace.utf8Text;
+            text.decode(utf8);
+            tokenize(text, cutMode, handler);
+        } finally {
+            exit(workspace);
+        }
+    }
+
+    private void tokenize(Utf8Text text, CutModeEnum cutMode, TokenHandler handler) {
+        text.setTarget(handler);
+        try {
+            Instrumentation instrumentation = this.instrumentation;
+            if (instrumentation == null) {
+                tokenize(text, cutMode, null, text);
+                return;
+            }
+            CallMetrics metrics = new CallMetrics(instrumentation, text);
+            long startTime = System.nanoTime();
+            tokenize(text, cutMode, metrics, metrics);
+            metrics.finish(System.nanoTime() - startTime, text.length());
+        } finally {
+            text.setTarget(null);
+        }
+    }
+
+    /**
+     * @param metrics 本次调用的统计，为 null 时不计时
+     */
+    private void tokenize(CharSequence paragraph, CutModeEnum cutMode, CallMetrics metrics, TokenHandler handler) {
         // 将段落分割成多个短句和标点符号（含换行符）
-        for (String block : RegexSplitUtils.split(RE_HAN_DEFAULT, paragraph)) {
-            if (RE_HAN_DEFAULT.matcher(block).matches()) {
+        int len = paragraph.length();
+        int start = 0;
+        // 整个段落使用同一份字典
+        Dictionary dictionary = tokenizer.getDictionary();
+        BlockCache blockCache = this.blockCache;
+        while (start < len) {
+            if (CharClassifier.isHanDefault(paragraph.charAt(start))) {
                 // 短句
-                if (cutMode.isCutAll()) {
-                    result.addAll(cutAll(block));
-                } else if (cutMode.isHMM()) {
-                    result.addAll(cutByDAGWithHMM(block));
+                int end = CharClassifier.hanDefaultEnd(paragraph, start, len);
+                String block = paragraph.subSequence(start, end).toString();
+                long blockTime = metrics == null ? 0 : System.nanoTime();
+                if (blockCache == null) {
+                    cutBlock(paragraph, block, start, cutMode, dictionary, metrics, handler);
                 } else {
-                    result.addAll(cutByDAG(block));
+                    cutBlock(paragraph, block, start, cutMode, dictionary, blockCache, metrics, handler);
                 }
-            } else {
-                // 标点符号或换行符
-                for (String x : RegexSplitUtils.split(RE_SKIP_DEFAULT, block)) {
-                    if (RE_SKIP_DEFAULT.matcher(x).find()) {
-                        result.add(x);
-                    } else if (!cutMode.isCutAll()) {
-                        result.addAll(Arrays.asList(x.split("")));
-                    } else {
-                        result.add(x);
-                    }
+                if (metrics != null) {
+                    metrics.block(System.nanoTime() - blockTime);
                 }
+                start = end;
+            } else {
+                int end = CharClassifier.otherEnd(paragraph, start, len);
+                tokenizeSkip(paragraph, start, end, cutMode, handler);
+                start = end;
+            }
+        }
+    }
+
+    private void cutBlock(CharSequence paragraph, String block, int offset, CutModeEnum cutMode, Dictionary dictionary,
+                          CallMetrics metrics, TokenHandler handler) {
+        if (cutMode.isCutAll()) {
+            cutAll(block, offset, dictionary, metrics, handler);
+        } else if (cutMode.isForSearch()) {
+            cutForSearch(paragraph, block, offset, dictionary, metrics, handler);
+        } else if (cutMode.isHMM()) {
+            cutByDAGWithHMM(paragraph, block, offset, dictionary, metrics, handler);
+        } else {
+            cutByDAG(block, offset, dictionary, metrics, handler);
+        }
+    }
+
+    /**
+     * 优先使用缓存的短句分词结果，未命中时分词并放入缓存
+     */
+    private void cutBlock(CharSequence paragraph, String block, int offset, CutModeEnum cutMode, Dictionary dictionary,
+                          BlockCache blockCache, CallMetrics metrics, TokenHandler handler) {
+        int hmmVersion = finalSeg.getVersion();
+        int[] spans = blockCache.get(dictionary, hmmVersion, cutMode, block);
+        if (spans == null) {
+            TokenBuffer buffer = WORKSPACE.get().tokenBuffer;
+            buffer.clear();
+            cutBlock(paragraph, block, offset, cutMode, dictionary, metrics, buffer);
+            spans = Arrays.copyOf(buffer.getData(), buffer.size() * 3);
+            for (int i = 0; i < spans.length; i += 3) {
+                spans[i] -= offset;
+                spans[i + 1] -= offset;
             }
+            blockCache.put(dictionary, hmmVersion, cutMode, block, spans);
+        }
+        for (int i = 0; i < spans.length; i += 3) {
+            handler.token(offset + spans[i], offset + spans[i + 1], KINDS[spans[i + 2]]);
         }
+    }
+
+    /**
+     * 分词并标注词性，和 jieba 的 posseg.cut 一致，见 {@link #tokenizeWithTag(String, CutModeEnum, TaggedTokenHandler)}
+     * @param paragraph 待分词段落
+     * @param cutMode 分词模式，只支持 CUT 和 CUT_WITHOUT_HMM
+     * @return 每个词和它的词性
+     */
+    public List<Pair<String, String>> cutWithTag(String paragraph, CutModeEnum cutMode) {
+        List<Pair<String, String>> result = new ArrayList<>();
+        tokenizeWithTag(paragraph, cutMode, (start, end, kind, tag) -> result.add(new Pair<>(paragraph.substring(start, end), tag)));
         return result;
     }
 
     /**
-     * 根据 DAG 上算出的最大概率路径将句子分词
+     * 分词并标注词性，和分词共用同一遍 DAG 和最大概率路径，切分结果和 {@link #tokenize(String, CutModeEnum, TokenHandler)} 相同：
+     * 字典中的词直接按路径上的词语 id 取得词性，HMM 切出的未登录词由 (B/M/E/S, 词性) 联合状态的 HMM 在固定的切分上标注。
+     * 联合 HMM 的模型见 {@link PosSeg}，由基础字典训练或者预先生成，叠加的字典不影响模型
+     * @param paragraph 待分词段落
+     * @param cutMode 分词模式，只支持 CUT 和 CUT_WITHOUT_HMM
+     * @param handler 接收每个词的位置、类别和词性
      */
-    private List<String> cutByDAG(String sentence) {
-        List<String> result = new ArrayList<>();
-        SentenceDAG sentenceDAG = new SentenceDAG(sentence, tokenizer);
-        Map<Integer, Pair<Integer, Double>> route = sentenceDAG.getRoute();
+    public void tokenizeWithTag(String paragraph, CutModeEnum cutMode, TaggedTokenHandler handler) {
+        if (cutMode.isCutAll() || cutMode.isForSearch()) {
+            throw new IllegalArgumentException("part-of-speech tagging does not support " + cutMode);
+        }
+        Workspace workspace = enter();
+        try {
+            workspace.posTagger.tokenize(paragraph, cutMode.isHMM(), tokenizer.getDictionary(), handler);
+        } finally {
+            exit(workspace);
+        }
+    }
+
+    /**
+     * 查询词语的词性，不在字典中或没有词性时返回 null
+     */
+    public String getTag(String word) {
+        return tokenizer.getTag(word);
+    }
+
+    /**
+     * 标点符号或换行符，非全模式下逐字输出
+     */
+    private void tokenizeSkip(CharSequence paragraph, int start, int end, CutModeEnum cutMode, TokenHandler handler) {
+        while (start < end) {
+            int skipEnd = CharClassifier.skipEnd(paragraph, start, end);
+            if (skipEnd > start) {
+                handler.token(start, skipEnd, TokenKindEnum.WHITESPACE);
+                start = skipEnd;
+            } else {
+                int punctuationEnd = CharClassifier.nonSkipEnd(paragraph, start, end);
+                punctuation(start, punctuationEnd, cutMode, handler);
+                start = punctuationEnd;
+            }
+        }
+    }
+
+    private void punctuation(int start, int end, CutModeEnum cutMode, TokenHandler handler) {
+        if (cutMode.isCutAll()) {
+            handler.token(start, end, TokenKindEnum.PUNCTUATION);
+        } else {
+            for (int i = start; i < end; i++) {
+                handler.token(i, i + 1, TokenKindEnum.PUNCTUATION);
+            }
+        }
+    }
+
+    /**
+     * 流式分词：从 reader 中边读边分词，只在短句和标点符号的分界处切开缓冲区，
+     * 所以结果和对整篇文本调用 {@link #cut(String, CutModeEnum)} 完全一致。
+     * 关闭返回的 Stream 时会同时关闭 reader
+     * @param reader 待分词文本
+     * @param cutMode 分词模式
+     * @return 分词后的结果
+     */
+    public Stream<String> cut(Reader reader, CutModeEnum cutMode) {
+        Iterator<String> iterator = new SegmentIterator(this, reader, cutMode, SegmentIterator.DEFAULT_BUFFER_SIZE);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        reader.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    /**
+     * 流式分词，见 {@link #cut(Reader, CutModeEnum)}
+     * @param channel 待分词文本
+     * @param charset 文本编码
+     * @param cutMode 分词模式
+     * @return 分词后的结果
+     */
+    public Stream<String> cut(ReadableByteChannel channel, Charset charset, CutModeEnum cutMode) {
+        return cut(Channels.newReader(channel, charset.newDecoder(), -1), cutMode);
+    }
+
+    /**
+     * 根据 DAG 上算出的最大概率路径将句子分词，offset 为句子在段落中的位置
+     */
+    private void cutByDAG(String sentence, int offset, Dictionary dictionary, CallMetrics metrics,
+                          TokenHandler handler) {
+        SentenceDAG sentenceDAG = WORKSPACE.get().sentenceDAG;
+        sentenceDAG.reset(sentence, dictionary, metrics);
+        int len = sentence.length();
         int st = 0;
         int ed;
-        StringBuilder sb = new StringBuilder();
-        while (st < sentence.length()) {
-            ed = route.get(st).getKey() + 1;
+        // 连续的单个字母或数字合并成一个词，buf 为其起始位置
+        int buf = -1;
+        while (st < len) {
+            ed = sentenceDAG.getRouteEnd(st);
             if (ed - st == 1 && Character.isLetterOrDigit(sentence.charAt(st))) {
-                sb.append(sentence.charAt(st));
+                if (buf < 0) {
+                    buf = st;
+                }
             } else {
-                if (sb.length() > 0) {
-                    result.add(sb.toString());
-                    sb.setLength(0);
+                if (buf >= 0) {
+                    handler.token(offset + buf, offset + st, TokenKindEnum.WORD);
+                    buf = -1;
                 }
-                result.add(sentence.substring(st, ed));
+                handler.token(offset + st, offset + ed, TokenKindEnum.WORD);
             }
             st = ed;
         }
-        if (sb.length() > 0) {
-            result.add(sb.toString());
+        if (buf >= 0) {
+            handler.token(offset + buf, offset + len, TokenKindEnum.WORD);
         }
-        return result;
     }
 
     /**
      * 如果词语不在字典内（freq==0），使用 HMM 判断是否可能是未登录词
      */
-    private void doIfNeedHMM(WordBuilder wb, List<String> result) {
+    private void doIfNeedHMM(WordBuilder wb, SentenceDAG sentenceDAG, CharSequence paragraph, int offset,
+                             Dictionary dictionary, CallMetrics metrics, TokenHandler handler) {
         if (!wb.isEmpty()) {
-            if (wb.length() == 1) {
-                result.add(wb.build());
-            } else {
-                String str = wb.build(true);
-                if (wb.getWordFreq() == 0) {
-                    result.addAll(finalSeg.cut(str));
+            int start = wb.getStart();
+            int end = wb.getEnd();
+            if (end - start == 1) {
+                handler.token(offset + start, offset + end, TokenKindEnum.WORD);
+            } else if (sentenceDAG.getWordFreq(start, end) == 0) {
+                if (metrics == null) {
+                    finalSeg.tokenize(paragraph, offset + start, offset + end, dictionary.getForceSplitWords(), handler);
                 } else {
-                    result.addAll(Arrays.asList(str.split("")));
+                    long hmmTime = System.nanoTime();
+                    finalSeg.tokenize(paragraph, offset + start, offset + end, dictionary.getForceSplitWords(), handler);
+                    metrics.hmm(System.nanoTime() - hmmTime);
+                }
+            } else {
+                for (int i = start; i < end; i++) {
+                    handler.token(offset + i, offset + i + 1, TokenKindEnum.WORD);
                 }
             }
+            wb.clear();
         }
     }
 
     /**
      * 根据 DAG 上算出的最大概率路径将句子分词，并使用 HMM 识别可能出现的未登录词
      */
-    private List<String> cutByDAGWithHMM(String sentence) {
-        List<String> result = new ArrayList<>();
-        SentenceDAG sentenceDAG = new SentenceDAG(sentence, tokenizer);
-        Map<Integer, Pair<Integer, Double>> route = sentenceDAG.getRoute();
+    private void cutByDAGWithHMM(CharSequence paragraph, String sentence, int offset, Dictionary dictionary,
+                                 CallMetrics metrics, TokenHandler handler) {
+        Workspace workspace = WORKSPACE.get();
+        SentenceDAG sentenceDAG = workspace.sentenceDAG;
+        sentenceDAG.reset(sentence, dictionary, metrics);
         int len = sentence.length();
         int st = 0;
         int ed;
-        String word;
-        WordBuilder wordBuilder = new WordBuilder(sentenceDAG);
+        WordBuilder wordBuilder = workspace.wordBuilder;
         while (st < len) {
-            ed = route.get(st).getKey() + 1;
-            word = sentence.substring(st, ed);
-            if (word.length() == 1) {
+            ed = sentenceDAG.getRouteEnd(st);
+            if (ed - st == 1) {
                 wordBuilder.append(ed);
             } else {
-                doIfNeedHMM(wordBuilder, result);
-                result.add(word);
+                doIfNeedHMM(wordBuilder, sentenceDAG, paragraph, offset, dictionary, metrics, handler);
+                handler.token(offset + st, offset + ed, TokenKindEnum.WORD);
             }
             st = ed;
         }
-        doIfNeedHMM(wordBuilder, result);
-        return result;
+        doIfNeedHMM(wordBuilder, sentenceDAG, paragraph, offset, dictionary, metrics, handler);
+    }
+
+    /**
+     * 搜索引擎模式，在精确模式的结果中补充长词里的二字词和三字词
+     */
+    private void cutForSearch(CharSequence paragraph, String sentence, int offset, Dictionary dictionary,
+                              CallMetrics metrics, TokenHandler handler) {
+        Workspace workspace = WORKSPACE.get();
+        cutByDAGWithHMM(paragraph, sentence, offset, dictionary, metrics,
+                workspace.searchExpander.reset(workspace.sentenceDAG, offset, handler));
     }
 
     /**
      * 全模式，把句子中所有的可以成词的词语都扫描出来, 速度非常快，但是不能解决歧义
      */
-    private List<String> cutAll(String sentence) {
-        List<String> result = new ArrayList<>();
-        Map<Integer, List<Integer>> dag = SentenceDAG.makeDAG(sentence, tokenizer);
-        int[] last = {-1};
-        dag.forEach((k, l) -> {
-            if (l.size() == 1 && k > last[0]) {
-                result.add(sentence.substring(k, k + l.get(0)));
-                last[0] = k + l.get(0) - 1;
-            } else {
-                l.forEach(j -> {
-                    result.add(sentence.substring(k, k + j));
-                    last[0] = k + j - 1;
-                });
+    private void cutAll(String sentence, int offset, Dictionary dictionary, CallMetrics metrics,
+                        TokenHandler handler) {
+        long startTime = metrics == null ? 0 : System.nanoTime();
+        SentenceDAG sentenceDAG = WORKSPACE.get().sentenceDAG;
+        sentenceDAG.resetEdges(sentence, dictionary);
+        int len = sentence.length();
+        if (metrics != null) {
+            metrics.dag(System.nanoTime() - startTime, sentenceDAG.getEdgeStart(len));
+        }
+        // 按起始位置、结束位置递增输出 DAG 的每一条边，没有任何词语的位置已补上单字的边
+        int e = 0;
+        for (int k = 0; k < len; k++) {
+            int next = sentenceDAG.getEdgeStart(k + 1);
+            for (; e < next; e++) {
+                handler.token(offset + k, offset + sentenceDAG.getEdgeEnd(e), TokenKindEnum.WORD);
             }
-        });
-        return result;
+        }
     }
 }
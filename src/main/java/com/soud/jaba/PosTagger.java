@@ -0,0 +1,171 @@
+package com.soud.jaba;
+
+import com.soud.jaba.enumeration.TokenKindEnum;
+import com.soud.jaba.util.CharClassifier;
+import com.soud.jaba.util.WordBuilder;
+import com.soud.jaba.viterbi.FinalSeg;
+import com.soud.jaba.viterbi.PosSeg;
+
+/**
+ * 词性标注，对应 jieba 的 posseg，和分词共用同一遍 DAG，切分结果和 {@link Jaba#tokenize} 完全相同：
+ * 字典中的词按最大概率路径上的词语 id 直接取得词性，没有词性的为 x；
+ * 精确模式中交给 HMM 的连续单字仍由 {@link FinalSeg} 切分，切出的每个词再由 {@link PosSeg} 的联合 HMM 标注；
+ * 标点符号和空白为 x。
+ * <p>
+ * 和 jieba 的 posseg 不同，未登录词不由联合 HMM 重新切分，所以个别未登录词的切分可能和 jieba 的 posseg 不同
+ */
+class PosTagger implements TokenHandler {
+    private static final String UNKNOWN_TAG = "x";
+    private static final String ENGLISH_TAG = "eng";
+
+    private static PosSeg posSeg = PosSeg.getInstance();
+    private static FinalSeg finalSeg = FinalSeg.getInstance();
+
+    private final SentenceDAG sentenceDAG;
+    private final WordBuilder wordBuilder;
+    /**
+     * 作为 FinalSeg 的 TokenHandler 时，标注后交给的 handler
+     */
+    private CharSequence paragraph;
+    private TaggedTokenHandler target;
+
+    PosTagger(SentenceDAG sentenceDAG, WordBuilder wordBuilder) {
+        this.sentenceDAG = sentenceDAG;
+        this.wordBuilder = wordBuilder;
+    }
+
+    void tokenize(String paragraph, boolean hmm, Dictionary dictionary, TaggedTokenHandler handler) {
+        int len = paragraph.length();
+        int start = 0;
+        while (start < len) {
+            if (CharClassifier.isHanDefault(paragraph.charAt(start))) {
+                int end = CharClassifier.hanDefaultEnd(paragraph, start, len);
+                String block = paragraph.substring(start, end);
+                if (hmm) {
+                    cutByDAGWithHMM(paragraph, block, start, dictionary, handler);
+                } else {
+                    cutByDAG(block, start, dictionary, handler);
+                }
+                start = end;
+            } else {
+                int end = CharClassifier.otherEnd(paragraph, start, len);
+                skip(paragraph, start, end, handler);
+                start = end;
+            }
+        }
+    }
+
+    private String tag(int start) {
+        String tag = sentenceDAG.getRouteTag(start);
+        return tag == null ? UNKNOWN_TAG : tag;
+    }
+
+    /**
+     * 同 Jaba 的 cutByDAG，合并的连续字母数字为 eng
+     */
+    private void cutByDAG(String sentence, int offset, Dictionary dictionary, TaggedTokenHandler handler) {
+        sentenceDAG.reset(sentence, dictionary);
+        int len = sentence.length();
+        int st = 0;
+        int ed;
+        int buf = -1;
+        while (st < len) {
+            ed = sentenceDAG.getRouteEnd(st);
+            if (ed - st == 1 && Character.isLetterOrDigit(sentence.charAt(st))) {
+                if (buf < 0) {
+                    buf = st;
+                }
+            } else {
+                if (buf >= 0) {
+                    merged(sentence, buf, st, offset, handler);
+                    buf = -1;
+                }
+                handler.token(offset + st, offset + ed, TokenKindEnum.WORD, tag(st));
+            }
+            st = ed;
+        }
+        if (buf >= 0) {
+            merged(sentence, buf, len, offset, handler);
+        }
+    }
+
+    /**
+     * 合并的连续单字：全是字母数字时为 eng，只有一个字时取字典中的词性
+     */
+    private void merged(String sentence, int start, int end, int offset, TaggedTokenHandler handler) {
+        boolean alnum = true;
+        for (int i = start; i < end && alnum; i++) {
+            alnum = CharClassifier.isAlnum(sentence.charAt(i));
+        }
+        String tag = alnum ? ENGLISH_TAG : end - start == 1 ? tag(start) : UNKNOWN_TAG;
+        handler.token(offset + start, offset + end, TokenKindEnum.WORD, tag);
+    }
+
+    /**
+     * 同 Jaba 的 cutByDAGWithHMM，不在字典中的连续单字交给 FinalSeg 切分后再标注
+     */
+    private void cutByDAGWithHMM(String paragraph, String sentence, int offset, Dictionary dictionary,
+                                 TaggedTokenHandler handler) {
+        sentenceDAG.reset(sentence, dictionary);
+        int len = sentence.length();
+        int st = 0;
+        int ed;
+        while (st < len) {
+            ed = sentenceDAG.getRouteEnd(st);
+            if (ed - st == 1) {
+                wordBuilder.append(ed);
+            } else {
+                flush(paragraph, offset, dictionary, handler);
+                handler.token(offset + st, offset + ed, TokenKindEnum.WORD, tag(st));
+            }
+            st = ed;
+        }
+        flush(paragraph, offset, dictionary, handler);
+    }
+
+    private void flush(String paragraph, int offset, Dictionary dictionary, TaggedTokenHandler handler) {
+        if (!wordBuilder.isEmpty()) {
+            int start = wordBuilder.getStart();
+            int end = wordBuilder.getEnd();
+            if (end - start == 1) {
+                handler.token(offset + start, offset + end, TokenKindEnum.WORD, tag(start));
+            } else if (sentenceDAG.getWordFreq(start, end) == 0) {
+                this.paragraph = paragraph;
+                target = handler;
+                finalSeg.tokenize(paragraph, offset + start, offset + end, dictionary.getForceSplitWords(), this);
+            } else {
+                for (int i = start; i < end; i++) {
+                    handler.token(offset + i, offset + i + 1, TokenKindEnum.WORD, tag(i));
+                }
+            }
+            wordBuilder.clear();
+        }
+    }
+
+    /**
+     * FinalSeg 切出的词
+     */
+    @Override
+    public void token(int start, int end, TokenKindEnum kind) {
+        target.token(start, end, kind, posSeg.tag(paragraph, start, end));
+    }
+
+    /**
+     * 标点符号逐字输出，空白整段输出，都为 x
+     */
+    private static void skip(String paragraph, int start, int end, TaggedTokenHandler handler) {
+        while (start < end) {
+            int skipEnd = CharClassifier.skipEnd(paragraph, start, end);
+            if (skipEnd > start) {
+                handler.token(start, skipEnd, TokenKindEnum.WHITESPACE, UNKNOWN_TAG);
+                start = skipEnd;
+            } else {
+                int punctuationEnd = CharClassifier.nonSkipEnd(paragraph, start, end);
+                for (int i = start; i < punctuationEnd; i++) {
+                    handler.token(i, i + 1, TokenKindEnum.PUNCTUATION, UNKNOWN_TAG);
+                }
+                start = punctuationEnd;
+            }
+        }
+    }
+}
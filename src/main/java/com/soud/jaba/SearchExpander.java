@@ -0,0 +1,46 @@
+package com.soud.jaba;
+
+import com.soud.jaba.enumeration.TokenKindEnum;
+
+/**
+ * 搜索引擎模式：精确模式的每个词输出之前，先输出其中在字典里的二字词和三字词。
+ * 是否在字典中直接查短句已经生成的 DAG 的边，不再查询 trie。
+ * 每个线程复用一个，处理每个短句前调用 {@link #reset(SentenceDAG, int, TokenHandler)}
+ */
+class SearchExpander implements TokenHandler {
+    private SentenceDAG sentenceDAG;
+    private int offset;
+    private TokenHandler handler;
+
+    /**
+     * @param sentenceDAG 当前短句的 DAG
+     * @param offset 短句在段落中的位置
+     * @param handler 接收分词结果
+     */
+    SearchExpander reset(SentenceDAG sentenceDAG, int offset, TokenHandler handler) {
+        this.sentenceDAG = sentenceDAG;
+        this.offset = offset;
+        this.handler = handler;
+        return this;
+    }
+
+    @Override
+    public void token(int start, int end, TokenKindEnum kind) {
+        int len = end - start;
+        if (len > 2) {
+            grams(start, end, 2);
+        }
+        if (len > 3) {
+            grams(start, end, 3);
+        }
+        handler.token(start, end, kind);
+    }
+
+    private void grams(int start, int end, int n) {
+        for (int i = start; i + n <= end; i++) {
+            if (sentenceDAG.getWordFreq(i - offset, i - offset + n) > 0) {
+                handler.token(i, i + n, TokenKindEnum.WORD);
+            }
+        }
+    }
+}
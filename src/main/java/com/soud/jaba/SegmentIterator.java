@@ -0,0 +1,125 @@
+package com.soud.jaba;
+
+import com.soud.jaba.enumeration.CutModeEnum;
+import com.soud.jaba.util.CharClassifier;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * 从 Reader 中流式读取文本并逐个给出分词结果。
+ * 每次只在缓冲区中找一个切开后不影响分词结果的位置（短句和标点符号的分界处），
+ * 把之前的部分交给 {@link Jaba#cut(String, CutModeEnum)}，所以结果和对整篇文本调用 cut 完全一致。
+ * 缓冲区只有在单个短句比它还长时才会扩大。
+ */
+class SegmentIterator implements Iterator<String> {
+    static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private final Jaba jaba;
+    private final Reader reader;
+    private final CutModeEnum cutMode;
+    private char[] buf;
+    private int limit;
+    private boolean eof;
+    private List<String> tokens = Collections.emptyList();
+    private int tokenIndex;
+
+    SegmentIterator(Jaba jaba, Reader reader, CutModeEnum cutMode, int bufferSize) {
+        this.jaba = jaba;
+        this.reader = reader;
+        this.cutMode = cutMode;
+        this.buf = new char[bufferSize];
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (tokenIndex >= tokens.size()) {
+            if (eof && limit == 0) {
+                return false;
+            }
+            try {
+                fill();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return tokens.get(tokenIndex++);
+    }
+
+    /**
+     * 读入文本直到找到安全的切分位置或读完，然后对切分位置之前的文本分词
+     */
+    private void fill() throws IOException {
+        int cutPos = -1;
+        while (!eof) {
+            if (limit == buf.length) {
+                cutPos = findCutPos();
+                if (cutPos > 0) {
+                    break;
+                }
+                buf = Arrays.copyOf(buf, buf.length * 2);
+            }
+            int n = reader.read(buf, limit, buf.length - limit);
+            if (n < 0) {
+                eof = true;
+            } else {
+                limit += n;
+            }
+        }
+        if (eof) {
+            cutPos = limit;
+        }
+        tokens = jaba.cut(new String(buf, 0, cutPos), cutMode);
+        tokenIndex = 0;
+        System.arraycopy(buf, cutPos, buf, 0, limit - cutPos);
+        limit -= cutPos;
+    }
+
+    /**
+     * 从后往前找一个切开后前后两部分分词结果不变的位置，找不到返回 -1
+     */
+    private int findCutPos() {
+        for (int p = limit - 1; p > 0; p--) {
+            if (isSafeCut(buf[p - 1], buf[p])) {
+                return p;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 在 a 和 b 之间切开是否安全：
+     * 1. 短句和标点符号的分界处总是安全的；
+     * 2. 标点符号中不能切开 \r\n 和代理对；
+     * 3. 全模式下标点符号按空白字符切分后整段输出，所以只有挨着空白字符的地方才安全，
+     *    其他模式下标点符号逐字输出，任意位置都安全。
+     */
+    private boolean isSafeCut(char a, char b) {
+        boolean hanA = CharClassifier.isHanDefault(a);
+        boolean hanB = CharClassifier.isHanDefault(b);
+        if (hanA != hanB) {
+            return true;
+        }
+        if (hanA) {
+            return false;
+        }
+        if ((a == '\r' && b == '\n') || (Character.isHighSurrogate(a) && Character.isLowSurrogate(b))) {
+            return false;
+        }
+        return !cutMode.isCutAll() || CharClassifier.isSkip(a) || CharClassifier.isSkip(b);
+    }
+}
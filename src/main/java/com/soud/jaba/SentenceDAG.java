@@ -1,59 +1,247 @@
 package com.soud.jaba;
 
+import com.soud.jaba.trie.HitHandler;
+
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
+/**
+ * 句子的有向无环图和最大概率路径。
+ * DAG 以 CSR 形式保存在 int 数组中：位置 k 出发的边为 edgeEnds[edgeStart[k] .. edgeStart[k + 1])，
+ * 路径保存在 routeEnd/routeProb 数组中。所有数组在 {@link #reset(String, Dictionary)} 时复用，
+ * 同一个线程反复分词时除了输出的词语外不再产生额外的对象。
+ */
 public class SentenceDAG {
     private String sentence;
-    private Tokenizer tokenizer;
+    /**
+     * 生成当前 DAG 时使用的字典
+     */
+    private Dictionary dictionary;
 
-    private Map<Integer, List<Integer>> dag;
-    private Map<Integer, Pair<Integer, Double>> route;
+    /**
+     * 位置 k 出发的边在 edgeEnds 中的起始下标，长度为 len + 1
+     */
+    private int[] edgeStart = new int[64];
+    /**
+     * 每条边的结束位置（不含）
+     */
+    private int[] edgeEnds = new int[64];
+    /**
+     * 每条边对应的词语 id，单字补全的边为 -1
+     */
+    private int[] edgeWords = new int[64];
+    private int[] cursor = new int[64];
 
-    private Map<Pair<Integer, Integer>, Integer> subStringFreq = new HashMap<>();
+    private int[] hitBegins = new int[64];
+    private int[] hitEnds = new int[64];
+    private int[] hitWords = new int[64];
+    private int hitCount;
+    private final HitHandler hitCollector = this::addHit;
+
+    /**
+     * 从位置 k 出发的最大概率路径上第一个词的结束位置（不含）及其对数概率
+     */
+    private int[] routeEnd = new int[64];
+    private double[] routeProb = new double[64];
+    /**
+     * 路径上从位置 k 开始的词的词语 id，单字补全的边为 -1，用于直接取得词性
+     */
+    private int[] routeWord = new int[64];
 
     public SentenceDAG(String sentence, Tokenizer tokenizer) {
-        this.sentence = sentence;
-        this.tokenizer = tokenizer;
-        this.dag = makeDAG(sentence, tokenizer);
+        reset(sentence, tokenizer.getDictionary());
+    }
+
+    /**
+     * 不绑定字典，每个线程复用一个，可以用于不同的 {@link Jaba} 实例
+     */
+    SentenceDAG() {
+    }
+
+    /**
+     * 对新的句子重新生成 DAG 并计算最大概率路径，复用已有的数组
+     * @param dictionary 生成 DAG 使用的字典，整个句子只使用这一份
+     */
+    void reset(String sentence, Dictionary dictionary) {
+        reset(sentence, dictionary, null);
     }
 
     /**
-     * 采用动态规划查找最大概率路径, 找出基于词频的最大切分组合
+     * 同 {@link #reset(String, Dictionary)}，metrics 不为 null 时记录生成 DAG 和计算路径的耗时
      */
-    private Map<Integer, Pair<Integer, Double>> calcMaxProbPath(String sentence, Map<Integer, List<Integer>> dag) {
+    void reset(String sentence, Dictionary dictionary, CallMetrics metrics) {
+        long startTime = metrics == null ? 0 : System.nanoTime();
+        resetEdges(sentence, dictionary);
         int len = sentence.length();
-        Map<Integer, Pair<Integer, Double>> route = new HashMap<>();
-        route.put(len, Pair.of(0, 0d));
-        double logTotal = Math.log(tokenizer.getTotal());
+        if (routeEnd.length < len + 1) {
+            int capacity = edgeStart.length;
+            routeEnd = new int[capacity];
+            routeProb = new double[capacity];
+            routeWord = new int[capacity];
+        }
+        if (metrics == null) {
+            calcMaxProbPath(len);
+        } else {
+            long dagTime = System.nanoTime();
+            calcMaxProbPath(len);
+            metrics.dag(dagTime - startTime, edgeStart[len]);
+            metrics.route(System.nanoTime() - dagTime);
+        }
+    }
+
+    /**
+     * 只生成 DAG 的边，不计算最大概率路径，全模式直接按起始位置顺序输出所有的边。
+     * 之后只能使用 {@link #getEdgeStart(int)} 和 {@link #getEdgeEnd(int)}
+     */
+    void resetEdges(String sentence, Dictionary dictionary) {
+        this.sentence = sentence;
+        int len = sentence.length();
+        if (edgeStart.length < len + 1) {
+            int capacity = Math.max(len + 1, edgeStart.length * 2);
+            edgeStart = new int[capacity];
+            cursor = new int[capacity];
+        }
+        hitCount = 0;
+        this.dictionary = dictionary;
+        dictionary.hits(sentence, hitCollector);
+        buildEdges(len);
+        if (dictionary.hasOverlay()) {
+            sortEdges(len);
+        }
+    }
+
+    private void addHit(int begin, int end, int wordId) {
+        if (hitCount == hitBegins.length) {
+            hitBegins = Arrays.copyOf(hitBegins, hitCount * 2);
+            hitEnds = Arrays.copyOf(hitEnds, hitCount * 2);
+            hitWords = Arrays.copyOf(hitWords, hitCount * 2);
+        }
+        hitBegins[hitCount] = begin;
+        hitEnds[hitCount] = end;
+        hitWords[hitCount] = wordId;
+        hitCount++;
+    }
+
+    /**
+     * 按起始位置对 trie 的命中做计数排序，生成 CSR 形式的 DAG。
+     * 同一起点的命中总是按结束位置递增给出，排序是稳定的，所以同一起点的边也按结束位置递增。
+     * 没有任何命中的位置补一条单字的边。
+     */
+    private void buildEdges(int len) {
+        Arrays.fill(edgeStart, 0, len + 1, 0);
+        for (int i = 0; i < hitCount; i++) {
+            edgeStart[hitBegins[i] + 1]++;
+        }
+        for (int k = 0; k < len; k++) {
+            if (edgeStart[k + 1] == 0) {
+                edgeStart[k + 1] = 1;
+            }
+            edgeStart[k + 1] += edgeStart[k];
+        }
+        int edgeCount = edgeStart[len];
+        if (edgeEnds.length < edgeCount) {
+            int capacity = Math.max(edgeCount, edgeEnds.length * 2);
+            edgeEnds = new int[capacity];
+            edgeWords = new int[capacity];
+        }
+        System.arraycopy(edgeStart, 0, cursor, 0, len);
+        for (int i = 0; i < hitCount; i++) {
+            int e = cursor[hitBegins[i]]++;
+            edgeEnds[e] = hitEnds[i];
+            edgeWords[e] = hitWords[i];
+        }
+        for (int k = 0; k < len; k++) {
+            if (cursor[k] == edgeStart[k]) {
+                edgeEnds[cursor[k]] = k + 1;
+                edgeWords[cursor[k]] = -1;
+            }
+        }
+    }
+
+    /**
+     * 有 overlay 时同一起点的命中来自两个 trie，按结束位置插入排序，保证与只有一个 trie 时的边顺序一致
+     */
+    private void sortEdges(int len) {
+        for (int k = 0; k < len; k++) {
+            for (int e = edgeStart[k] + 1; e < edgeStart[k + 1]; e++) {
+                int end = edgeEnds[e];
+                int word = edgeWords[e];
+                int i = e - 1;
+                while (i >= edgeStart[k] && edgeEnds[i] > end) {
+                    edgeEnds[i + 1] = edgeEnds[i];
+                    edgeWords[i + 1] = edgeWords[i];
+                    i--;
+                }
+                edgeEnds[i + 1] = end;
+                edgeWords[i + 1] = word;
+            }
+        }
+    }
+
+    private int edgeFreq(int e) {
+        return edgeWords[e] < 0 ? 0 : dictionary.getWordFreq(edgeWords[e]);
+    }
+
+    /**
+     * 采用动态规划查找最大概率路径, 找出基于词频的最大切分组合。
+     * 每条边的对数概率直接按词语 id 取预先算好的 log(freq) 再减去 log(total)，不再截取子串查询字典
+     */
+    private void calcMaxProbPath(int len) {
+        routeProb[len] = 0d;
+        double[] logFreqs = dictionary.getLogFreqs();
+        double[] overlayLogFreqs = dictionary.getOverlayLogFreqs();
+        int baseSize = logFreqs.length;
+        double logTotal = dictionary.getLogTotal();
+        double unknownLogProb = dictionary.getUnknownLogProb();
         for (int k = len - 1; k >= 0; k--) {
             int offset = 0;
+            int routeWordId = -1;
             double maxProb = -Double.MAX_VALUE;
-            for (Integer x : dag.get(k)) {
-                int end = k + x;
-                int freq = tokenizer.getWordFreq(sentence.substring(k, end));
-                subStringFreq.put(Pair.of(k, end), freq);
-                double prob = Math.log(freq > 0 ? freq : 1) - logTotal + route.get(end).getValue();
+            for (int e = edgeStart[k]; e < edgeStart[k + 1]; e++) {
+                int end = edgeEnds[e];
+                int wordId = edgeWords[e];
+                double logProb;
+                if (wordId < 0) {
+                    logProb = unknownLogProb;
+                } else if (wordId < baseSize) {
+                    logProb = logFreqs[wordId] - logTotal;
+                } else {
+                    logProb = overlayLogFreqs[wordId - baseSize] - logTotal;
+                }
+                double prob = logProb + routeProb[end];
                 if (maxProb < prob) {
                     maxProb = prob;
                     offset = end - 1;
+                    routeWordId = wordId;
                 }
             }
-            route.put(k, Pair.of(offset, maxProb));
+            routeEnd[k] = offset + 1;
+            routeProb[k] = maxProb;
+            routeWord[k] = routeWordId;
         }
-        return route;
     }
 
     /**
-     * 基于trie查询前缀，生成句子中汉字所有可能成词情况所构成的有向无环图
+     * 在已生成的 DAG 上重新计算最大概率路径，用于单独测量这一步的耗时
      */
-    static HashMap<Integer, List<Integer>> makeDAG(String sentence, Tokenizer tokenizer) {
+    void calcMaxProbPath() {
+        calcMaxProbPath(sentence.length());
+    }
+
+    /**
+     * 基于trie查询前缀，生成句子中汉字所有可能成词情况所构成的有向无环图。
+     * 全模式改用 {@link #resetEdges(String, Dictionary)} 之前的实现，保留用于基准测试对比
+     */
+    static HashMap<Integer, List<Integer>> makeDAG(String sentence, Dictionary dictionary) {
         int len = sentence.length();
         HashMap<Integer, List<Integer>> dag = new HashMap<>();
-        tokenizer.hits(sentence)
-            .forEach(hit -> dag.computeIfAbsent(hit.begin, k -> new ArrayList<>()).add(hit.end - hit.begin));
+        dictionary.hits(sentence, (begin, end, wordId) -> dag.computeIfAbsent(begin, k -> new ArrayList<>()).add(end - begin));
+        if (dictionary.hasOverlay()) {
+            dag.values().forEach(Collections::sort);
+        }
         for (int k = 0; k < len; k++) {
             if (!dag.containsKey(k)) {
                 List<Integer> lis = new ArrayList<>();
@@ -68,14 +256,50 @@ public class SentenceDAG {
         return sentence;
     }
 
+    /**
+     * 查询 DAG 中 [start, end) 这条边的词频，不是 DAG 中的边则返回 0
+     */
     public int getWordFreq(int start, int end) {
-        return subStringFreq.getOrDefault(Pair.of(start, end), 0);
+        for (int e = edgeStart[start]; e < edgeStart[start + 1]; e++) {
+            if (edgeEnds[e] == end) {
+                return edgeFreq(e);
+            }
+        }
+        return 0;
     }
 
-    public Map<Integer, Pair<Integer, Double>> getRoute() {
-        if (this.route == null) {
-            this.route = calcMaxProbPath(sentence, this.dag);
-        }
-        return route;
+    /**
+     * 位置 k 出发的边为 [getEdgeStart(k), getEdgeStart(k + 1))，k 可以等于句子长度，此时为边的总数
+     */
+    int getEdgeStart(int k) {
+        return edgeStart[k];
+    }
+
+    /**
+     * 第 e 条边的结束位置（不含），同一起点的边按结束位置递增
+     */
+    int getEdgeEnd(int e) {
+        return edgeEnds[e];
+    }
+
+    /**
+     * 最大概率路径上从 start 开始的词的结束位置（不含）
+     */
+    public int getRouteEnd(int start) {
+        return routeEnd[start];
+    }
+
+    /**
+     * 最大概率路径上从 start 开始的词的词语 id，不在字典中时为 -1
+     */
+    int getRouteWord(int start) {
+        return routeWord[start];
+    }
+
+    /**
+     * 最大概率路径上从 start 开始的词的词性，不在字典中或没有词性时为 null
+     */
+    String getRouteTag(int start) {
+        return dictionary.getTag(routeWord[start]);
     }
 }
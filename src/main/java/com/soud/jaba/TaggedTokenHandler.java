@@ -0,0 +1,17 @@
+package com.soud.jaba;
+
+import com.soud.jaba.enumeration.TokenKindEnum;
+
+/**
+ * 接收词性标注结果的回调，按在原文中出现的顺序给出每个词的位置和词性，不创建词语的字符串
+ */
+@FunctionalInterface
+public interface TaggedTokenHandler {
+    /**
+     * @param start 词在原文中的起始位置
+     * @param end 词在原文中的结束位置（不含）
+     * @param kind 词的类别
+     * @param tag 词性，同一种词性总是同一个字符串
+     */
+    void token(int start, int end, TokenKindEnum kind, String tag);
+}
@@ -0,0 +1,76 @@
+package com.soud.jaba;
+
+import com.soud.jaba.enumeration.TokenKindEnum;
+
+import java.util.Arrays;
+
+/**
+ * 把分词结果以 (start, end, kind) 三元组顺序保存在可复用的 int 数组中，
+ * kind 为 {@link TokenKindEnum#ordinal()}。调用 {@link #clear()} 后可用于下一次分词而不重新分配数组
+ */
+public class TokenBuffer implements TokenHandler {
+    private static final TokenKindEnum[] KINDS = TokenKindEnum.values();
+
+    private int[] data;
+    private int size;
+
+    public TokenBuffer() {
+        this(64);
+    }
+
+    /**
+     * @param capacity 初始能保存的词数
+     */
+    public TokenBuffer(int capacity) {
+        data = new int[Math.max(capacity, 1) * 3];
+    }
+
+    @Override
+    public void token(int start, int end, TokenKindEnum kind) {
+        int i = size * 3;
+        if (i == data.length) {
+            data = Arrays.copyOf(data, data.length * 2);
+        }
+        data[i] = start;
+        data[i + 1] = end;
+        data[i + 2] = kind.ordinal();
+        size++;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * 词的个数
+     */
+    public int size() {
+        return size;
+    }
+
+    public int getStart(int index) {
+        return data[index * 3];
+    }
+
+    public int getEnd(int index) {
+        return data[index * 3 + 1];
+    }
+
+    public TokenKindEnum getKind(int index) {
+        return KINDS[data[index * 3 + 2]];
+    }
+
+    /**
+     * 从原文中截取第 index 个词
+     */
+    public String getToken(String text, int index) {
+        return text.substring(getStart(index), getEnd(index));
+    }
+
+    /**
+     * 底层数组，前 size() * 3 个元素有效
+     */
+    public int[] getData() {
+        return data;
+    }
+}
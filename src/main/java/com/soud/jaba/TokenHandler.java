@@ -0,0 +1,17 @@
+package com.soud.jaba;
+
+import com.soud.jaba.enumeration.TokenKindEnum;
+
+/**
+ * 接收分词结果的回调，按在原文中出现的顺序给出每个词的位置，不创建词语的字符串。
+ * 回调中可以再次调用 {@link Jaba} 分词，嵌套的调用使用单独的工作区，不影响外层的结果
+ */
+@FunctionalInterface
+public interface TokenHandler {
+    /**
+     * @param start 词在原文中的起始位置
+     * @param end 词在原文中的结束位置（不含）
+     * @param kind 词的类别
+     */
+    void token(int start, int end, TokenKindEnum kind);
+}
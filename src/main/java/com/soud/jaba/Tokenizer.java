@@ -1,16 +1,25 @@
 package com.soud.jaba;
 
-import com.hankcs.algorithm.AhoCorasickDoubleArrayTrie;
+import com.soud.jaba.enumeration.TrieEngineEnum;
+import com.soud.jaba.viterbi.PosSeg;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
 import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * 加载字典，并提供：
@@ -18,20 +27,78 @@ import java.util.TreeMap;
  * 2. 根据trie查询得到某字符串在字典的所有前缀匹配
  * python 版本的 jieba 是把每个词的所有前缀都放入到一个 dict 中去的，
  * 在 java 下可以使用 AhoCorasickDoubleArrayTrie 来完成同样的功能，
+ * 也可以通过系统属性 {@link TrieEngineEnum#PROPERTY} 换成项目内的 double-array trie，
+ * 如果设置了系统属性 {@link #SNAPSHOT_PROPERTY}，则优先从预编译的字典快照加载，
+ * 快照不存在或加载失败时再退回解析 dict.txt。
+ * 字典保存在不可变的 {@link Dictionary} 中，修改时整体替换，分词时不需要加锁。
+ * {@link #newLayer()} 创建的 Tokenizer 把自己的词语叠加在上层字典之上，和上层共享基础字典。
  *
  * @author Soud
  */
 class Tokenizer {
 
     private static final String DICT_PATH = "/dict.txt";
-    private int total = 0;
-    private List<String> words = new ArrayList<>();
-    private List<Integer> wordFreqs = new ArrayList<>();
-    private AhoCorasickDoubleArrayTrie<Integer> acTrie;
+    /**
+     * 字典快照文件路径的系统属性，快照由 {@link DictionaryCompiler} 生成
+     */
+    static final String SNAPSHOT_PROPERTY = "jaba.dict.snapshot";
+    private TrieEngineEnum engine = TrieEngineEnum.fromSystemProperty();
+    /**
+     * 当前使用的字典，加载新字典时整体替换
+     */
+    private volatile Dictionary dictionary = Dictionary.EMPTY;
+    /**
+     * 上层字典，为 null 时是进程内共享的基础字典
+     */
+    private final Tokenizer parent;
+    /**
+     * 叠加在上层字典之上的词语，只在 parent 不为 null 时使用
+     */
+    private final AtomicReference<Layer> layer = new AtomicReference<>();
+    /**
+     * overlay 中的词语达到该数量时直接合并成新的基础字典
+     */
+    private static final int COMPACT_THRESHOLD = 1024;
+    /**
+     * 增删词语后多久在后台合并 overlay
+     */
+    private static final long COMPACT_DELAY_SECONDS = 60;
+    private ScheduledExecutorService compactor;
+    private boolean compactionScheduled;
+
+    /**
+     * 叠加在上层字典之上的词语和由此生成的字典，创建后不再修改
+     */
+    private static class Layer {
+        final SortedMap<String, Integer> words;
+        final SortedMap<String, String> tags;
+        final int freqSum;
+        /**
+         * 生成 dictionary 时上层的字典，上层字典被替换后需要重新生成
+         */
+        final Dictionary parentDictionary;
+        final Dictionary dictionary;
+
+        Layer(SortedMap<String, Integer> words, SortedMap<String, String> tags, int freqSum, Dictionary parentDictionary) {
+            this.words = words;
+            this.tags = tags;
+            this.freqSum = freqSum;
+            this.parentDictionary = parentDictionary;
+            this.dictionary = parentDictionary.withOverlay(words, tags, parentDictionary.getTotal() + freqSum);
+        }
+    }
 
     private Tokenizer() {
-        InputStream inputStream = getClass().getResourceAsStream(DICT_PATH);
-        this.loadDictionary(inputStream);
+        parent = null;
+        String snapshotPath = System.getProperty(SNAPSHOT_PROPERTY);
+        if (snapshotPath == null || !loadSnapshot(Paths.get(snapshotPath))) {
+            InputStream inputStream = getClass().getResourceAsStream(DICT_PATH);
+            this.loadDictionary(inputStream);
+        }
+        if (PosSeg.getInstance().getModel() == null) {
+            // 从快照加载，或者字典很小，词语还在 overlay 中
+            updatePosModel();
+        }
     }
 
     private static class TokenizerHolder {
@@ -42,30 +109,77 @@ class Tokenizer {
         return TokenizerHolder.instance;
     }
 
+    private Tokenizer(Tokenizer parent) {
+        this.parent = parent;
+        this.engine = parent.engine;
+        layer.set(new Layer(Collections.emptySortedMap(), Collections.emptySortedMap(), 0, parent.getDictionary()));
+    }
+
     /**
-     * 加载字典
+     * 创建叠加在当前字典之上的新字典，共享当前字典的数组和 trie，
+     * 在新字典上增删的词语只存在于新字典中，当前字典的修改也会反映到新字典
      */
-    void loadDictionary(InputStream inputStream) {
-        TreeMap<String, Integer> freqMap = new TreeMap<>();
-        TreeMap<String, Integer> acTrieMap = new TreeMap<>();
+    Tokenizer newLayer() {
+        return new Tokenizer(this);
+    }
+
+    /**
+     * 从字典快照加载，快照不存在或格式不对时返回 false
+     */
+    private boolean loadSnapshot(Path path) {
+        if (!Files.isReadable(path)) {
+            return false;
+        }
         try {
-            BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
-            while (bufferedReader.ready()) {
-                String line = bufferedReader.readLine();
-                String[] tokens = line.split(" ");
-                String word = tokens[0];
-                Integer freq = Integer.valueOf(tokens[1]);
-                freqMap.put(word, freq);
-                total += freq;
+            DictionarySnapshot snapshot = DictionarySnapshot.map(path);
+            engine = snapshot.getEngine();
+            dictionary = new Dictionary(snapshot.getTotal(), snapshot.getWords(), snapshot.getFreqs(), snapshot.getTags(),
+                    snapshot.getTrie());
+            return true;
+        } catch (IOException e) {
+            System.err.println(String.format(Locale.getDefault(), "%s load failed!", path));
+            return false;
+        }
+    }
+
+    /**
+     * 逐行读取文本字典，词频放入 freqMap（同一个词后出现的覆盖先出现的），返回读取到的词频总和
+     */
+    static int readDictionary(InputStream inputStream, Map<String, Integer> freqMap) throws IOException {
+        return readDictionary(inputStream, freqMap, null);
+    }
+
+    /**
+     * 同 {@link #readDictionary(InputStream, Map)}，每行第三列的词性放入 tagMap，tagMap 为 null 时忽略词性
+     */
+    static int readDictionary(InputStream inputStream, Map<String, Integer> freqMap, Map<String, String> tagMap)
+            throws IOException {
+        int sum = 0;
+        BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        while (bufferedReader.ready()) {
+            String line = bufferedReader.readLine();
+            String[] tokens = line.split(" ");
+            String word = tokens[0];
+            Integer freq = Integer.valueOf(tokens[1]);
+            freqMap.put(word, freq);
+            if (tagMap != null && tokens.length > 2) {
+                // 词性种类很少，共享同一个字符串
+                tagMap.put(word, tokens[2].intern());
             }
-            // 由于trie需要传入的字典要求保证字典序，所以使用TreeMap先预缓存字典。
-            freqMap.forEach((w, f) -> {
-                acTrieMap.put(w, words.size());
-                words.add(w);
-                wordFreqs.add(f);
-            });
-            acTrie = new AhoCorasickDoubleArrayTrie<>();
-            acTrie.build(acTrieMap);
+            sum += freq;
+        }
+        return sum;
+    }
+
+    /**
+     * 加载字典，每个词语的处理和 {@link #addWord(String, int)} 相同
+     */
+    synchronized void loadDictionary(InputStream inputStream) {
+        TreeMap<String, Integer> freqMap = new TreeMap<>();
+        TreeMap<String, String> tagMap = new TreeMap<>();
+        try {
+            int sum = readDictionary(inputStream, freqMap, tagMap);
+            update(freqMap, tagMap, sum);
         } catch (IOException e) {
             System.err.println(String.format(Locale.getDefault(), "%s load failed!", DICT_PATH));
         } finally {
@@ -79,19 +193,146 @@ class Tokenizer {
         }
     }
 
+    /**
+     * 添加词语或修改词语的词频，词频为 0 即删除词语。
+     * 和 jieba 一样，总词频直接加上 freq
+     */
+    synchronized void addWord(String word, int freq) {
+        addWord(word, freq, null);
+    }
+
+    /**
+     * 同 {@link #addWord(String, int)}，tag 不为 null 时同时修改词性
+     */
+    synchronized void addWord(String word, int freq, String tag) {
+        update(Collections.singletonMap(word, freq),
+                tag == null ? Collections.emptyMap() : Collections.singletonMap(word, tag.intern()), freq);
+    }
+
+    /**
+     * 生成新的字典整体替换当前字典，替换期间其他线程仍使用旧的字典分词。
+     * 少量修改放入 overlay 并安排后台合并，修改较多时直接合并成新的基础字典
+     */
+    private void update(Map<String, Integer> changes, Map<String, String> tagChanges, int freqSum) {
+        if (parent != null) {
+            // 叠加的词语始终保存在 overlay 中，不合并进共享的基础字典
+            Layer current = layer.get();
+            TreeMap<String, Integer> words = new TreeMap<>(current.words);
+            words.putAll(changes);
+            TreeMap<String, String> tags = new TreeMap<>(current.tags);
+            tags.putAll(tagChanges);
+            layer.set(new Layer(words, tags, current.freqSum + freqSum, parent.getDictionary()));
+            return;
+        }
+        Dictionary current = dictionary;
+        int total = current.getTotal() + freqSum;
+        if (current.getOverlay().size() + changes.size() >= COMPACT_THRESHOLD) {
+            dictionary = current.merge(changes, tagChanges, total, engine);
+            updatePosModel();
+        } else {
+            dictionary = current.withOverlay(changes, tagChanges, total);
+            scheduleCompaction();
+        }
+    }
+
+    /**
+     * 基础字典变化后，用其中带词性的词重新训练词性标注模型，叠加的字典不影响模型
+     */
+    private void updatePosModel() {
+        Dictionary base = dictionary;
+        PosSeg.getInstance().updateModel(base.getWords(), base.getWordFreqs(), base.getTags());
+    }
+
+    private synchronized void scheduleCompaction() {
+        if (compactionScheduled) {
+            return;
+        }
+        if (compactor == null) {
+            compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "jaba-dictionary-compactor");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        compactionScheduled = true;
+        compactor.schedule(() -> {
+            synchronized (this) {
+                compactionScheduled = false;
+            }
+            compact();
+        }, COMPACT_DELAY_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 把 overlay 合并进新的基础字典。重新生成 trie 时不持有锁，期间仍可以增删词语，
+     * 这些修改在替换时保留在新字典的 overlay 中
+     */
+    void compact() {
+        Dictionary start = dictionary;
+        if (parent != null || !start.hasOverlay()) {
+            return;
+        }
+        Dictionary compacted = start.compact(engine);
+        synchronized (this) {
+            Dictionary current = dictionary;
+            if (!current.sameBase(start)) {
+                // 期间已经合并过
+                return;
+            }
+            Map<String, Integer> startOverlay = start.getOverlay();
+            Map<String, String> startTags = start.getOverlayTags();
+            TreeMap<String, Integer> pending = new TreeMap<>();
+            TreeMap<String, String> pendingTags = new TreeMap<>();
+            current.getOverlay().forEach((word, freq) -> {
+                String tag = current.getOverlayTags().get(word);
+                if (tag != null && !tag.equals(startTags.get(word))) {
+                    pendingTags.put(word, tag);
+                    pending.put(word, freq);
+                } else if (!freq.equals(startOverlay.get(word))) {
+                    pending.put(word, freq);
+                }
+            });
+            dictionary = compacted.withOverlay(pending, pendingTags, current.getTotal());
+            updatePosModel();
+            if (!pending.isEmpty()) {
+                scheduleCompaction();
+            }
+        }
+    }
+
+    /**
+     * 当前使用的字典，分词时每个句子只取一次
+     */
+    Dictionary getDictionary() {
+        if (parent == null) {
+            return dictionary;
+        }
+        Dictionary parentDictionary = parent.getDictionary();
+        Layer current = layer.get();
+        if (current.parentDictionary != parentDictionary) {
+            // 上层字典已被替换，在新的上层字典上重新叠加；期间本层被修改时放弃替换，这一次仍使用重新叠加的结果
+            Layer rebased = new Layer(current.words, current.tags, current.freqSum, parentDictionary);
+            layer.compareAndSet(current, rebased);
+            return rebased.dictionary;
+        }
+        return current.dictionary;
+    }
+
     /**
      * 查询词语的词频
      */
     int getWordFreq(String word) {
-        int idx = acTrie.exactMatchSearch(word);
-        return idx < 0 ? 0: wordFreqs.get(idx);
+        return getDictionary().getWordFreq(word);
     }
 
-    List<AhoCorasickDoubleArrayTrie.Hit<Integer>> hits(String word) {
-        return acTrie.parseText(word);
+    /**
+     * 查询词语的词性，没有词性时返回 null
+     */
+    String getTag(String word) {
+        return getDictionary().getTag(word);
     }
 
     int getTotal() {
-        return total;
+        return getDictionary().getTotal();
     }
 }
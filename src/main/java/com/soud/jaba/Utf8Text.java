@@ -0,0 +1,159 @@
+package com.soud.jaba;
+
+import com.soud.jaba.enumeration.TokenKindEnum;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 把 UTF-8 字节解码到复用的 char 数组，同时记录每个 char 在原字节中的位置。
+ * 分词时作为整段文本的 CharSequence，不创建整段的字符串；作为 TokenHandler 时把词语的 char 位置换算成字节位置交给 target。
+ * <p>
+ * 不合法的字节逐个解码为 U+FFFD。补充平面的字符（如 emoji）解码为两个 char，如果分词时被切开，
+ * 高位代理所在的词包含这个字符的全部 4 个字节，低位代理所在的词为空，不交给 target，所以字节位置上的词都不为空
+ */
+final class Utf8Text implements CharSequence, TokenHandler {
+    private char[] chars = new char[256];
+    /**
+     * offsets[i] 为第 i 个 char 的起始字节位置，offsets[length] 为结尾
+     */
+    private int[] offsets = new int[257];
+    private int length;
+    /**
+     * 直接缓冲区先复制到这里再解码
+     */
+    private byte[] scratch = new byte[0];
+    private TokenHandler target;
+
+    /**
+     * 解码 buffer 的 [position, limit)，字节位置为在 buffer 中的下标，不修改 buffer 的 position
+     */
+    void decode(ByteBuffer buffer) {
+        int position = buffer.position();
+        int remaining = buffer.remaining();
+        if (buffer.hasArray()) {
+            int from = buffer.arrayOffset() + position;
+            decode(buffer.array(), from, from + remaining, buffer.arrayOffset());
+        } else {
+            if (scratch.length < remaining) {
+                scratch = new byte[Math.max(remaining, scratch.length * 2)];
+            }
+            ByteBuffer duplicate = buffer.duplicate();
+            duplicate.get(scratch, 0, remaining);
+            decode(scratch, 0, remaining, -position);
+        }
+    }
+
+    /**
+     * 解码 bytes 的 [from, to)，字节位置为 下标 - base
+     */
+    void decode(byte[] bytes, int from, int to, int base) {
+        // 解码后的 char 数不超过字节数
+        if (chars.length < to - from) {
+            int capacity = Math.max(to - from, chars.length * 2);
+            chars = new char[capacity];
+            offsets = new int[capacity + 1];
+        }
+        char[] chars = this.chars;
+        int[] offsets = this.offsets;
+        int n = 0;
+        int i = from;
+        while (i < to) {
+            int b = bytes[i];
+            if (b >= 0) {
+                chars[n] = (char) b;
+                offsets[n++] = i++ - base;
+                continue;
+            }
+            int lead = b & 0xFF;
+            int codePoint = -1;
+            int size = 1;
+            if (lead >= 0xC2 && lead <= 0xDF) {
+                if (i + 1 < to && isContinuation(bytes[i + 1])) {
+                    codePoint = (lead & 0x1F) << 6 | (bytes[i + 1] & 0x3F);
+                    size = 2;
+                }
+            } else if (lead >= 0xE0 && lead <= 0xEF) {
+                if (i + 2 < to && isContinuation(bytes[i + 1]) && isContinuation(bytes[i + 2])) {
+                    codePoint = (lead & 0x0F) << 12 | (bytes[i + 1] & 0x3F) << 6 | (bytes[i + 2] & 0x3F);
+                    size = 3;
+                    if (codePoint < 0x800 || Character.isSurrogate((char) codePoint)) {
+                        codePoint = -1;
+                    }
+                }
+            } else if (lead >= 0xF0 && lead <= 0xF4) {
+                if (i + 3 < to && isContinuation(bytes[i + 1]) && isContinuation(bytes[i + 2])
+                        && isContinuation(bytes[i + 3])) {
+                    codePoint = (lead & 0x07) << 18 | (bytes[i + 1] & 0x3F) << 12 | (bytes[i + 2] & 0x3F) << 6
+                            | (bytes[i + 3] & 0x3F);
+                    size = 4;
+                    if (codePoint < 0x10000 || codePoint > Character.MAX_CODE_POINT) {
+                        codePoint = -1;
+                    }
+                }
+            }
+            if (codePoint < 0) {
+                chars[n] = '\uFFFD';
+                offsets[n++] = i++ - base;
+            } else if (size < 4) {
+                chars[n] = (char) codePoint;
+                offsets[n++] = i - base;
+                i += size;
+            } else {
+                chars[n] = Character.highSurrogate(codePoint);
+                offsets[n++] = i - base;
+                chars[n] = Character.lowSurrogate(codePoint);
+                offsets[n++] = i + 4 - base;
+                i += 4;
+            }
+        }
+        offsets[n] = to - base;
+        length = n;
+    }
+
+    private static boolean isContinuation(byte b) {
+        return (b & 0xC0) == 0x80;
+    }
+
+    /**
+     * 第 index 个 char 的字节位置，index 可以等于 length()
+     */
+    int byteOffset(int index) {
+        return offsets[index];
+    }
+
+    void setTarget(TokenHandler target) {
+        this.target = target;
+    }
+
+    /**
+     * 把 char 位置换算成字节位置交给 target，只包含被切开的低位代理的空词被丢弃
+     */
+    @Override
+    public void token(int start, int end, TokenKindEnum kind) {
+        int byteStart = offsets[start];
+        int byteEnd = offsets[end];
+        if (byteStart < byteEnd) {
+            target.token(byteStart, byteEnd, kind);
+        }
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return chars[index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new String(chars, start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        return new String(chars, 0, length);
+    }
+}
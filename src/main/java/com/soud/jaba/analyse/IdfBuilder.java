@@ -0,0 +1,275 @@
+package com.soud.jaba.analyse;
+
+import com.soud.jaba.Jaba;
+import com.soud.jaba.TokenBuffer;
+import com.soud.jaba.enumeration.CutModeEnum;
+import com.soud.jaba.enumeration.TokenKindEnum;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * 从本地语料生成 idf 表。
+ * 文档用 {@link Jaba} 并行分词，每篇文档中出现的词只计一次，文档频率保存在有上限的 {@link TermCounter} 中，
+ * 无论语料多大占用的内存都有上限，被淘汰的只会是非常少见的词。
+ * <p>
+ * idf = log(文档总数 / 文档频率)，只统计去掉首尾空白后长度大于 1 的词，与 {@link TFIDFAnalyzer} 提取关键词时一致。
+ * 可以写成与 idf.txt 相同的文本格式，或更紧凑的二进制格式：
+ * <pre>
+ * int    magic, version, 词数
+ * 每个词：writeUTF 写入的词语, float idf
+ * </pre>
+ */
+public class IdfBuilder {
+  private static final int MAGIC = 0x4A494446;
+  private static final int VERSION = 1;
+  public static final int DEFAULT_MAX_TERMS = 1 << 22;
+
+  /**
+   * 每个线程复用的分词结果和文档内去重
+   */
+  private static final ThreadLocal<TokenBuffer> TOKENS = ThreadLocal.withInitial(TokenBuffer::new);
+  private static final ThreadLocal<WordCounter> DOCUMENT_TERMS = ThreadLocal.withInitial(WordCounter::new);
+
+  private final Jaba jaba;
+  private final CutModeEnum cutMode;
+  private final TermCounter terms;
+  private final LongAdder documents = new LongAdder();
+
+  public IdfBuilder() {
+    this(Jaba.getInstance(), CutModeEnum.CUT, DEFAULT_MAX_TERMS);
+  }
+
+  /**
+   * @param jaba 用于分词
+   * @param cutMode 分词模式
+   * @param maxTerms 最多保留的词数
+   */
+  public IdfBuilder(Jaba jaba, CutModeEnum cutMode, int maxTerms) {
+    this.jaba = jaba;
+    this.cutMode = cutMode;
+    this.terms = new TermCounter(maxTerms);
+  }
+
+  /**
+   * 统计一篇文档，可以被多个线程同时调用
+   */
+  public void addDocument(String document) {
+    TokenBuffer tokens = TOKENS.get();
+    tokens.clear();
+    jaba.tokenize(document, cutMode, tokens);
+    WordCounter documentTerms = DOCUMENT_TERMS.get();
+    documentTerms.clear();
+    for (int i = 0; i < tokens.size(); i++) {
+      TokenKindEnum kind = tokens.getKind(i);
+      if ((kind == TokenKindEnum.WORD || kind == TokenKindEnum.HMM) && isTerm(document, tokens.getStart(i), tokens.getEnd(i))) {
+        documentTerms.add(tokens.getToken(document, i));
+      }
+    }
+    for (int id = 0; id < documentTerms.size(); id++) {
+      terms.increment(documentTerms.getWord(id), 1);
+    }
+    documents.increment();
+  }
+
+  /**
+   * 去掉首尾空白后长度大于 1
+   */
+  private static boolean isTerm(String text, int start, int end) {
+    while (start < end && text.charAt(start) <= ' ') {
+      start++;
+    }
+    while (start < end && text.charAt(end - 1) <= ' ') {
+      end--;
+    }
+    return end - start > 1;
+  }
+
+  /**
+   * 在执行终端操作的 ForkJoinPool 中并行统计文档流
+   */
+  public void addDocuments(Stream<String> documents) {
+    documents.parallel().forEach(this::addDocument);
+  }
+
+  /**
+   * 统计一个文件，每行为一篇文档
+   */
+  public void addLines(Path file, Charset charset) throws IOException {
+    try (Stream<String> lines = Files.lines(file, charset)) {
+      addDocuments(lines.filter(line -> !line.isEmpty()));
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * 统计目录下（含子目录）的所有文件，每个文件为一篇文档
+   */
+  public void addDirectory(Path directory, Charset charset) throws IOException {
+    try (Stream<Path> files = Files.walk(directory)) {
+      addDocuments(files.filter(Files::isRegularFile).map(file -> {
+        try {
+          return new String(Files.readAllBytes(file), charset);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }));
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * 已统计的文档数
+   */
+  public long getDocumentCount() {
+    return documents.sum();
+  }
+
+  /**
+   * 词语的文档频率，未出现或已被淘汰时为 0
+   */
+  public int getDocumentFrequency(String term) {
+    return terms.get(term);
+  }
+
+  /**
+   * 当前保留的词数
+   */
+  public int getTermCount() {
+    return terms.size();
+  }
+
+  /**
+   * 按词语排序的 idf 表
+   * @param minDocumentFrequency 文档频率低于该值的词不输出
+   */
+  private Entries entries(int minDocumentFrequency) {
+    List<String> termList = new ArrayList<>();
+    List<Integer> freqs = new ArrayList<>();
+    terms.forEach(minDocumentFrequency, termList, freqs);
+    Integer[] order = new Integer[termList.size()];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, (a, b) -> termList.get(a).compareTo(termList.get(b)));
+    double n = getDocumentCount();
+    Entries entries = new Entries(order.length);
+    for (int i = 0; i < order.length; i++) {
+      entries.terms[i] = termList.get(order[i]);
+      entries.idfs[i] = Math.log(n / freqs.get(order[i]));
+    }
+    return entries;
+  }
+
+  private static class Entries {
+    final String[] terms;
+    final double[] idfs;
+
+    Entries(int size) {
+      terms = new String[size];
+      idfs = new double[size];
+    }
+  }
+
+  /**
+   * 写成与 idf.txt 相同的文本格式，每行 "词语 idf"，可以用 {@link TFIDFAnalyzer#loadIdfMap(InputStream)} 加载
+   */
+  public void writeText(OutputStream outputStream, int minDocumentFrequency) throws IOException {
+    Entries entries = entries(minDocumentFrequency);
+    Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+    for (int i = 0; i < entries.terms.length; i++) {
+      writer.write(entries.terms[i]);
+      writer.write(' ');
+      writer.write(Double.toString(entries.idfs[i]));
+      writer.write('\n');
+    }
+    writer.flush();
+  }
+
+  /**
+   * 写成二进制格式，idf 以 float 保存，可以用 {@link TFIDFAnalyzer#loadBinaryIdfMap(InputStream)} 加载
+   */
+  public void writeBinary(OutputStream outputStream, int minDocumentFrequency) throws IOException {
+    Entries entries = entries(minDocumentFrequency);
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream));
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+    out.writeInt(entries.terms.length);
+    for (int i = 0; i < entries.terms.length; i++) {
+      out.writeUTF(entries.terms[i]);
+      out.writeFloat((float) entries.idfs[i]);
+    }
+    out.flush();
+  }
+
+  /**
+   * 读取 {@link #writeBinary(OutputStream, int)} 写出的 idf 表
+   */
+  static HashMap<String, Double> readBinary(InputStream inputStream) throws IOException {
+    DataInputStream in = new DataInputStream(new BufferedInputStream(inputStream));
+    if (in.readInt() != MAGIC) {
+      throw new IOException("not a jaba idf table");
+    }
+    int version = in.readInt();
+    if (version != VERSION) {
+      throw new IOException("unsupported idf table version " + version);
+    }
+    int size = in.readInt();
+    HashMap<String, Double> idfMap = new HashMap<>(size * 4 / 3 + 1);
+    for (int i = 0; i < size; i++) {
+      String term = in.readUTF();
+      idfMap.put(term, (double) in.readFloat());
+    }
+    return idfMap;
+  }
+
+  /**
+   * 生成 idf 表，输出文件以 .bin 结尾时写成二进制格式。
+   * 输入为目录时每个文件是一篇文档，为文件时每行是一篇文档
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      System.err.println("usage: IdfBuilder <idf.txt|idf.bin> <corpus dir|corpus file> ...");
+      System.exit(1);
+    }
+    IdfBuilder builder = new IdfBuilder();
+    for (int i = 1; i < args.length; i++) {
+      Path path = Paths.get(args[i]);
+      if (Files.isDirectory(path)) {
+        builder.addDirectory(path, StandardCharsets.UTF_8);
+      } else {
+        builder.addLines(path, StandardCharsets.UTF_8);
+      }
+    }
+    try (OutputStream outputStream = Files.newOutputStream(Paths.get(args[0]))) {
+      if (args[0].endsWith(".bin")) {
+        builder.writeBinary(outputStream, 1);
+      } else {
+        builder.writeText(outputStream, 1);
+      }
+    }
+    System.out.println(builder.getDocumentCount() + " documents, " + builder.getTermCount() + " terms");
+  }
+}
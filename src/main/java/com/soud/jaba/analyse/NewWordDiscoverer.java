@@ -0,0 +1,395 @@
+package com.soud.jaba.analyse;
+
+import com.soud.jaba.Jaba;
+import com.soud.jaba.util.CharClassifier;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * 从本地语料发现字典中没有的新词，结果可以直接写成用户字典，用 {@link Jaba#loadUserDict} 加载。
+ * <p>
+ * 统计每段连续汉字中长度不超过 maxLength + 1 的所有片段，片段可以带上汉字前后的一个字符（标点等）作为邻字。
+ * 计数保存在有上限的 {@link TermCounter} 中，语料很大时淘汰最少见的片段，占用的内存有上限。
+ * <p>
+ * 长度 2 到 maxLength 的汉字片段是候选词，并行计算：
+ * <ul>
+ * <li>内部凝固度：在所有切开的位置中 log(p(词) / (p(左半) * p(右半))) 的最小值，p 为出现次数 / 语料汉字数</li>
+ * <li>左右邻字熵：比候选词多一个字的片段按字典序排序时，同一个词的右邻字连续排列，按逆序字符串排序时左邻字连续排列</li>
+ * </ul>
+ * 次数、凝固度和左右邻字熵都达到阈值，并且不在字典中的候选词作为新词，
+ * 词频按它在语料中的比例换算到字典的总词频，且不低于 {@link Jaba#suggestFreq(String, boolean)}，保证加载后能被切分出来
+ *
+ * @author Soud
+ */
+public class NewWordDiscoverer {
+  public static final int DEFAULT_MAX_LENGTH = 4;
+  public static final int DEFAULT_MAX_TERMS = 1 << 23;
+
+  /**
+   * 每个线程复用的单行计数
+   */
+  private static final ThreadLocal<WordCounter> LINE_TERMS = ThreadLocal.withInitial(WordCounter::new);
+
+  private final Jaba jaba;
+  private final int maxLength;
+  private final TermCounter terms;
+  private final LongAdder hanChars = new LongAdder();
+
+  public NewWordDiscoverer() {
+    this(Jaba.getInstance(), DEFAULT_MAX_LENGTH, DEFAULT_MAX_TERMS);
+  }
+
+  /**
+   * @param jaba 用于排除已有的词和估算词频
+   * @param maxLength 新词的最大长度
+   * @param maxTerms 最多保留的片段数
+   */
+  public NewWordDiscoverer(Jaba jaba, int maxLength, int maxTerms) {
+    if (maxLength < 2) {
+      throw new IllegalArgumentException("maxLength must be at least 2: " + maxLength);
+    }
+    this.jaba = jaba;
+    this.maxLength = maxLength;
+    this.terms = new TermCounter(maxTerms);
+  }
+
+  /**
+   * 统计一段文本，可以被多个线程同时调用
+   */
+  public void addText(String text) {
+    WordCounter lineTerms = LINE_TERMS.get();
+    lineTerms.clear();
+    int len = text.length();
+    int start = 0;
+    long chars = 0;
+    while (start < len) {
+      if (!CharClassifier.isHan(text.charAt(start))) {
+        start++;
+        continue;
+      }
+      int end = CharClassifier.hanEnd(text, start, len);
+      chars += end - start;
+      // 带上前后各一个邻字
+      int from = start > 0 ? start - 1 : start;
+      int to = end < len ? end + 1 : end;
+      for (int i = from; i < to; i++) {
+        for (int j = i + 1; j <= to && j - i <= maxLength + 1; j++) {
+          // 带邻字的片段只用于计算长度至少为 2 的词的邻字熵，且不同时带上两边的邻字
+          boolean context = i < start || j > end;
+          if (i == end || (context && (j - i < 3 || (i < start && j > end)))) {
+            continue;
+          }
+          lineTerms.add(text.substring(i, j));
+        }
+      }
+      start = end;
+    }
+    for (int id = 0; id < lineTerms.size(); id++) {
+      terms.increment(lineTerms.getWord(id), lineTerms.getCount(id));
+    }
+    hanChars.add(chars);
+  }
+
+  /**
+   * 在执行终端操作的 ForkJoinPool 中并行统计文本流
+   */
+  public void addTexts(Stream<String> texts) {
+    texts.parallel().forEach(this::addText);
+  }
+
+  /**
+   * 统计一个文件的每一行
+   */
+  public void addLines(Path file, Charset charset) throws IOException {
+    try (Stream<String> lines = Files.lines(file, charset)) {
+      addTexts(lines.filter(line -> !line.isEmpty()));
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * 统计目录下（含子目录）所有文件的每一行
+   */
+  public void addDirectory(Path directory, Charset charset) throws IOException {
+    List<Path> files;
+    try (Stream<Path> paths = Files.walk(directory)) {
+      files = paths.filter(Files::isRegularFile).collect(Collectors.toList());
+    }
+    for (Path file : files) {
+      addLines(file, charset);
+    }
+  }
+
+  /**
+   * 已统计的汉字数
+   */
+  public long getCharCount() {
+    return hanChars.sum();
+  }
+
+  /**
+   * 当前保留的片段数
+   */
+  public int getTermCount() {
+    return terms.size();
+  }
+
+  /**
+   * 按次数从高到低排列的新词
+   * @param minCount 最少出现次数
+   * @param minCohesion 最小内部凝固度
+   * @param minEntropy 左右邻字熵的最小值
+   */
+  public List<NewWord> discover(int minCount, double minCohesion, double minEntropy) {
+    List<String> termList = new ArrayList<>();
+    List<Integer> countList = new ArrayList<>();
+    terms.forEach(1, termList, countList);
+    int size = termList.size();
+    String[] keys = new String[size];
+    int[] counts = new int[size];
+    Integer[] order = new Integer[size];
+    for (int i = 0; i < size; i++) {
+      order[i] = i;
+    }
+    Arrays.parallelSort(order, Comparator.comparing(termList::get));
+    for (int i = 0; i < size; i++) {
+      keys[i] = termList.get(order[i]);
+      counts[i] = countList.get(order[i]);
+    }
+    termList.clear();
+    countList.clear();
+
+    // 按逆序字符串排序后，同一个词加上不同左邻字的片段连续排列
+    Integer[] reversed = new Integer[size];
+    for (int i = 0; i < size; i++) {
+      reversed[i] = i;
+    }
+    Arrays.parallelSort(reversed, (x, y) -> compareReversed(keys[x], keys[y]));
+
+    double[] leftEntropy = new double[size];
+    double[] rightEntropy = new double[size];
+    CompletableFuture<Void> left = CompletableFuture.runAsync(
+        () -> entropy(keys, counts, reversed, true, leftEntropy));
+    entropy(keys, counts, null, false, rightEntropy);
+    left.join();
+
+    double total = Math.max(1, getCharCount());
+    double scale = jaba.getTotal() / total;
+    return IntStream.range(0, size).parallel()
+        .filter(i -> isCandidate(keys[i], counts[i], minCount)
+            && leftEntropy[i] >= minEntropy && rightEntropy[i] >= minEntropy)
+        .mapToObj(i -> {
+          String word = keys[i];
+          double cohesion = cohesion(keys, counts, i, total);
+          if (cohesion < minCohesion || jaba.getWordFreq(word) > 0) {
+            return null;
+          }
+          int freq = (int) Math.max(Math.min(Math.round(counts[i] * scale), Integer.MAX_VALUE),
+              jaba.suggestFreq(word, false));
+          return new NewWord(word, counts[i], cohesion, leftEntropy[i], rightEntropy[i], freq);
+        })
+        .filter(newWord -> newWord != null)
+        .sorted(Comparator.comparingInt(NewWord::getCount).reversed().thenComparing(NewWord::getWord))
+        .collect(Collectors.toList());
+  }
+
+  private boolean isCandidate(String key, int count, int minCount) {
+    if (count < minCount || key.length() < 2 || key.length() > maxLength) {
+      return false;
+    }
+    for (int i = 0; i < key.length(); i++) {
+      if (!CharClassifier.isHan(key.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * 从后往前比较两个字符串
+   */
+  private static int compareReversed(String a, String b) {
+    int i = a.length() - 1;
+    int j = b.length() - 1;
+    for (; i >= 0 && j >= 0; i--, j--) {
+      int diff = a.charAt(i) - b.charAt(j);
+      if (diff != 0) {
+        return diff;
+      }
+    }
+    return a.length() - b.length();
+  }
+
+  /**
+   * 按 order 的顺序遍历所有片段（为 null 时按字典序），长度为 n + 1 的片段去掉第一个字（left）或最后一个字后
+   * 就是它作为邻字所属的长度为 n 的词。同一长度的片段中，属于同一个词的片段在这个顺序中是连续的，
+   * 所以每个长度只需要记住当前的词和累加的 sum(c)、sum(c * log(c))，熵 = log(sum) - sum(c * log(c)) / sum
+   */
+  private void entropy(String[] keys, int[] counts, Integer[] order, boolean left, double[] entropies) {
+    String[] words = new String[maxLength + 2];
+    double[] sums = new double[maxLength + 2];
+    double[] sumLogs = new double[maxLength + 2];
+    for (int r = 0; r < keys.length; r++) {
+      int i = order == null ? r : order[r];
+      String key = keys[i];
+      int len = key.length();
+      if (len < 3) {
+        continue;
+      }
+      String word = words[len];
+      if (word == null || !key.regionMatches(left ? 1 : 0, word, 0, len - 1)) {
+        flush(keys, word, sums[len], sumLogs[len], entropies);
+        words[len] = left ? key.substring(1) : key.substring(0, len - 1);
+        sums[len] = 0;
+        sumLogs[len] = 0;
+      }
+      sums[len] += counts[i];
+      sumLogs[len] += counts[i] * Math.log(counts[i]);
+    }
+    for (int len = 3; len < words.length; len++) {
+      flush(keys, words[len], sums[len], sumLogs[len], entropies);
+    }
+  }
+
+  private static void flush(String[] keys, String word, double sum, double sumLog, double[] entropies) {
+    if (word != null) {
+      int i = Arrays.binarySearch(keys, word);
+      if (i >= 0) {
+        entropies[i] = Math.log(sum) - sumLog / sum;
+      }
+    }
+  }
+
+  /**
+   * 内部凝固度，被淘汰的部分按与整个词相同的次数计算
+   */
+  private static double cohesion(String[] keys, int[] counts, int i, double total) {
+    String word = keys[i];
+    double min = Double.MAX_VALUE;
+    for (int k = 1; k < word.length(); k++) {
+      double left = count(keys, counts, word.substring(0, k), counts[i]);
+      double right = count(keys, counts, word.substring(k), counts[i]);
+      min = Math.min(min, Math.log(counts[i] * total / (left * right)));
+    }
+    return min;
+  }
+
+  private static int count(String[] keys, int[] counts, String key, int defaultCount) {
+    int i = Arrays.binarySearch(keys, key);
+    return i < 0 ? defaultCount : Math.max(counts[i], defaultCount);
+  }
+
+  /**
+   * 写成用户字典，每行 "词语 词频"
+   */
+  public static void writeUserDict(List<NewWord> newWords, OutputStream outputStream) throws IOException {
+    Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+    for (NewWord newWord : newWords) {
+      writer.write(newWord.getWord());
+      writer.write(' ');
+      writer.write(Integer.toString(newWord.getFreq()));
+      writer.write('\n');
+    }
+    writer.flush();
+  }
+
+  /**
+   * 发现的新词及其统计量
+   */
+  public static class NewWord {
+    private final String word;
+    private final int count;
+    private final double cohesion;
+    private final double leftEntropy;
+    private final double rightEntropy;
+    private final int freq;
+
+    NewWord(String word, int count, double cohesion, double leftEntropy, double rightEntropy, int freq) {
+      this.word = word;
+      this.count = count;
+      this.cohesion = cohesion;
+      this.leftEntropy = leftEntropy;
+      this.rightEntropy = rightEntropy;
+      this.freq = freq;
+    }
+
+    public String getWord() {
+      return word;
+    }
+
+    /**
+     * 在语料中出现的次数
+     */
+    public int getCount() {
+      return count;
+    }
+
+    public double getCohesion() {
+      return cohesion;
+    }
+
+    public double getLeftEntropy() {
+      return leftEntropy;
+    }
+
+    public double getRightEntropy() {
+      return rightEntropy;
+    }
+
+    /**
+     * 写入用户字典的词频
+     */
+    public int getFreq() {
+      return freq;
+    }
+
+    @Override
+    public String toString() {
+      return word + " " + count + " " + cohesion + " " + leftEntropy + " " + rightEntropy + " " + freq;
+    }
+  }
+
+  /**
+   * 发现新词并写成用户字典。参数为输出文件和语料，语料为目录时统计其中所有文件
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      System.err.println("usage: NewWordDiscoverer <userdict.txt> <corpus dir|corpus file> ...");
+      System.exit(1);
+    }
+    NewWordDiscoverer discoverer = new NewWordDiscoverer();
+    for (int i = 1; i < args.length; i++) {
+      Path path = Paths.get(args[i]);
+      if (Files.isDirectory(path)) {
+        discoverer.addDirectory(path, StandardCharsets.UTF_8);
+      } else {
+        discoverer.addLines(path, StandardCharsets.UTF_8);
+      }
+    }
+    List<NewWord> newWords = discoverer.discover(5, 3.0, 1.0);
+    try (OutputStream outputStream = Files.newOutputStream(Paths.get(args[0]))) {
+      writeUserDict(newWords, outputStream);
+    }
+    System.out.println(discoverer.getCharCount() + " chars, " + newWords.size() + " new words");
+  }
+}
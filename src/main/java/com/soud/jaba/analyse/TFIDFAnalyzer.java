@@ -9,20 +9,22 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.function.Function;
-
-import static java.util.stream.Collectors.counting;
-import static java.util.stream.Collectors.groupingBy;
 
 /**
  * tf-idf提取关键词
+ * 停用词和 idf 表在加载完成后才整体替换，可以被多个线程并发使用
  *
  * @author Soud
  */
 public class TFIDFAnalyzer {
-  private HashMap<String, Double> idfMap;
-  private HashSet<String> stopWords;
-  private double medianIdf;
+  private volatile HashMap<String, Double> idfMap = new HashMap<>();
+  private volatile HashSet<String> stopWords = new HashSet<>();
+  private volatile double medianIdf;
+
+  /**
+   * 每个线程复用的词频统计
+   */
+  private static final ThreadLocal<WordCounter> COUNTER = ThreadLocal.withInitial(WordCounter::new);
 
   private static class TFIDFAnalyzerHolder {
     static TFIDFAnalyzer instance = new TFIDFAnalyzer();
@@ -37,17 +39,133 @@ public class TFIDFAnalyzer {
     this.loadIdfMap(this.getClass().getResourceAsStream("/idf.txt"));
   }
 
+  /**
+   * 提取 tf-idf 最高的 topK 个词。
+   * 词频统计在 int 数组上进行，停用词每个不同的词只判断一次，只用大小为 topK 的堆选出结果，
+   * 得分相同的词按原先 HashMap 的遍历顺序排列，与排序整个 HashMap 的结果一致
+   */
   public List<Pair<String, Double>> extractTags(List<String> words, int topK) {
-    Map<String, Double> tfMap = getTfMap(words);
-    List<Pair<String, Double>> result = new ArrayList<>();
-    for (String word : tfMap.keySet()) {
-      result.add(new Pair<>(word, idfMap.getOrDefault(word, medianIdf) * tfMap.get(word)));
+    if (topK < 0) {
+      throw new IllegalArgumentException("topK must not be negative: " + topK);
+    }
+    HashMap<String, Double> idfMap = this.idfMap;
+    HashSet<String> stopWords = this.stopWords;
+    double medianIdf = this.medianIdf;
+    WordCounter counter = COUNTER.get();
+    counter.clear();
+    for (String word : words) {
+      counter.add(word);
+    }
+    int[] candidates = new int[counter.size()];
+    int candidateNum = 0;
+    long tokenNum = 0;
+    for (int id = 0; id < counter.size(); id++) {
+      if (isKeyword(counter.getWord(id), stopWords)) {
+        candidates[candidateNum++] = id;
+        tokenNum += counter.getCount(id);
+      }
+    }
+    // 同样数量的词语放入 HashMap 后的容量
+    int capacity = 16;
+    while (candidateNum > capacity * 3 / 4) {
+      capacity <<= 1;
+    }
+    double[] scores = new double[candidateNum];
+    int[] buckets = new int[candidateNum];
+    for (int i = 0; i < candidateNum; i++) {
+      String word = counter.getWord(candidates[i]);
+      scores[i] = idfMap.getOrDefault(word, medianIdf) * (1.0 * counter.getCount(candidates[i]) / tokenNum);
+      buckets[i] = WordCounter.spread(word.hashCode()) & (capacity - 1);
+    }
+
+    // 小顶堆，堆顶为已选出的词中排在最后的
+    int[] heap = new int[Math.min(topK, candidateNum)];
+    int heapSize = 0;
+    for (int i = 0; i < candidateNum; i++) {
+      if (heapSize < heap.length) {
+        heap[heapSize++] = i;
+        siftUp(heap, heapSize - 1, scores, buckets);
+      } else if (heapSize > 0 && before(i, heap[0], scores, buckets)) {
+        heap[0] = i;
+        siftDown(heap, heapSize, scores, buckets);
+      }
+    }
+    // 依次弹出的是排在最后的词，最后反转
+    List<Pair<String, Double>> sorted = new ArrayList<>(heapSize);
+    while (heapSize > 0) {
+      int i = heap[0];
+      sorted.add(new Pair<>(counter.getWord(candidates[i]), scores[i]));
+      heap[0] = heap[--heapSize];
+      siftDown(heap, heapSize, scores, buckets);
+    }
+    Collections.reverse(sorted);
+    return sorted;
+  }
+
+  /**
+   * 候选词 a 是否排在 b 之前：得分高的在前，得分相同时按原先 HashMap 的遍历顺序，即桶的下标小的在前，
+   * 同一个桶中后出现的在前（groupingBy 使用 computeIfAbsent 把新词插在桶的开头）
+   */
+  private static boolean before(int a, int b, double[] scores, int[] buckets) {
+    int c = Double.compare(scores[b], scores[a]);
+    if (c != 0) {
+      return c < 0;
+    }
+    if (buckets[a] != buckets[b]) {
+      return buckets[a] < buckets[b];
+    }
+    return a > b;
+  }
+
+  private static void siftUp(int[] heap, int k, double[] scores, int[] buckets) {
+    int x = heap[k];
+    while (k > 0) {
+      int parent = (k - 1) >>> 1;
+      if (!before(heap[parent], x, scores, buckets)) {
+        break;
+      }
+      heap[k] = heap[parent];
+      k = parent;
+    }
+    heap[k] = x;
+  }
+
+  private static void siftDown(int[] heap, int size, double[] scores, int[] buckets) {
+    if (size == 0) {
+      return;
     }
-    result.sort((o1, o2) -> Double.compare(o2.getValue(), o1.getValue()));
-    if (result.size() > topK) {
-      result = result.subList(0, topK);
+    int x = heap[0];
+    int k = 0;
+    int half = size >>> 1;
+    while (k < half) {
+      int child = 2 * k + 1;
+      int right = child + 1;
+      if (right < size && before(heap[child], heap[right], scores, buckets)) {
+        child = right;
+      }
+      if (!before(x, heap[child], scores, buckets)) {
+        break;
+      }
+      heap[k] = heap[child];
+      k = child;
     }
-    return result;
+    heap[k] = x;
+  }
+
+  /**
+   * 去掉首尾空白后长度大于 1 且不是停用词（不区分大小写）。
+   * 只有首尾有空白或含有大写字母时 trim 和 toLowerCase 才会创建新的字符串
+   */
+  static boolean isKeyword(String word, HashSet<String> stopWords) {
+    int start = 0;
+    int end = word.length();
+    while (start < end && word.charAt(start) <= ' ') {
+      start++;
+    }
+    while (start < end && word.charAt(end - 1) <= ' ') {
+      end--;
+    }
+    return end - start > 1 && !stopWords.contains(word.toLowerCase());
   }
 
   public List<Pair<String, Double>> extractTags(List<String> words) {
@@ -62,47 +180,48 @@ public class TFIDFAnalyzer {
     return extractTags(Jaba.getInstance().cut(sentence, CutModeEnum.CUT));
   }
 
-  private Map<String, Double> getTfMap(List<String> tokens) {
-    Map<String, Double> tfMap = new HashMap<>();
-
-    Map<String, Long> freqMap = tokens.stream()
-        .filter(token -> token.trim().length() > 1 && !stopWords.contains(token.toLowerCase()))
-        .collect(groupingBy(Function.identity(), counting()));
-    long tokenNum = freqMap.values().stream().mapToLong(t -> t).sum();
-
-    for (String word : freqMap.keySet()) {
-      tfMap.put(word, 1.0 * freqMap.get(word) / tokenNum);
-    }
-
-    return tfMap;
-  }
-
-
   public void loadStopWords(InputStream resourceStream) {
-    stopWords = new HashSet<>();
+    HashSet<String> stopWords = new HashSet<>();
     try (BufferedReader buffer = new BufferedReader(new InputStreamReader(resourceStream, StandardCharsets.UTF_8))) {
       String line;
       while ((line = buffer.readLine()) != null) {
         stopWords.add(line);
       }
+      this.stopWords = stopWords;
     } catch (Exception e) {
       e.printStackTrace();
     }
   }
 
   public void loadIdfMap(InputStream resourceStream) {
-    idfMap = new HashMap<>();
+    HashMap<String, Double> idfMap = new HashMap<>();
     try (BufferedReader buffer = new BufferedReader(new InputStreamReader(resourceStream, StandardCharsets.UTF_8))) {
       String line;
       while ((line = buffer.readLine()) != null) {
         String[] kv = line.trim().split(" ");
         idfMap.put(kv[0], Double.parseDouble(kv[1]));
       }
-      List<Double> idfList = new ArrayList<>(idfMap.values());
-      Collections.sort(idfList);
-      medianIdf = idfList.get(idfList.size() / 2);
+      setIdfMap(idfMap);
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * 加载 {@link IdfBuilder#writeBinary(java.io.OutputStream, int)} 生成的二进制 idf 表
+   */
+  public void loadBinaryIdfMap(InputStream resourceStream) {
+    try (InputStream inputStream = resourceStream) {
+      setIdfMap(IdfBuilder.readBinary(inputStream));
     } catch (Exception e) {
       e.printStackTrace();
     }
   }
+
+  private void setIdfMap(HashMap<String, Double> idfMap) {
+    List<Double> idfList = new ArrayList<>(idfMap.values());
+    Collections.sort(idfList);
+    medianIdf = idfList.get(idfList.size() / 2);
+    this.idfMap = idfMap;
+  }
 }
@@ -0,0 +1,194 @@
+package com.soud.jaba.analyse;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 多线程共用的有上限的词语计数：按哈希分为 64 段，每段是加锁的开放寻址哈希表，计数保存在 int 数组中。
+ * 每段的词数超过上限时成批地按 Space-Saving 淘汰：新词继承上一次淘汰的最高估计值作为误差，
+ * 按 计数 + 误差 淘汰估计值最低的词。所以无论输入多大占用的内存都有上限，
+ * 语料后半部分才变得常见的词也能留下来，出现次数超过 总次数 / 上限 的词一定会被保留。
+ * 给出的计数是加入计数表之后的出现次数，不会多算，少算的不超过该词的误差
+ */
+class TermCounter {
+  private static final int STRIPES = 64;
+
+  private final TermTable[] stripes = new TermTable[STRIPES];
+
+  /**
+   * @param maxTerms 最多保留的词数
+   */
+  TermCounter(int maxTerms) {
+    for (int i = 0; i < STRIPES; i++) {
+      stripes[i] = new TermTable(Math.max(16, maxTerms / STRIPES));
+    }
+  }
+
+  private TermTable stripe(String term) {
+    return stripes[(WordCounter.spread(term.hashCode()) * 0x9E3779B9) >>> 26];
+  }
+
+  /**
+   * 计数加 delta，可以被多个线程同时调用
+   */
+  void increment(String term, int delta) {
+    stripe(term).increment(term, delta);
+  }
+
+  /**
+   * 词语加入计数表之后的出现次数，未出现或已被淘汰时为 0
+   */
+  int get(String term) {
+    return stripe(term).get(term);
+  }
+
+  /**
+   * 当前保留的词数
+   */
+  int size() {
+    int size = 0;
+    for (TermTable stripe : stripes) {
+      size += stripe.size();
+    }
+    return size;
+  }
+
+  /**
+   * 把计数不低于 minCount 的词和计数追加到两个列表
+   */
+  void forEach(int minCount, List<String> termList, List<Integer> countList) {
+    for (TermTable stripe : stripes) {
+      stripe.forEach(minCount, termList, countList);
+    }
+  }
+
+  /**
+   * 一段计数表：线性探测的开放寻址哈希表，词数超过上限时淘汰计数最低的词
+   */
+  private static class TermTable {
+    private final int maxSize;
+    private String[] terms = new String[32];
+    private int[] counts = new int[32];
+    /**
+     * 加入计数表之前可能已经出现、但被淘汰而没有计入的次数
+     */
+    private int[] errors = new int[32];
+    private int size;
+    /**
+     * 最近一次淘汰的最高估计值，作为新词的误差
+     */
+    private int evicted;
+
+    TermTable(int maxSize) {
+      this.maxSize = maxSize;
+    }
+
+    private int slot(String term) {
+      int mask = terms.length - 1;
+      int i = WordCounter.spread(term.hashCode()) & mask;
+      while (terms[i] != null && !terms[i].equals(term)) {
+        i = (i + 1) & mask;
+      }
+      return i;
+    }
+
+    synchronized void increment(String term, int delta) {
+      int i = slot(term);
+      if (terms[i] != null) {
+        counts[i] += delta;
+        return;
+      }
+      terms[i] = term;
+      counts[i] = delta;
+      errors[i] = evicted;
+      size++;
+      if (size > maxSize) {
+        prune();
+      } else if (size * 2 > terms.length) {
+        rehash(terms.length * 2);
+      }
+    }
+
+    synchronized int get(String term) {
+      int i = slot(term);
+      return terms[i] == null ? 0 : counts[i];
+    }
+
+    synchronized int size() {
+      return size;
+    }
+
+    /**
+     * 按当前的估计值淘汰最低的词，直到词数降到上限的 3/4，估计值相同的词按在表中的位置淘汰
+     */
+    private void prune() {
+      int target = maxSize * 3 / 4;
+      int[] estimates = new int[size];
+      int n = 0;
+      for (int i = 0; i < terms.length; i++) {
+        if (terms[i] != null) {
+          estimates[n++] = counts[i] + errors[i];
+        }
+      }
+      Arrays.sort(estimates);
+      int threshold = estimates[size - target - 1];
+      int ties = size - target - lowerBound(estimates, threshold);
+      for (int i = 0; i < terms.length; i++) {
+        if (terms[i] == null) {
+          continue;
+        }
+        int estimate = counts[i] + errors[i];
+        if (estimate < threshold || estimate == threshold && ties-- > 0) {
+          terms[i] = null;
+          size--;
+        }
+      }
+      // 新词的估计值都高于之前淘汰的，所以 evicted 不会减小
+      evicted = threshold;
+      rehash(terms.length);
+    }
+
+    /**
+     * 有序数组中小于 value 的元素个数
+     */
+    private static int lowerBound(int[] sorted, int value) {
+      int low = 0;
+      int high = sorted.length;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (sorted[mid] < value) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+
+    private void rehash(int capacity) {
+      String[] oldTerms = terms;
+      int[] oldCounts = counts;
+      int[] oldErrors = errors;
+      terms = new String[capacity];
+      counts = new int[capacity];
+      errors = new int[capacity];
+      for (int i = 0; i < oldTerms.length; i++) {
+        if (oldTerms[i] != null) {
+          int j = slot(oldTerms[i]);
+          terms[j] = oldTerms[i];
+          counts[j] = oldCounts[i];
+          errors[j] = oldErrors[i];
+        }
+      }
+    }
+
+    synchronized void forEach(int minCount, List<String> termList, List<Integer> countList) {
+      for (int i = 0; i < terms.length; i++) {
+        if (terms[i] != null && counts[i] >= minCount) {
+          termList.add(terms[i]);
+          countList.add(counts[i]);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,233 @@
+package com.soud.jaba.analyse;
+
+import com.soud.jaba.Jaba;
+import com.soud.jaba.Pair;
+import com.soud.jaba.enumeration.CutModeEnum;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * TextRank 提取关键词，不依赖 idf 表。
+ * 窗口内共同出现的关键词之间连一条无向边，和 jieba 一样按词语的字典序原地迭代，直到得分的最大变化小于阈值。
+ * 词语用整数编号，共现图保存为 CSR 形式的 int 数组，每个线程复用同一组数组
+ *
+ * @author Soud
+ */
+public class TextRankAnalyzer {
+  private static final double DAMPING = 0.85;
+  private static final int SPAN = 5;
+  private static final int MAX_ITERATIONS = 100;
+  private static final double TOLERANCE = 1e-6;
+
+  private volatile HashSet<String> stopWords = new HashSet<>();
+
+  /**
+   * 每个线程复用的词语编号和共现图
+   */
+  private static final ThreadLocal<Workspace> WORKSPACE = ThreadLocal.withInitial(Workspace::new);
+
+  private static class Workspace {
+    final WordCounter counter = new WordCounter();
+    /**
+     * 每个词的编号，不是关键词时为 -1
+     */
+    int[] ids = new int[256];
+    /**
+     * 共现的词对，第 k 条边为 (edges[2k], edges[2k + 1])
+     */
+    int[] edges = new int[512];
+    /**
+     * CSR：编号为 n 的词的邻居为 neighbors[offsets[n], offsets[n + 1])，同一个邻居共现几次就出现几次
+     */
+    int[] offsets = new int[64];
+    int[] neighbors = new int[512];
+    double[] ws = new double[64];
+    /**
+     * ws / 度数，即每个词分给每条边的得分
+     */
+    double[] shares = new double[64];
+
+    void ensureNodes(int size) {
+      if (offsets.length < size + 1) {
+        int capacity = Math.max(size + 1, offsets.length * 2);
+        offsets = new int[capacity];
+        ws = new double[capacity];
+        shares = new double[capacity];
+      }
+    }
+  }
+
+  private static class TextRankAnalyzerHolder {
+    static TextRankAnalyzer instance = new TextRankAnalyzer();
+  }
+
+  public static TextRankAnalyzer getInstance() {
+    return TextRankAnalyzer.TextRankAnalyzerHolder.instance;
+  }
+
+  private TextRankAnalyzer() {
+    this.loadStopWords(this.getClass().getResourceAsStream("/stop_words.txt"));
+  }
+
+  /**
+   * 提取 TextRank 得分最高的 topK 个词，得分归一化的方式与 jieba 相同，得分相同的词按第一次出现的顺序排列
+   */
+  public List<Pair<String, Double>> extractTags(List<String> words, int topK) {
+    if (topK < 0) {
+      throw new IllegalArgumentException("topK must not be negative: " + topK);
+    }
+    HashSet<String> stopWords = this.stopWords;
+    Workspace workspace = WORKSPACE.get();
+    WordCounter counter = workspace.counter;
+    counter.clear();
+    int[] ids = workspace.ids;
+    if (ids.length < words.size()) {
+      ids = workspace.ids = new int[Math.max(words.size(), ids.length * 2)];
+    }
+    for (int i = 0; i < words.size(); i++) {
+      String word = words.get(i);
+      ids[i] = TFIDFAnalyzer.isKeyword(word, stopWords) ? counter.add(word) : -1;
+    }
+
+    // 窗口内的词对
+    int[] edges = workspace.edges;
+    int edgeNum = 0;
+    for (int i = 0; i < words.size(); i++) {
+      if (ids[i] < 0) {
+        continue;
+      }
+      for (int j = i + 1; j < i + SPAN && j < words.size(); j++) {
+        if (ids[j] < 0) {
+          continue;
+        }
+        if (edgeNum * 2 == edges.length) {
+          edges = workspace.edges = Arrays.copyOf(edges, edges.length * 2);
+        }
+        edges[edgeNum * 2] = ids[i];
+        edges[edgeNum * 2 + 1] = ids[j];
+        edgeNum++;
+      }
+    }
+    if (edgeNum == 0) {
+      return new ArrayList<>();
+    }
+
+    // 按度数生成 CSR，无向边在两端各记一次
+    int size = counter.size();
+    workspace.ensureNodes(size);
+    int[] offsets = workspace.offsets;
+    Arrays.fill(offsets, 0, size + 1, 0);
+    for (int k = 0; k < edgeNum * 2; k++) {
+      offsets[edges[k] + 1]++;
+    }
+    for (int n = 0; n < size; n++) {
+      offsets[n + 1] += offsets[n];
+    }
+    int[] neighbors = workspace.neighbors;
+    if (neighbors.length < edgeNum * 2) {
+      neighbors = workspace.neighbors = new int[Math.max(edgeNum * 2, neighbors.length * 2)];
+    }
+    // 借用 ws 记录每个词已经填入的邻居数
+    double[] ws = workspace.ws;
+    Arrays.fill(ws, 0, size, 0);
+    for (int k = 0; k < edgeNum; k++) {
+      int a = edges[k * 2];
+      int b = edges[k * 2 + 1];
+      neighbors[offsets[a] + (int) ws[a]++] = b;
+      neighbors[offsets[b] + (int) ws[b]++] = a;
+    }
+
+    // 只有连了边的词才在图中
+    int nodeNum = 0;
+    int[] nodes = new int[size];
+    for (int n = 0; n < size; n++) {
+      if (offsets[n + 1] > offsets[n]) {
+        nodes[nodeNum++] = n;
+      }
+    }
+    Integer[] order = new Integer[nodeNum];
+    for (int i = 0; i < nodeNum; i++) {
+      order[i] = nodes[i];
+    }
+    Arrays.sort(order, (a, b) -> counter.getWord(a).compareTo(counter.getWord(b)));
+
+    double[] shares = workspace.shares;
+    double initial = 1.0 / nodeNum;
+    for (int i = 0; i < nodeNum; i++) {
+      int n = nodes[i];
+      ws[n] = initial;
+      shares[n] = initial / (offsets[n + 1] - offsets[n]);
+    }
+    for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+      double delta = 0;
+      for (Integer node : order) {
+        int n = node;
+        double s = 0;
+        for (int k = offsets[n]; k < offsets[n + 1]; k++) {
+          s += shares[neighbors[k]];
+        }
+        double w = (1 - DAMPING) + DAMPING * s;
+        delta = Math.max(delta, Math.abs(w - ws[n]));
+        ws[n] = w;
+        shares[n] = w / (offsets[n + 1] - offsets[n]);
+      }
+      if (delta < TOLERANCE) {
+        break;
+      }
+    }
+
+    double minRank = Double.MAX_VALUE;
+    double maxRank = Double.MIN_VALUE;
+    for (int i = 0; i < nodeNum; i++) {
+      minRank = Math.min(minRank, ws[nodes[i]]);
+      maxRank = Math.max(maxRank, ws[nodes[i]]);
+    }
+    for (int i = 0; i < nodeNum; i++) {
+      int n = nodes[i];
+      ws[n] = (ws[n] - minRank / 10.0) / (maxRank - minRank / 10.0);
+    }
+
+    // nodes 按编号递增，稳定排序后得分相同的词保持第一次出现的顺序
+    for (int i = 0; i < nodeNum; i++) {
+      order[i] = nodes[i];
+    }
+    Arrays.sort(order, (a, b) -> Double.compare(ws[b], ws[a]));
+    List<Pair<String, Double>> result = new ArrayList<>(Math.min(topK, nodeNum));
+    for (int i = 0; i < nodeNum && i < topK; i++) {
+      result.add(new Pair<>(counter.getWord(order[i]), ws[order[i]]));
+    }
+    return result;
+  }
+
+  public List<Pair<String, Double>> extractTags(List<String> words) {
+    return extractTags(words, 20);
+  }
+
+  public List<Pair<String, Double>> extractTags(String sentence, int topK) {
+    return extractTags(Jaba.getInstance().cut(sentence, CutModeEnum.CUT), topK);
+  }
+
+  public List<Pair<String, Double>> extractTags(String sentence) {
+    return extractTags(Jaba.getInstance().cut(sentence, CutModeEnum.CUT));
+  }
+
+  public void loadStopWords(InputStream resourceStream) {
+    HashSet<String> stopWords = new HashSet<>();
+    try (BufferedReader buffer = new BufferedReader(new InputStreamReader(resourceStream, StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = buffer.readLine()) != null) {
+        stopWords.add(line);
+      }
+      this.stopWords = stopWords;
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+  }
+}
@@ -0,0 +1,86 @@
+package com.soud.jaba.analyse;
+
+import java.util.Arrays;
+
+/**
+ * 统计词频的开放寻址哈希表：词语按第一次出现的顺序编号，计数保存在 int 数组中，不创建包装对象。
+ * 调用 {@link #clear()} 后可以复用
+ */
+class WordCounter {
+  private String[] words = new String[64];
+  private int[] counts = new int[64];
+  private int size;
+  /**
+   * 线性探测的槽位，保存 词语编号 + 1，0 表示空
+   */
+  private int[] table = new int[128];
+
+  void clear() {
+    if (size > 0) {
+      Arrays.fill(table, 0);
+      Arrays.fill(words, 0, size, null);
+      size = 0;
+    }
+  }
+
+  /**
+   * 计数加一，返回词语编号
+   */
+  int add(String word) {
+    int mask = table.length - 1;
+    int i = spread(word.hashCode()) & mask;
+    int slot;
+    while ((slot = table[i]) != 0) {
+      if (words[slot - 1].equals(word)) {
+        counts[slot - 1]++;
+        return slot - 1;
+      }
+      i = (i + 1) & mask;
+    }
+    if (size == words.length) {
+      words = Arrays.copyOf(words, size * 2);
+      counts = Arrays.copyOf(counts, size * 2);
+    }
+    words[size] = word;
+    counts[size] = 1;
+    table[i] = ++size;
+    if (size * 2 > table.length) {
+      rehash(table.length * 2);
+    }
+    return size - 1;
+  }
+
+  private void rehash(int capacity) {
+    table = new int[capacity];
+    int mask = capacity - 1;
+    for (int id = 0; id < size; id++) {
+      int i = spread(words[id].hashCode()) & mask;
+      while (table[i] != 0) {
+        i = (i + 1) & mask;
+      }
+      table[i] = id + 1;
+    }
+  }
+
+  /**
+   * 不同词语的个数
+   */
+  int size() {
+    return size;
+  }
+
+  String getWord(int id) {
+    return words[id];
+  }
+
+  int getCount(int id) {
+    return counts[id];
+  }
+
+  /**
+   * 与 HashMap 相同的哈希扰动
+   */
+  static int spread(int h) {
+    return h ^ (h >>> 16);
+  }
+}
@@ -0,0 +1,41 @@
+package com.soud.jaba.enumeration;
+
+/**
+ * 分词过程中累计的计数
+ */
+public enum CounterEnum {
+    /**
+     * tokenize/cut 的调用次数
+     */
+    CALLS,
+
+    /**
+     * 输入的字符数
+     */
+    CHARS,
+
+    /**
+     * 输出的词数
+     */
+    TOKENS,
+
+    /**
+     * 分词的短句数，不含命中缓存的短句
+     */
+    BLOCKS,
+
+    /**
+     * 生成的 DAG 的边数
+     */
+    DAG_EDGES,
+
+    /**
+     * 调用 HMM 的次数
+     */
+    HMM_CALLS,
+
+    /**
+     * HMM 识别出的多字未登录词数
+     */
+    OOV_TOKENS
+}
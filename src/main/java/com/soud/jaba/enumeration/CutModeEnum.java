@@ -8,25 +8,32 @@ public enum CutModeEnum {
     /**
      * 精确模式，试图将句子最精确地切开，适合文本分析。
      */
-    CUT(false, true),
+    CUT(false, true, false),
 
     /**
      * 全模式，把句子中所有的可以成词的词语都扫描出来, 速度非常快，但是不能解决歧义。
      */
-    CUT_ALL(true, false),
+    CUT_ALL(true, false, false),
 
     /**
      * 精确模式，但不使用HMM识别未登录词。
      */
-    CUT_WITHOUT_HMM(false, false);
+    CUT_WITHOUT_HMM(false, false, false),
+
+    /**
+     * 搜索引擎模式，在精确模式的基础上，对长词再次切分，提高召回率，适合用于搜索引擎分词。
+     */
+    CUT_FOR_SEARCH(false, true, true);
 
 
     private boolean cutAll;
     private boolean cutWithHMM;
+    private boolean forSearch;
 
-    CutModeEnum(boolean cutAll, boolean cutWithHMM) {
+    CutModeEnum(boolean cutAll, boolean cutWithHMM, boolean forSearch) {
         this.cutAll = cutAll;
         this.cutWithHMM = cutWithHMM;
+        this.forSearch = forSearch;
     }
 
     public boolean isCutAll() {
@@ -37,4 +44,8 @@ public enum CutModeEnum {
         return cutWithHMM;
     }
 
+    public boolean isForSearch() {
+        return forSearch;
+    }
+
 }
@@ -0,0 +1,16 @@
+package com.soud.jaba.enumeration;
+
+/**
+ * 批量分词的输出格式，每行输入对应一行输出
+ */
+public enum OutputFormatEnum {
+    /**
+     * 空格分隔的词语，不输出空白
+     */
+    TEXT,
+
+    /**
+     * 每行一个 JSON 字符串数组，包括空白在内的所有词语
+     */
+    JSON
+}
@@ -0,0 +1,31 @@
+package com.soud.jaba.enumeration;
+
+/**
+ * 分词过程中分别计时的阶段
+ */
+public enum StageEnum {
+    /**
+     * 一次 tokenize/cut 调用的总耗时
+     */
+    TOKENIZE,
+
+    /**
+     * 切分短句和输出标点符号，即总耗时中不属于任何短句的部分（包括查询分词结果缓存）
+     */
+    SPLIT,
+
+    /**
+     * 查询 trie 生成短句的 DAG，全模式下为生成 DAG 的全部耗时
+     */
+    DAG,
+
+    /**
+     * 在 DAG 上动态规划计算最大概率路径
+     */
+    ROUTE,
+
+    /**
+     * HMM 识别未登录词
+     */
+    HMM
+}
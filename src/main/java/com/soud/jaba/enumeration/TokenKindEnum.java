@@ -0,0 +1,26 @@
+package com.soud.jaba.enumeration;
+
+/**
+ * 分词结果中词语的类别
+ */
+public enum TokenKindEnum {
+    /**
+     * 按字典 DAG 上的最大概率路径或全模式切出的词，包括单字和连续的字母数字
+     */
+    WORD,
+
+    /**
+     * 由 HMM 识别出的未登录词及其切分出的单字
+     */
+    HMM,
+
+    /**
+     * 短句之外的标点符号等字符，全模式下为连续的整段
+     */
+    PUNCTUATION,
+
+    /**
+     * 空白字符，\r\n 作为一个整体
+     */
+    WHITESPACE
+}
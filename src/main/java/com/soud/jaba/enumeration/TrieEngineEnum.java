@@ -0,0 +1,62 @@
+package com.soud.jaba.enumeration;
+
+import com.soud.jaba.trie.DoubleArrayTrie;
+import com.soud.jaba.trie.HankcsTrie;
+import com.soud.jaba.trie.WordTrie;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+/**
+ * 字典 trie 的实现，可通过系统属性 jaba.trie.engine 选择
+ */
+public enum TrieEngineEnum {
+    /**
+     * hankcs 的 AhoCorasickDoubleArrayTrie，一次扫描找出所有词语
+     */
+    HANKCS {
+        @Override
+        public WordTrie build(Map<String, Integer> words) {
+            return HankcsTrie.build(words);
+        }
+
+        @Override
+        public WordTrie load(ByteBuffer buffer) {
+            return HankcsTrie.load(buffer);
+        }
+    },
+
+    /**
+     * 项目内的 double-array trie，从每个位置做公共前缀查询
+     */
+    DOUBLE_ARRAY {
+        @Override
+        public WordTrie build(Map<String, Integer> words) {
+            return DoubleArrayTrie.build(words);
+        }
+
+        @Override
+        public WordTrie load(ByteBuffer buffer) {
+            return DoubleArrayTrie.load(buffer);
+        }
+    };
+
+    public static final String PROPERTY = "jaba.trie.engine";
+
+    /**
+     * @param words 按字典序排列的词语和对应的 id
+     */
+    public abstract WordTrie build(Map<String, Integer> words);
+
+    /**
+     * 从字典快照中还原
+     */
+    public abstract WordTrie load(ByteBuffer buffer);
+
+    /**
+     * 读取系统属性 jaba.trie.engine 选择的实现，默认为 HANKCS
+     */
+    public static TrieEngineEnum fromSystemProperty() {
+        return valueOf(System.getProperty(PROPERTY, HANKCS.name()).toUpperCase());
+    }
+}
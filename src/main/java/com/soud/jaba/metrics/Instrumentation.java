@@ -0,0 +1,33 @@
+package com.soud.jaba.metrics;
+
+import com.soud.jaba.Jaba;
+import com.soud.jaba.enumeration.CounterEnum;
+import com.soud.jaba.enumeration.StageEnum;
+
+/**
+ * 分词的统计接口，通过 {@link Jaba#setInstrumentation(Instrumentation)} 设置后，
+ * 每次分词结束时收到各阶段的耗时和计数。会被多个分词线程同时调用，实现需要线程安全。
+ * 未设置时分词过程不做任何计时，{@link JabaMetrics} 为默认实现
+ */
+public interface Instrumentation {
+
+    /**
+     * 记录一个阶段的耗时
+     * @param stage 阶段
+     * @param nanos 耗时，单位纳秒
+     */
+    void recordTime(StageEnum stage, long nanos);
+
+    /**
+     * 累加计数
+     * @param counter 计数项
+     * @param count 增加的数量，总是大于 0
+     */
+    void recordCount(CounterEnum counter, long count);
+
+    /**
+     * 设置到 jaba 上时调用，可用于查询字典和模型的内存占用
+     */
+    default void attach(Jaba jaba) {
+    }
+}
@@ -0,0 +1,178 @@
+package com.soud.jaba.metrics;
+
+import com.soud.jaba.Jaba;
+import com.soud.jaba.enumeration.CounterEnum;
+import com.soud.jaba.enumeration.StageEnum;
+import com.soud.jaba.viterbi.FinalSeg;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link Instrumentation} 的默认实现：每个阶段一个 {@link LatencyHistogram}，每个计数项一个 LongAdder。
+ * <pre>
+ * JabaMetrics metrics = new JabaMetrics();
+ * jaba.setInstrumentation(metrics);
+ * metrics.registerMBean("com.soud.jaba:type=JabaMetrics");
+ * System.out.println(metrics.snapshot());
+ * </pre>
+ */
+public class JabaMetrics implements Instrumentation, JabaMetricsMXBean {
+    private static final StageEnum[] STAGES = StageEnum.values();
+    private static final CounterEnum[] COUNTERS = CounterEnum.values();
+
+    /**
+     * reset 时整体替换
+     */
+    private volatile Data data = new Data();
+    private volatile Jaba jaba;
+
+    private static class Data {
+        final LatencyHistogram[] histograms = new LatencyHistogram[STAGES.length];
+        final LongAdder[] counters = new LongAdder[COUNTERS.length];
+
+        Data() {
+            for (int i = 0; i < histograms.length; i++) {
+                histograms[i] = new LatencyHistogram();
+            }
+            for (int i = 0; i < counters.length; i++) {
+                counters[i] = new LongAdder();
+            }
+        }
+    }
+
+    @Override
+    public void recordTime(StageEnum stage, long nanos) {
+        data.histograms[stage.ordinal()].record(nanos);
+    }
+
+    @Override
+    public void recordCount(CounterEnum counter, long count) {
+        data.counters[counter.ordinal()].add(count);
+    }
+
+    @Override
+    public void attach(Jaba jaba) {
+        this.jaba = jaba;
+    }
+
+    public MetricsSnapshot snapshot() {
+        Data data = this.data;
+        Map<StageEnum, LatencyHistogram.Snapshot> stages = MetricsSnapshot.newStages();
+        for (StageEnum stage : STAGES) {
+            stages.put(stage, data.histograms[stage.ordinal()].snapshot());
+        }
+        Map<CounterEnum, Long> counters = MetricsSnapshot.newCounters();
+        for (CounterEnum counter : COUNTERS) {
+            counters.put(counter, data.counters[counter.ordinal()].sum());
+        }
+        return new MetricsSnapshot(stages, counters, getDictionaryBytes(), getHmmModelBytes());
+    }
+
+    /**
+     * 注册到平台 MBeanServer
+     * @param objectName 例如 com.soud.jaba:type=JabaMetrics
+     */
+    public void registerMBean(String objectName) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        server.registerMBean(this, new ObjectName(objectName));
+    }
+
+    @Override
+    public void reset() {
+        data = new Data();
+    }
+
+    private long count(CounterEnum counter) {
+        return data.counters[counter.ordinal()].sum();
+    }
+
+    private LatencyHistogram.Snapshot stage(StageEnum stage) {
+        return data.histograms[stage.ordinal()].snapshot();
+    }
+
+    @Override
+    public long getCalls() {
+        return count(CounterEnum.CALLS);
+    }
+
+    @Override
+    public long getChars() {
+        return count(CounterEnum.CHARS);
+    }
+
+    @Override
+    public long getTokens() {
+        return count(CounterEnum.TOKENS);
+    }
+
+    @Override
+    public long getBlocks() {
+        return count(CounterEnum.BLOCKS);
+    }
+
+    @Override
+    public long getDagEdges() {
+        return count(CounterEnum.DAG_EDGES);
+    }
+
+    @Override
+    public long getHmmCalls() {
+        return count(CounterEnum.HMM_CALLS);
+    }
+
+    @Override
+    public long getOovTokens() {
+        return count(CounterEnum.OOV_TOKENS);
+    }
+
+    @Override
+    public double getTokenizeP50Micros() {
+        return stage(StageEnum.TOKENIZE).getP50() / 1000.;
+    }
+
+    @Override
+    public double getTokenizeP99Micros() {
+        return stage(StageEnum.TOKENIZE).getP99() / 1000.;
+    }
+
+    @Override
+    public double getTokenizeMaxMicros() {
+        return stage(StageEnum.TOKENIZE).getMax() / 1000.;
+    }
+
+    @Override
+    public double getSplitP99Micros() {
+        return stage(StageEnum.SPLIT).getP99() / 1000.;
+    }
+
+    @Override
+    public double getDagP99Micros() {
+        return stage(StageEnum.DAG).getP99() / 1000.;
+    }
+
+    @Override
+    public double getRouteP99Micros() {
+        return stage(StageEnum.ROUTE).getP99() / 1000.;
+    }
+
+    @Override
+    public double getHmmP99Micros() {
+        return stage(StageEnum.HMM).getP99() / 1000.;
+    }
+
+    @Override
+    public long getDictionaryBytes() {
+        Jaba jaba = this.jaba;
+        return jaba == null ? 0 : jaba.getDictionaryFootprint();
+    }
+
+    @Override
+    public long getHmmModelBytes() {
+        return jaba == null ? 0 : FinalSeg.getInstance().getModelFootprint();
+    }
+}
@@ -0,0 +1,44 @@
+package com.soud.jaba.metrics;
+
+/**
+ * {@link JabaMetrics} 通过 JMX 暴露的属性，耗时单位为微秒
+ */
+public interface JabaMetricsMXBean {
+
+    long getCalls();
+
+    long getChars();
+
+    long getTokens();
+
+    long getBlocks();
+
+    long getDagEdges();
+
+    long getHmmCalls();
+
+    long getOovTokens();
+
+    double getTokenizeP50Micros();
+
+    double getTokenizeP99Micros();
+
+    double getTokenizeMaxMicros();
+
+    double getSplitP99Micros();
+
+    double getDagP99Micros();
+
+    double getRouteP99Micros();
+
+    double getHmmP99Micros();
+
+    long getDictionaryBytes();
+
+    long getHmmModelBytes();
+
+    /**
+     * 清空所有统计
+     */
+    void reset();
+}
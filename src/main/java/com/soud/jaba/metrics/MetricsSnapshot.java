@@ -0,0 +1,67 @@
+package com.soud.jaba.metrics;
+
+import com.soud.jaba.enumeration.CounterEnum;
+import com.soud.jaba.enumeration.StageEnum;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * {@link JabaMetrics} 在某一时刻的统计结果
+ */
+public class MetricsSnapshot {
+    private final Map<StageEnum, LatencyHistogram.Snapshot> stages;
+    private final Map<CounterEnum, Long> counters;
+    private final long dictionaryBytes;
+    private final long hmmModelBytes;
+
+    MetricsSnapshot(Map<StageEnum, LatencyHistogram.Snapshot> stages, Map<CounterEnum, Long> counters,
+                    long dictionaryBytes, long hmmModelBytes) {
+        this.stages = stages;
+        this.counters = counters;
+        this.dictionaryBytes = dictionaryBytes;
+        this.hmmModelBytes = hmmModelBytes;
+    }
+
+    /**
+     * 阶段耗时的统计，单位纳秒
+     */
+    public LatencyHistogram.Snapshot getStage(StageEnum stage) {
+        return stages.get(stage);
+    }
+
+    public long getCount(CounterEnum counter) {
+        return counters.get(counter);
+    }
+
+    /**
+     * 字典占用的内存（估算值），未设置到 Jaba 上时为 0
+     */
+    public long getDictionaryBytes() {
+        return dictionaryBytes;
+    }
+
+    /**
+     * HMM 模型占用的内存（估算值），未设置到 Jaba 上时为 0
+     */
+    public long getHmmModelBytes() {
+        return hmmModelBytes;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        stages.forEach((stage, snapshot) -> sb.append(stage).append(": ").append(snapshot).append('\n'));
+        sb.append(counters).append('\n');
+        sb.append("dictionaryBytes=").append(dictionaryBytes).append(", hmmModelBytes=").append(hmmModelBytes);
+        return sb.toString();
+    }
+
+    static Map<CounterEnum, Long> newCounters() {
+        return new EnumMap<>(CounterEnum.class);
+    }
+
+    static Map<StageEnum, LatencyHistogram.Snapshot> newStages() {
+        return new EnumMap<>(StageEnum.class);
+    }
+}
@@ -0,0 +1,262 @@
+package com.soud.jaba.trie;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static com.soud.jaba.util.BufferUtils.intArrayView;
+import static com.soud.jaba.util.BufferUtils.writeIntArray;
+
+/**
+ * 专为生成 DAG 设计的 double-array trie。
+ * 状态 s 经过字符 c 转移到 t = base[s] + c，当且仅当 check[t] == s 时转移有效，
+ * value[t] 为在状态 t 结束的词语 id（没有则为 -1）。
+ * DAG 只需要"从位置 k 开始的所有词语"，所以从每个起点做一次公共前缀查询即可，
+ * 不需要 Aho-Corasick 的失败指针，也不会为命中创建对象。
+ * 三个数组保存在 IntBuffer 中：构建时包装堆上的数组，从快照加载时直接是 mmap 区域的视图，不复制到堆上，
+ * 同一台机器上加载同一个快照的多个 JVM 共享这部分文件页。
+ */
+public class DoubleArrayTrie implements WordTrie {
+    private static final int ROOT = 0;
+    private static final int FREE = -1;
+
+    private final IntBuffer base;
+    private final IntBuffer check;
+    private final IntBuffer value;
+    private final int size;
+
+    private DoubleArrayTrie(IntBuffer base, IntBuffer check, IntBuffer value) {
+        this.base = base;
+        this.check = check;
+        this.value = value;
+        this.size = check.limit();
+    }
+
+    /**
+     * @param words 按字典序排列的词语和对应的 id
+     */
+    public static DoubleArrayTrie build(Map<String, Integer> words) {
+        return new Builder(words).build();
+    }
+
+    /**
+     * 从字典快照中还原，直接使用 buffer 中的数组，不复制
+     */
+    public static DoubleArrayTrie load(ByteBuffer buffer) {
+        IntBuffer base = intArrayView(buffer);
+        IntBuffer check = intArrayView(buffer);
+        IntBuffer value = intArrayView(buffer);
+        return new DoubleArrayTrie(base, check, value);
+    }
+
+    @Override
+    public void save(DataOutputStream out) throws IOException {
+        writeIntArray(out, base);
+        writeIntArray(out, check);
+        writeIntArray(out, value);
+    }
+
+    /**
+     * 从状态 s 经过字符 c 转移，转移不存在时返回 -1
+     */
+    public int transition(int s, int c) {
+        int t = base.get(s) + c;
+        return t < size && check.get(t) == s ? t : -1;
+    }
+
+    /**
+     * 在状态 s 结束的词语 id，没有则返回 -1
+     */
+    public int wordId(int s) {
+        return value.get(s);
+    }
+
+    /**
+     * trie 的根状态
+     */
+    public int root() {
+        return ROOT;
+    }
+
+    @Override
+    public int exactMatch(CharSequence word) {
+        int s = ROOT;
+        for (int i = 0; i < word.length() && s >= 0; i++) {
+            s = transition(s, word.charAt(i));
+        }
+        return s < 0 ? -1 : value.get(s);
+    }
+
+    /**
+     * 公共前缀查询：找出 text[begin, end) 中所有以 begin 开头的词语，按结束位置递增交给 handler
+     */
+    public void commonPrefixSearch(CharSequence text, int begin, int end, HitHandler handler) {
+        int s = ROOT;
+        for (int i = begin; i < end; i++) {
+            int t = base.get(s) + text.charAt(i);
+            if (t >= size || check.get(t) != s) {
+                return;
+            }
+            s = t;
+            int wordId = value.get(s);
+            if (wordId >= 0) {
+                handler.hit(begin, i + 1, wordId);
+            }
+        }
+    }
+
+    /**
+     * 公共前缀查询，结果写入调用方提供的数组
+     *
+     * @param ends 命中词语的结束位置（不含）
+     * @param wordIds 命中词语的 id
+     * @return 命中的个数，超过数组长度的命中被丢弃
+     */
+    public int commonPrefixSearch(CharSequence text, int begin, int end, int[] ends, int[] wordIds) {
+        int count = 0;
+        int s = ROOT;
+        for (int i = begin; i < end && count < ends.length; i++) {
+            int t = base.get(s) + text.charAt(i);
+            if (t >= size || check.get(t) != s) {
+                break;
+            }
+            s = t;
+            int wordId = value.get(s);
+            if (wordId >= 0) {
+                ends[count] = i + 1;
+                wordIds[count] = wordId;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 从每个位置做一次公共前缀查询，命中按起始位置、结束位置递增给出
+     */
+    @Override
+    public void parseText(CharSequence text, HitHandler handler) {
+        int len = text.length();
+        for (int k = 0; k < len; k++) {
+            commonPrefixSearch(text, k, len, handler);
+        }
+    }
+
+    /**
+     * 按深度优先顺序为每个节点的子节点寻找 base，词语需要按字典序排列，同一前缀的词语才会相邻
+     */
+    private static class Builder {
+        private final String[] keys;
+        private final int[] ids;
+        private int[] base = new int[1 << 16];
+        private int[] check = new int[1 << 16];
+        private int[] value = new int[1 << 16];
+        private int nextCheckPos = 1;
+        private int size = 1;
+
+        Builder(Map<String, Integer> words) {
+            keys = new String[words.size()];
+            ids = new int[words.size()];
+            int i = 0;
+            for (Map.Entry<String, Integer> entry : words.entrySet()) {
+                keys[i] = entry.getKey();
+                ids[i] = entry.getValue();
+                i++;
+            }
+            Arrays.fill(check, FREE);
+            Arrays.fill(value, -1);
+        }
+
+        DoubleArrayTrie build() {
+            check[ROOT] = ROOT - 2;
+            insert(ROOT, 0, 0, keys.length);
+            return new DoubleArrayTrie(IntBuffer.wrap(Arrays.copyOf(base, size)), IntBuffer.wrap(Arrays.copyOf(check, size)),
+                    IntBuffer.wrap(Arrays.copyOf(value, size)));
+        }
+
+        /**
+         * keys[lo, hi) 拥有长度为 depth 的公共前缀，对应状态 s
+         */
+        private void insert(int s, int depth, int lo, int hi) {
+            if (lo < hi && keys[lo].length() == depth) {
+                value[s] = ids[lo];
+                lo++;
+            }
+            if (lo == hi) {
+                return;
+            }
+            // 按字符分组，每组对应一个子节点
+            List<int[]> children = new ArrayList<>();
+            int st = lo;
+            for (int i = lo + 1; i <= hi; i++) {
+                if (i == hi || keys[i].charAt(depth) != keys[st].charAt(depth)) {
+                    children.add(new int[]{keys[st].charAt(depth), st, i});
+                    st = i;
+                }
+            }
+            int b = findBase(children);
+            base[s] = b;
+            for (int[] child : children) {
+                check[b + child[0]] = s;
+            }
+            for (int[] child : children) {
+                insert(b + child[0], depth + 1, child[1], child[2]);
+            }
+        }
+
+        /**
+         * 寻找使所有子节点都落在空位上的 base
+         */
+        private int findBase(List<int[]> children) {
+            int first = children.get(0)[0];
+            int last = children.get(children.size() - 1)[0];
+            int pos = Math.max(first + 1, nextCheckPos);
+            int nonFree = 0;
+            boolean moved = false;
+            outer:
+            for (; ; pos++) {
+                ensureCapacity(pos + last - first + 1);
+                if (check[pos] != FREE) {
+                    nonFree++;
+                    continue;
+                }
+                if (!moved) {
+                    // nextCheckPos 之前几乎都已被占用，下次直接从第一个空位开始找
+                    moved = true;
+                    if (pos > nextCheckPos) {
+                        nextCheckPos = pos;
+                    }
+                }
+                int b = pos - first;
+                for (int[] child : children) {
+                    if (check[b + child[0]] != FREE) {
+                        continue outer;
+                    }
+                }
+                size = Math.max(size, b + last + 1);
+                if (1.0 * nonFree / (pos - nextCheckPos + 1) >= 0.95) {
+                    nextCheckPos = pos;
+                }
+                return b;
+            }
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity <= check.length) {
+                return;
+            }
+            int newCapacity = Math.max(capacity, check.length * 2);
+            int oldCapacity = check.length;
+            base = Arrays.copyOf(base, newCapacity);
+            check = Arrays.copyOf(check, newCapacity);
+            value = Arrays.copyOf(value, newCapacity);
+            Arrays.fill(check, oldCapacity, newCapacity, FREE);
+            Arrays.fill(value, oldCapacity, newCapacity, -1);
+        }
+    }
+}
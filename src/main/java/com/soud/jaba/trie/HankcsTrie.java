@@ -0,0 +1,107 @@
+package com.soud.jaba.trie;
+
+import com.hankcs.algorithm.AhoCorasickDoubleArrayTrie;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+import static com.soud.jaba.util.BufferUtils.readIntArray;
+import static com.soud.jaba.util.BufferUtils.readInts;
+import static com.soud.jaba.util.BufferUtils.writeIntArray;
+
+/**
+ * 基于 hankcs 的 AhoCorasickDoubleArrayTrie 实现，
+ * 用 Aho-Corasick 自动机一次扫描出文本中所有的词语，命中按结束位置递增给出
+ */
+public class HankcsTrie implements WordTrie {
+    private final ArrayTrie acTrie;
+
+    private HankcsTrie(ArrayTrie acTrie) {
+        this.acTrie = acTrie;
+    }
+
+    /**
+     * @param words 按字典序排列的词语和对应的 id
+     */
+    public static HankcsTrie build(Map<String, Integer> words) {
+        ArrayTrie acTrie = new ArrayTrie();
+        acTrie.build(words);
+        return new HankcsTrie(acTrie);
+    }
+
+    /**
+     * 从字典快照中还原
+     */
+    public static HankcsTrie load(ByteBuffer buffer) {
+        ArrayTrie acTrie = new ArrayTrie();
+        acTrie.load(buffer);
+        return new HankcsTrie(acTrie);
+    }
+
+    @Override
+    public int exactMatch(CharSequence word) {
+        // exactMatchSearch 返回的是词语在 trie 中的序号，需要再转成 id
+        int idx = acTrie.exactMatchSearch(word.toString());
+        return idx < 0 ? -1 : acTrie.get(idx);
+    }
+
+    @Override
+    public void parseText(CharSequence text, HitHandler handler) {
+        acTrie.parseText(text, (AhoCorasickDoubleArrayTrie.IHit<Integer>) handler::hit);
+    }
+
+    @Override
+    public void save(DataOutputStream out) throws IOException {
+        acTrie.save(out);
+    }
+
+    /**
+     * AhoCorasickDoubleArrayTrie 的数组都是 protected 的，继承后才能导出和还原
+     */
+    private static class ArrayTrie extends AhoCorasickDoubleArrayTrie<Integer> {
+        private static final long serialVersionUID = 1L;
+
+        void save(DataOutputStream out) throws IOException {
+            out.writeInt(size);
+            writeIntArray(out, base);
+            writeIntArray(out, check);
+            writeIntArray(out, fail);
+            writeIntArray(out, l);
+            // v 实际是 Object[]，只能逐个取出，每个值都对应一个 l
+            out.writeInt(l.length);
+            for (int i = 0; i < l.length; i++) {
+                out.writeInt(get(i));
+            }
+            out.writeInt(output.length);
+            for (int[] emits : output) {
+                if (emits == null) {
+                    out.writeInt(-1);
+                } else {
+                    writeIntArray(out, emits);
+                }
+            }
+        }
+
+        void load(ByteBuffer buffer) {
+            size = buffer.getInt();
+            base = readIntArray(buffer);
+            check = readIntArray(buffer);
+            fail = readIntArray(buffer);
+            l = readIntArray(buffer);
+            int[] values = readIntArray(buffer);
+            v = new Integer[values.length];
+            for (int i = 0; i < values.length; i++) {
+                v[i] = values[i];
+            }
+            output = new int[buffer.getInt()][];
+            for (int i = 0; i < output.length; i++) {
+                int length = buffer.getInt();
+                if (length >= 0) {
+                    output[i] = readInts(buffer, length);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.soud.jaba.trie;
+
+/**
+ * 接收 trie 命中的词语，不为每个命中创建对象
+ */
+@FunctionalInterface
+public interface HitHandler {
+
+    /**
+     * @param begin 词语在文本中的起始位置
+     * @param end 词语在文本中的结束位置（不含）
+     * @param wordId 词语 id
+     */
+    void hit(int begin, int end, int wordId);
+}
@@ -0,0 +1,25 @@
+package com.soud.jaba.trie;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * 存储字典词语的 trie，每个词语对应一个非负的 id
+ */
+public interface WordTrie {
+
+    /**
+     * 精确查询词语的 id，不存在时返回 -1
+     */
+    int exactMatch(CharSequence word);
+
+    /**
+     * 找出 text 中所有的字典词语，交给 handler 处理
+     */
+    void parseText(CharSequence text, HitHandler handler);
+
+    /**
+     * 把 trie 的数组写入字典快照
+     */
+    void save(DataOutputStream out) throws IOException;
+}
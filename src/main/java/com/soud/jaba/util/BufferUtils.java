@@ -0,0 +1,67 @@
+package com.soud.jaba.util;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * 读写字典快照等二进制文件时用到的 ByteBuffer 工具方法
+ */
+public class BufferUtils {
+
+    /**
+     * 从当前位置切出 bytes 个字节，并把 buffer 的位置移到切片之后
+     */
+    public static ByteBuffer slice(ByteBuffer buffer, int bytes) {
+        ByteBuffer slice = buffer.slice();
+        // 转成 Buffer 调用，避免在 java 8 上找不到协变返回的方法
+        ((Buffer) slice).limit(bytes);
+        ((Buffer) buffer).position(buffer.position() + bytes);
+        return slice;
+    }
+
+    /**
+     * 批量读取 length 个 int
+     */
+    public static int[] readInts(ByteBuffer buffer, int length) {
+        int[] result = new int[length];
+        slice(buffer, length * Integer.BYTES).asIntBuffer().get(result);
+        return result;
+    }
+
+    /**
+     * 读取以长度开头的 int 数组
+     */
+    public static int[] readIntArray(ByteBuffer buffer) {
+        return readInts(buffer, buffer.getInt());
+    }
+
+    /**
+     * 读取以长度开头的 int 数组，返回指向 buffer 的视图，不复制
+     */
+    public static IntBuffer intArrayView(ByteBuffer buffer) {
+        return slice(buffer, buffer.getInt() * Integer.BYTES).asIntBuffer();
+    }
+
+    /**
+     * 写入以长度开头的 int 数组，array 的 [0, limit)
+     */
+    public static void writeIntArray(DataOutputStream out, IntBuffer array) throws IOException {
+        out.writeInt(array.limit());
+        for (int i = 0; i < array.limit(); i++) {
+            out.writeInt(array.get(i));
+        }
+    }
+
+    /**
+     * 写入以长度开头的 int 数组
+     */
+    public static void writeIntArray(DataOutputStream out, int[] array) throws IOException {
+        out.writeInt(array.length);
+        for (int x : array) {
+            out.writeInt(x);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.soud.jaba.util;
+
+/**
+ * 查表的字符分类，代替分词时切分短句用的正则表达式，逐字符扫描一遍即可得到每个块的边界。
+ * 各类字符与原先的正则一致：
+ * <pre>
+ * HAN_DEFAULT  [一-鿕a-zA-Z0-9+#&amp;._%\-]   Jaba 中的短句
+ * SKIP         [ \t\n\x0B\f\r]                       即 \s，Jaba 中的空白字符
+ * HAN          [一-鿕]                       FinalSeg 中的中文短句
+ * ALNUM        [a-zA-Z0-9]                           FinalSeg 中的字母数字
+ * DIGIT        [0-9]
+ * </pre>
+ * 所有类别都只包含 BMP 中的字符，代理对的两个 char 都不属于任何类别，不会被拆到两个块中。
+ */
+public final class CharClassifier {
+    private static final byte HAN_DEFAULT = 1;
+    private static final byte SKIP = 1 << 1;
+    private static final byte HAN = 1 << 2;
+    private static final byte ALNUM = 1 << 3;
+    private static final byte DIGIT = 1 << 4;
+
+    private static final byte[] TYPES = new byte[Character.MAX_VALUE + 1];
+
+    static {
+        for (char c = '\u4E00'; c <= '\u9FD5'; c++) {
+            TYPES[c] |= HAN_DEFAULT | HAN;
+        }
+        for (char c = 'a'; c <= 'z'; c++) {
+            TYPES[c] |= HAN_DEFAULT | ALNUM;
+        }
+        for (char c = 'A'; c <= 'Z'; c++) {
+            TYPES[c] |= HAN_DEFAULT | ALNUM;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            TYPES[c] |= HAN_DEFAULT | ALNUM | DIGIT;
+        }
+        for (char c : "+#&._%-".toCharArray()) {
+            TYPES[c] |= HAN_DEFAULT;
+        }
+        for (char c : " \t\n\u000B\f\r".toCharArray()) {
+            TYPES[c] |= SKIP;
+        }
+    }
+
+    private CharClassifier() {
+    }
+
+    public static boolean isHanDefault(char c) {
+        return (TYPES[c] & HAN_DEFAULT) != 0;
+    }
+
+    public static boolean isSkip(char c) {
+        return (TYPES[c] & SKIP) != 0;
+    }
+
+    public static boolean isHan(char c) {
+        return (TYPES[c] & HAN) != 0;
+    }
+
+    public static boolean isAlnum(char c) {
+        return (TYPES[c] & ALNUM) != 0;
+    }
+
+    public static boolean isDigit(char c) {
+        return (TYPES[c] & DIGIT) != 0;
+    }
+
+    /**
+     * 从 start 开始连续的 HAN_DEFAULT 字符的结束位置（不含），不超过 end
+     */
+    public static int hanDefaultEnd(CharSequence text, int start, int end) {
+        return runEnd(text, start, end, HAN_DEFAULT, HAN_DEFAULT);
+    }
+
+    /**
+     * 从 start 开始连续的非 HAN_DEFAULT 字符的结束位置（不含），不超过 end
+     */
+    public static int otherEnd(CharSequence text, int start, int end) {
+        return runEnd(text, start, end, HAN_DEFAULT, 0);
+    }
+
+    /**
+     * 从 start 开始连续的 HAN 字符的结束位置（不含），不超过 end
+     */
+    public static int hanEnd(CharSequence text, int start, int end) {
+        return runEnd(text, start, end, HAN, HAN);
+    }
+
+    /**
+     * 从 start 开始连续的非 HAN 字符的结束位置（不含），不超过 end
+     */
+    public static int nonHanEnd(CharSequence text, int start, int end) {
+        return runEnd(text, start, end, HAN, 0);
+    }
+
+    /**
+     * 从 start 开始连续的非 SKIP 字符的结束位置（不含），不超过 end
+     */
+    public static int nonSkipEnd(CharSequence text, int start, int end) {
+        return runEnd(text, start, end, SKIP, 0);
+    }
+
+    /**
+     * 从 start 开始连续的非 ALNUM 字符的结束位置（不含），不超过 end
+     */
+    public static int nonAlnumEnd(CharSequence text, int start, int end) {
+        return runEnd(text, start, end, ALNUM, 0);
+    }
+
+    /**
+     * 从 start 开始的空白字符的结束位置（不含），\r\n 作为一个整体，即正则 (\r\n|\s)。
+     * start 处不是空白字符时返回 start
+     */
+    public static int skipEnd(CharSequence text, int start, int end) {
+        char c = text.charAt(start);
+        if (c == '\r' && start + 1 < end && text.charAt(start + 1) == '\n') {
+            return start + 2;
+        }
+        return isSkip(c) ? start + 1 : start;
+    }
+
+    /**
+     * 从 start 开始的字母数字串的结束位置（不含），即正则 [a-zA-Z0-9]+(?:\.\d+)?%?，
+     * start 处不是字母数字时返回 start
+     */
+    public static int alnumEnd(CharSequence text, int start, int end) {
+        int i = runEnd(text, start, end, ALNUM, ALNUM);
+        if (i == start) {
+            return start;
+        }
+        if (i + 1 < end && text.charAt(i) == '.' && isDigit(text.charAt(i + 1))) {
+            i = runEnd(text, i + 1, end, DIGIT, DIGIT);
+        }
+        if (i < end && text.charAt(i) == '%') {
+            i++;
+        }
+        return i;
+    }
+
+    private static int runEnd(CharSequence text, int start, int end, int mask, int expected) {
+        int i = start;
+        while (i < end && (TYPES[text.charAt(i)] & mask) == expected) {
+            i++;
+        }
+        return i;
+    }
+}
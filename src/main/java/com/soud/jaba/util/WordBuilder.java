@@ -3,8 +3,6 @@ package com.soud.jaba.util;
 import com.soud.jaba.SentenceDAG;
 
 public class WordBuilder {
-    private String sentence;
-
     private int start;
     private int end;
     private int wordFreq;
@@ -13,7 +11,6 @@ public class WordBuilder {
 
     public WordBuilder(SentenceDAG sentenceDAG) {
         this.sentenceDAG = sentenceDAG;
-        this.sentence = sentenceDAG.getSentence();
         this.start = -1;
         this.end = 0;
     }
@@ -35,14 +32,14 @@ public class WordBuilder {
     }
 
     public String build() {
-        String result = this.sentence.substring(this.start, this.end);
+        String result = this.sentenceDAG.getSentence().substring(this.start, this.end);
         this.start = -1;
         empty = true;
         return result;
     }
 
     public String build(boolean queryWordFreq) {
-        String result = this.sentence.substring(this.start, this.end);
+        String result = this.sentenceDAG.getSentence().substring(this.start, this.end);
         if (queryWordFreq) {
             wordFreq = this.sentenceDAG.getWordFreq(this.start, this.end);
         }
@@ -54,4 +51,20 @@ public class WordBuilder {
     public int getWordFreq() {
         return wordFreq;
     }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getEnd() {
+        return end;
+    }
+
+    /**
+     * 清空而不截取字符串
+     */
+    public void clear() {
+        this.start = -1;
+        empty = true;
+    }
 }
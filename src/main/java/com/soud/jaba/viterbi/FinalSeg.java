@@ -1,15 +1,19 @@
 package com.soud.jaba.viterbi;
 
-import com.soud.jaba.Pair;
-import com.soud.jaba.util.RegexSplitUtils;
+import com.soud.jaba.TokenHandler;
+import com.soud.jaba.enumeration.TokenKindEnum;
+import com.soud.jaba.util.CharClassifier;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.nio.charset.Charset;
 import java.util.*;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.soud.jaba.viterbi.HmmModel.B;
+import static com.soud.jaba.viterbi.HmmModel.E;
+import static com.soud.jaba.viterbi.HmmModel.M;
+import static com.soud.jaba.viterbi.HmmModel.S;
+import static com.soud.jaba.viterbi.HmmModel.STATE_NUM;
 
 /**
  * 使用 viterbi 算法识别出未登录词
@@ -17,28 +21,54 @@ import java.util.regex.Pattern;
  * @author Soud
  */
 public class FinalSeg {
-    private static final Pattern RE_HAN = Pattern.compile("([\u4E00-\u9FD5]+)");
-    private static final Pattern RE_SKIP = Pattern.compile("([a-zA-Z0-9]+(?:\\.\\d+)?%?)");
-    private static final double MIN_LOG_PROB_VALUE = -3.14e+100;
     /**
-     * 四种状态 B:begin, M:middle, E:end, S:single
+     * 每种状态可能的前一个状态
      */
-    private static char[] states = new char[]{'B', 'M', 'E', 'S'};
-    private static Map<Character, char[]> prevStatus;
+    private static final int[][] PREV_STATUS = new int[][]{{E, S}, {M, B}, {B, M}, {S, E}};
     private static final String EMIT_P_PATH = "/prob_emit.txt";
-    private HashSet<String> forceSplitWords = new HashSet<>();
     /**
-     * 状态之间的转移概率
+     * 构建时由 prob_emit.txt 生成的二进制模型，见 {@link HmmModelCompiler}
+     */
+    private static final String MODEL_PATH = "/prob_hmm.bin";
+    /**
+     * 需要强制拆成单字的词，分词时可能被其他线程并发读取
      */
-    private HashMap<Pair<Character, Character>, Double> transP = new HashMap<>();
+    private final Set<String> forceSplitWords = ConcurrentHashMap.newKeySet();
+    private volatile HmmModel model;
     /**
-     * 状态的开始概率
+     * 模型或强制拆分的词每次修改后递增，分词结果的缓存据此失效
      */
-    private HashMap<Character, Double> startP = new HashMap<>();
+    private volatile int version;
+
     /**
-     * 单字与每种状态的发射概率
+     * 每个线程复用的 viterbi 缓冲区
      */
-    private HashMap<Character, HashMap<Character, Double>> emitP = new HashMap<>();
+    private static final ThreadLocal<Workspace> WORKSPACE = ThreadLocal.withInitial(Workspace::new);
+
+    private static class Workspace {
+        double[] v = new double[STATE_NUM];
+        double[] newV = new double[STATE_NUM];
+        /**
+         * 回溯指针，下标为 位置 * 4 + 状态，值为前一个位置的状态
+         */
+        byte[] path = new byte[64 * STATE_NUM];
+        /**
+         * 回溯得到的每个位置的状态
+         */
+        byte[] posList = new byte[64];
+        /**
+         * 正在输出词语，handler 再次分词时不能复用
+         */
+        boolean busy;
+
+        void ensureCapacity(int len) {
+            if (posList.length < len) {
+                int capacity = Math.max(len, posList.length * 2);
+                path = new byte[capacity * STATE_NUM];
+                posList = new byte[capacity];
+            }
+        }
+    }
 
     private FinalSeg() {
         loadModel();
@@ -52,151 +82,208 @@ public class FinalSeg {
         return FinalSeg.FinalSegHolder.instance;
     }
 
+    /**
+     * 优先加载二进制模型，不存在时再解析 prob_emit.txt
+     */
     private void loadModel() {
-        prevStatus = new HashMap<>();
-        prevStatus.put('B', new char[]{'E', 'S'});
-        prevStatus.put('M', new char[]{'M', 'B'});
-        prevStatus.put('S', new char[]{'S', 'E'});
-        prevStatus.put('E', new char[]{'B', 'M'});
-
-        // load from:
-        // https://github.com/fxsjy/jieba/blob/master/jieba/finalseg/prob_start.py
-        // https://github.com/fxsjy/jieba/blob/master/jieba/finalseg/prob_trans.py
-        // https://github.com/fxsjy/jieba/blob/master/jieba/finalseg/prob_emit.py
-        startP.put('B', -0.26268660809250016);
-        startP.put('E', -3.14e+100);
-        startP.put('M', -3.14e+100);
-        startP.put('S', -1.4652633398537678);
-
-        transP.put(Pair.of('B', 'E'), -0.510825623765990);
-        transP.put(Pair.of('B', 'M'), -0.916290731874155);
-        transP.put(Pair.of('E', 'B'), -0.5897149736854513);
-        transP.put(Pair.of('E', 'S'), -0.8085250474669937);
-        transP.put(Pair.of('M', 'E'), -0.33344856811948514);
-        transP.put(Pair.of('M', 'M'), -1.2603623820268226);
-        transP.put(Pair.of('S', 'B'), -0.7211965654669841);
-        transP.put(Pair.of('S', 'S'), -0.6658631448798212);
-
-        InputStream inputStream = getClass().getResourceAsStream(EMIT_P_PATH);
+        String path = MODEL_PATH;
+        InputStream inputStream = getClass().getResourceAsStream(MODEL_PATH);
         try {
-            BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(inputStream, Charset.forName("UTF-8")));
-            HashMap<Character, Double> emitProbMap = null;
-            while (bufferedReader.ready()) {
-                String line = bufferedReader.readLine();
-                String[] tokens = line.split("\t");
-                if (tokens.length == 1) {
-                    emitProbMap = new HashMap<>();
-                    emitP.put(tokens[0].charAt(0), emitProbMap);
-                } else {
-                    assert emitProbMap != null;
-                    emitProbMap.put(tokens[0].charAt(0), Double.valueOf(tokens[1]));
-                }
+            if (inputStream != null) {
+                model = HmmModel.load(inputStream);
+            } else {
+                path = EMIT_P_PATH;
+                inputStream = getClass().getResourceAsStream(EMIT_P_PATH);
+                model = HmmModel.fromText(inputStream, null, null);
             }
         } catch (IOException e) {
-            System.err.println(String.format(Locale.getDefault(), "%s load failed!", EMIT_P_PATH));
+            System.err.println(String.format(Locale.getDefault(), "%s load failed!", path));
         } finally {
             try {
                 if (inputStream != null) {
                     inputStream.close();
                 }
             } catch (IOException e) {
-                System.err.println(String.format(Locale.getDefault(), "%s close failed!", EMIT_P_PATH));
+                System.err.println(String.format(Locale.getDefault(), "%s close failed!", path));
             }
         }
+    }
+
+    /**
+     * 加载另外训练的二进制 HMM 模型，替换当前模型
+     * @param inputStream {@link HmmModelCompiler} 生成的模型
+     */
+    public void loadModel(InputStream inputStream) throws IOException {
+        loadModel(HmmModel.load(inputStream));
+    }
+
+    /**
+     * 替换当前使用的 HMM 模型
+     */
+    public synchronized void loadModel(HmmModel model) {
+        this.model = model;
+        version++;
+    }
+
+    public synchronized void addForceSplitWord(String word) {
+        if (forceSplitWords.add(word)) {
+            version++;
+        }
+    }
 
+    public int getVersion() {
+        return version;
     }
 
-    public void addForceSplitWord(String word) {
-        forceSplitWords.add(word);
+    /**
+     * 当前 HMM 模型占用的内存字节数
+     */
+    public long getModelFootprint() {
+        HmmModel model = this.model;
+        return model == null ? 0 : model.footprint();
     }
 
-    private List<String> viterbi(String sentence) {
-        List<String> tokens = new ArrayList<>();
-        List<Map<Character, Double>> v = new ArrayList<>();
-        Map<Character, Node> path = new HashMap<>();
+    /**
+     * 在稠密的发射概率表和 4x4 的转移矩阵上计算最大概率的状态序列，并据此切分 text 的 [start, end)
+     */
+    private void viterbi(CharSequence text, int start, int end, Set<String> extraForceSplitWords, TokenHandler handler) {
+        int len = end - start;
+        HmmModel model = this.model;
+        double[] startP = model.startP;
+        double[][] transP = model.transP;
+        double[] emitP = model.emitP;
+        Workspace workspace = WORKSPACE.get();
+        if (workspace.busy) {
+            // handler 在输出词语时又调用了分词，使用单独的缓冲区，不覆盖外层的状态序列
+            workspace = new Workspace();
+        }
+        workspace.ensureCapacity(len);
+        double[] v = workspace.v;
+        double[] newV = workspace.newV;
+        byte[] path = workspace.path;
+        byte[] posList = workspace.posList;
 
         // 初始化路径上的概率
-        v.add(new HashMap<>(4));
-        for (char state : states) {
-            Double emP = emitP.get(state).getOrDefault(sentence.charAt(0), MIN_LOG_PROB_VALUE);
-            v.get(0).put(state, startP.get(state) + emP);
-            path.put(state, new Node(state, null));
+        int c = text.charAt(start) * STATE_NUM;
+        for (int state = 0; state < STATE_NUM; state++) {
+            v[state] = startP[state] + emitP[c + state];
         }
 
         //对于句子
-        for (int i = 1; i < sentence.length(); i++) {
-            v.add(new HashMap<>(4));
-            Map<Character, Node> newPath = new HashMap<>();
-            for (char y : states) {
-                Double prob = emitP.get(y).getOrDefault(sentence.charAt(i), MIN_LOG_PROB_VALUE);
-                Pair<Character, Double> candidate = null;
-                for (char y0 : prevStatus.get(y)) {
-                    Double p = transP.getOrDefault(Pair.of(y0, y), MIN_LOG_PROB_VALUE);
-                    p += (prob + v.get(i - 1).get(y0));
-                    if (candidate == null || candidate.getValue() <= p) {
-                        candidate = Pair.of(y0, p);
+        for (int i = 1; i < len; i++) {
+            c = text.charAt(start + i) * STATE_NUM;
+            for (int y = 0; y < STATE_NUM; y++) {
+                double prob = emitP[c + y];
+                int candidate = -1;
+                double candidateProb = 0;
+                for (int y0 : PREV_STATUS[y]) {
+                    double p = transP[y0][y] + (prob + v[y0]);
+                    if (candidate < 0 || candidateProb <= p) {
+                        candidate = y0;
+                        candidateProb = p;
                     }
                 }
-                assert candidate != null;
-                v.get(v.size() - 1).put(y, candidate.getValue());
-                newPath.put(y, new Node(y, path.get(candidate.getKey())));
+                newV[y] = candidateProb;
+                path[i * STATE_NUM + y] = (byte) candidate;
             }
-            path = newPath;
+            double[] tmp = v;
+            v = newV;
+            newV = tmp;
         }
 
         // 回溯找到viterbi计算出的最大概率的路径
-        Map<Character, Double> lastElement = v.get(v.size() - 1);
-        double probE = lastElement.get('E');
-        double probS = lastElement.get('S');
-        LinkedList<Character> posList = new LinkedList<>();
-        Node node = path.get('E');
-        if (probE < probS) {
-            node = path.get('S');
-        }
-        while (node != null) {
-            posList.addFirst(node.getValue());
-            node = node.getParent();
+        int state = v[E] < v[S] ? S : E;
+        for (int i = len - 1; i >= 0; i--) {
+            posList[i] = (byte) state;
+            state = path[i * STATE_NUM + state];
         }
 
         // 根据状态序列分词
-        int begin = 0, next = 0;
-        for (int i = 0; i < sentence.length(); ++i) {
-            char pos = posList.get(i);
-            if (pos == 'B') {
-                begin = i;
-            } else if (pos == 'E') {
-                tokens.add(sentence.substring(begin, i + 1));
-                next = i + 1;
-            } else if (pos == 'S') {
-                tokens.add(sentence.substring(i, i + 1));
-                next = i + 1;
+        workspace.busy = true;
+        try {
+            int begin = 0, next = 0;
+            for (int i = 0; i < len; ++i) {
+                int pos = posList[i];
+                if (pos == B) {
+                    begin = i;
+                } else if (pos == E) {
+                    word(text, start + begin, start + i + 1, extraForceSplitWords, handler);
+                    next = i + 1;
+                } else if (pos == S) {
+                    word(text, start + i, start + i + 1, extraForceSplitWords, handler);
+                    next = i + 1;
+                }
+            }
+            if (next < len) {
+                word(text, start + next, end, extraForceSplitWords, handler);
             }
+        } finally {
+            workspace.busy = false;
         }
-        if (next < sentence.length()) {
-            tokens.add(sentence.substring(next));
+    }
+
+    /**
+     * 输出 viterbi 切出的词，需要强制拆开的词逐字输出
+     */
+    private void word(CharSequence text, int start, int end, Set<String> extraForceSplitWords, TokenHandler handler) {
+        if (end - start > 1 && (!forceSplitWords.isEmpty() || !extraForceSplitWords.isEmpty())
+                && isForceSplit(text.subSequence(start, end).toString(), extraForceSplitWords)) {
+            for (int i = start; i < end; i++) {
+                handler.token(i, i + 1, TokenKindEnum.HMM);
+            }
+        } else {
+            handler.token(start, end, TokenKindEnum.HMM);
         }
+    }
 
-        return tokens;
+    private boolean isForceSplit(String word, Set<String> extraForceSplitWords) {
+        return forceSplitWords.contains(word) || extraForceSplitWords.contains(word);
     }
 
     public List<String> cut(String sentence) {
         List<String> result = new ArrayList<>();
+        tokenize(sentence, 0, sentence.length(), (start, end, kind) -> result.add(sentence.substring(start, end)));
+        return result;
+    }
+
+    /**
+     * 对 text 的 [start, end) 分词，词的位置是在 text 中的位置
+     */
+    public void tokenize(CharSequence text, int start, int end, TokenHandler handler) {
+        tokenize(text, start, end, Collections.emptySet(), handler);
+    }
+
+    /**
+     * 对 text 的 [start, end) 分词，除了 {@link #addForceSplitWord(String)} 添加的词，
+     * extraForceSplitWords 中的词也拆成单字
+     */
+    public void tokenize(CharSequence text, int start, int end, Set<String> extraForceSplitWords, TokenHandler handler) {
         // 将句子分割成多个中文短句和非中文短句
-        for (String block : RegexSplitUtils.split(RE_HAN, sentence)) {
-            if (RE_HAN.matcher(block).matches()) {
+        while (start < end) {
+            if (CharClassifier.isHan(text.charAt(start))) {
                 // 对于中文短句，使用viterbi划分未登录词
-                for (String word : viterbi(block)) {
-                    if (forceSplitWords.contains(word)) {
-                        result.addAll(Arrays.asList(word.split("")));
-                    } else {
-                        result.add(word);
-                    }
-                }
+                int hanEnd = CharClassifier.hanEnd(text, start, end);
+                viterbi(text, start, hanEnd, extraForceSplitWords, handler);
+                start = hanEnd;
             } else {
-                // 处理非中文短句
-                result.addAll(RegexSplitUtils.split(RE_SKIP, block));
+                int nonHanEnd = CharClassifier.nonHanEnd(text, start, end);
+                skip(text, start, nonHanEnd, handler);
+                start = nonHanEnd;
             }
         }
-        return result;
+    }
+
+    /**
+     * 处理非中文短句，字母数字作为整体，其余部分保留
+     */
+    private void skip(CharSequence text, int start, int end, TokenHandler handler) {
+        while (start < end) {
+            int next = CharClassifier.alnumEnd(text, start, end);
+            if (next == start) {
+                next = CharClassifier.nonAlnumEnd(text, start, end);
+            }
+            handler.token(start, next, TokenKindEnum.HMM);
+            start = next;
+        }
     }
 }
@@ -0,0 +1,239 @@
+package com.soud.jaba.viterbi;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.soud.jaba.util.BufferUtils.slice;
+
+/**
+ * finalseg 使用的 HMM 模型：开始概率、转移概率和发射概率。
+ *
+ * 二进制格式（大端序）：
+ * <pre>
+ * int      magic, version
+ * byte     精度，0 为 double，1 为 float
+ * double[] startP[4], transP[4 * 4]
+ * 每种状态：int count, char[count] 字, double[count] 或 float[count] 发射概率
+ * </pre>
+ * 由 {@link HmmModelCompiler} 从文本模型生成，加载时一次读入整个文件。
+ */
+public class HmmModel {
+    private static final int MAGIC = 0x4A484D4D;
+    private static final int VERSION = 1;
+    static final double MIN_LOG_PROB_VALUE = -3.14e+100;
+    /**
+     * 四种状态 B:begin, M:middle, E:end, S:single，下标即状态的序号
+     */
+    static final int B = 0;
+    static final int M = 1;
+    static final int E = 2;
+    static final int S = 3;
+    static final int STATE_NUM = 4;
+    private static final String STATE_NAMES = "BMES";
+
+    /**
+     * 状态的开始概率
+     */
+    final double[] startP = new double[STATE_NUM];
+    /**
+     * 状态之间的转移概率，transP[from][to]
+     */
+    final double[][] transP = new double[STATE_NUM][STATE_NUM];
+    /**
+     * 单字与每种状态的发射概率，下标为 字符 * 4 + 状态，未出现的字为 MIN_LOG_PROB_VALUE
+     */
+    final double[] emitP = new double[(Character.MAX_VALUE + 1) * STATE_NUM];
+
+    private HmmModel() {
+        Arrays.fill(startP, MIN_LOG_PROB_VALUE);
+        for (double[] row : transP) {
+            Arrays.fill(row, MIN_LOG_PROB_VALUE);
+        }
+        Arrays.fill(emitP, MIN_LOG_PROB_VALUE);
+    }
+
+    /**
+     * 模型数组占用的内存字节数
+     */
+    long footprint() {
+        return 8L * (startP.length + STATE_NUM * STATE_NUM + emitP.length);
+    }
+
+    /**
+     * 从文本文件读取模型，文本格式与 jieba 的 prob_emit.py 等一致：
+     * 一行状态名，接着若干行 "字\t概率"。
+     * 开始概率文件每行为 "状态\t概率"，转移概率文件和发射概率文件格式相同，字换成了后一个状态。
+     *
+     * @param emit 发射概率
+     * @param start 开始概率，为 null 时使用 jieba 的默认值
+     * @param trans 转移概率，为 null 时使用 jieba 的默认值
+     */
+    public static HmmModel fromText(InputStream emit, InputStream start, InputStream trans) throws IOException {
+        HmmModel model = new HmmModel();
+        if (start == null) {
+            // load from:
+            // https://github.com/fxsjy/jieba/blob/master/jieba/finalseg/prob_start.py
+            model.startP[B] = -0.26268660809250016;
+            model.startP[E] = -3.14e+100;
+            model.startP[M] = -3.14e+100;
+            model.startP[S] = -1.4652633398537678;
+        } else {
+            for (String line : readLines(start)) {
+                String[] tokens = line.split("\t");
+                model.startP[state(tokens[0])] = Double.parseDouble(tokens[1]);
+            }
+        }
+        if (trans == null) {
+            // https://github.com/fxsjy/jieba/blob/master/jieba/finalseg/prob_trans.py
+            model.transP[B][E] = -0.510825623765990;
+            model.transP[B][M] = -0.916290731874155;
+            model.transP[E][B] = -0.5897149736854513;
+            model.transP[E][S] = -0.8085250474669937;
+            model.transP[M][E] = -0.33344856811948514;
+            model.transP[M][M] = -1.2603623820268226;
+            model.transP[S][B] = -0.7211965654669841;
+            model.transP[S][S] = -0.6658631448798212;
+        } else {
+            int from = -1;
+            for (String line : readLines(trans)) {
+                String[] tokens = line.split("\t");
+                if (tokens.length == 1) {
+                    from = state(tokens[0]);
+                } else {
+                    model.transP[from][state(tokens[0])] = Double.parseDouble(tokens[1]);
+                }
+            }
+        }
+        // https://github.com/fxsjy/jieba/blob/master/jieba/finalseg/prob_emit.py
+        int state = -1;
+        for (String line : readLines(emit)) {
+            String[] tokens = line.split("\t");
+            if (tokens.length == 1) {
+                state = state(tokens[0]);
+            } else {
+                model.emitP[tokens[0].charAt(0) * STATE_NUM + state] = Double.parseDouble(tokens[1]);
+            }
+        }
+        return model;
+    }
+
+    /**
+     * 从二进制模型的输入流加载，整个流一次性读入后再解析
+     */
+    public static HmmModel load(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 18);
+        byte[] buf = new byte[1 << 16];
+        int n;
+        while ((n = inputStream.read(buf)) > 0) {
+            bytes.write(buf, 0, n);
+        }
+        return load(ByteBuffer.wrap(bytes.toByteArray()));
+    }
+
+    /**
+     * 从二进制模型加载，buffer 也可以是 mmap 得到的 MappedByteBuffer
+     */
+    public static HmmModel load(ByteBuffer buffer) throws IOException {
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("not a jaba hmm model");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("unsupported hmm model version " + version);
+        }
+        boolean floatPrecision = buffer.get() == 1;
+        HmmModel model = new HmmModel();
+        for (int i = 0; i < STATE_NUM; i++) {
+            model.startP[i] = buffer.getDouble();
+        }
+        for (double[] row : model.transP) {
+            for (int i = 0; i < STATE_NUM; i++) {
+                row[i] = buffer.getDouble();
+            }
+        }
+        for (int state = 0; state < STATE_NUM; state++) {
+            char[] chars = new char[buffer.getInt()];
+            slice(buffer, chars.length * Character.BYTES).asCharBuffer().get(chars);
+            for (char c : chars) {
+                model.emitP[c * STATE_NUM + state] = floatPrecision ? buffer.getFloat() : buffer.getDouble();
+            }
+        }
+        return model;
+    }
+
+    /**
+     * 写成二进制模型
+     *
+     * @param floatPrecision 发射概率是否以 float 保存，文件更小，但结果可能和 double 精度时略有差异
+     */
+    public void save(OutputStream outputStream, boolean floatPrecision) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeByte(floatPrecision ? 1 : 0);
+        for (double p : startP) {
+            out.writeDouble(p);
+        }
+        for (double[] row : transP) {
+            for (double p : row) {
+                out.writeDouble(p);
+            }
+        }
+        for (int state = 0; state < STATE_NUM; state++) {
+            int count = 0;
+            for (int c = 0; c <= Character.MAX_VALUE; c++) {
+                if (emitP[c * STATE_NUM + state] != MIN_LOG_PROB_VALUE) {
+                    count++;
+                }
+            }
+            out.writeInt(count);
+            for (int c = 0; c <= Character.MAX_VALUE; c++) {
+                if (emitP[c * STATE_NUM + state] != MIN_LOG_PROB_VALUE) {
+                    out.writeChar(c);
+                }
+            }
+            for (int c = 0; c <= Character.MAX_VALUE; c++) {
+                double p = emitP[c * STATE_NUM + state];
+                if (p != MIN_LOG_PROB_VALUE) {
+                    if (floatPrecision) {
+                        out.writeFloat((float) p);
+                    } else {
+                        out.writeDouble(p);
+                    }
+                }
+            }
+        }
+        out.flush();
+    }
+
+    private static int state(String name) throws IOException {
+        int state = name.length() == 1 ? STATE_NAMES.indexOf(name.charAt(0)) : -1;
+        if (state < 0) {
+            throw new IOException("unknown hmm state " + name);
+        }
+        return state;
+    }
+
+    private static List<String> readLines(InputStream inputStream) throws IOException {
+        BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        List<String> lines = new ArrayList<>();
+        String line;
+        while ((line = bufferedReader.readLine()) != null) {
+            if (!line.isEmpty()) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+}
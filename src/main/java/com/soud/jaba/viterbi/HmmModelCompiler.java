@@ -0,0 +1,44 @@
+package com.soud.jaba.viterbi;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 把文本格式的 HMM 模型编译成二进制模型，构建时由 exec-maven-plugin 生成 prob_hmm.bin。
+ * <pre>
+ * java -cp jaba.jar com.soud.jaba.viterbi.HmmModelCompiler prob_hmm.bin prob_emit.txt [prob_start.txt prob_trans.txt] [--float]
+ * </pre>
+ * 不指定开始概率和转移概率文件时使用 jieba 的默认值，--float 表示发射概率以 float 保存。
+ */
+public class HmmModelCompiler {
+
+    public static void main(String[] args) throws IOException {
+        boolean floatPrecision = false;
+        List<String> paths = new ArrayList<>();
+        for (String arg : args) {
+            if ("--float".equals(arg)) {
+                floatPrecision = true;
+            } else {
+                paths.add(arg);
+            }
+        }
+        if (paths.size() != 2 && paths.size() != 4) {
+            System.err.println("usage: HmmModelCompiler <output> <prob_emit.txt> [<prob_start.txt> <prob_trans.txt>] [--float]");
+            System.exit(1);
+        }
+        HmmModel model;
+        try (InputStream emit = Files.newInputStream(Paths.get(paths.get(1)));
+             InputStream start = paths.size() > 2 ? Files.newInputStream(Paths.get(paths.get(2))) : null;
+             InputStream trans = paths.size() > 3 ? Files.newInputStream(Paths.get(paths.get(3))) : null) {
+            model = HmmModel.fromText(emit, start, trans);
+        }
+        try (OutputStream outputStream = Files.newOutputStream(Paths.get(paths.get(0)))) {
+            model.save(outputStream, floatPrecision);
+        }
+    }
+}
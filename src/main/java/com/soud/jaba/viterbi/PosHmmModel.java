@@ -0,0 +1,342 @@
+package com.soud.jaba.viterbi;
+
+import com.soud.jaba.util.CharClassifier;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import static com.soud.jaba.viterbi.HmmModel.B;
+import static com.soud.jaba.viterbi.HmmModel.E;
+import static com.soud.jaba.viterbi.HmmModel.M;
+import static com.soud.jaba.viterbi.HmmModel.MIN_LOG_PROB_VALUE;
+import static com.soud.jaba.viterbi.HmmModel.S;
+import static com.soud.jaba.viterbi.HmmModel.STATE_NUM;
+
+/**
+ * 词性标注使用的联合 HMM，状态为 (B/M/E/S, 词性)，序号为 词性序号 * 4 + B/M/E/S。
+ * <p>
+ * 模型由带词性的字典训练，每个词按词频计数：
+ * 词语内部只在同一词性的 B、M、E 之间转移；词语之间的转移假设与前一个词无关，即等于下一个词的开始概率，
+ * 所以切分固定时每个词可以单独标注。
+ */
+public class PosHmmModel {
+    private static final int MAGIC = 0x4A504F53;
+    private static final int VERSION = 1;
+    private static final String UNKNOWN_TAG = "x";
+    private static final String ENGLISH_TAG = "eng";
+    private static final String NUMERAL_TAG = "m";
+    private static final int BM = 0;
+    private static final int BE = 1;
+    private static final int MM = 2;
+    private static final int ME = 3;
+
+    final String[] tags;
+    final int stateNum;
+    /**
+     * 每个状态的开始概率，也是从上一个词的 E、S 状态转移过来的概率
+     */
+    final double[] startP;
+    /**
+     * 词语内部的转移概率，下标为 词性序号 * 4 + BM/BE/MM/ME
+     */
+    final double[] innerTransP;
+    /**
+     * 每个字可能的状态（递增）和对应的发射概率，训练时没有出现的字为 null
+     */
+    final int[][] charStates = new int[Character.MAX_VALUE + 1][];
+    final double[][] charEmitP = new double[Character.MAX_VALUE + 1][];
+
+    private PosHmmModel(String[] tags) {
+        this.tags = tags;
+        this.stateNum = tags.length * STATE_NUM;
+        this.startP = new double[stateNum];
+        this.innerTransP = new double[tags.length * 4];
+    }
+
+    /**
+     * 用带词性的字典训练模型，没有词性或词频为 0 的词不参与训练
+     * @param words 按词语 id 排列的词语
+     * @param freqs 按词语 id 排列的词频
+     * @param tags 按词语 id 排列的词性，可以为 null
+     */
+    public static PosHmmModel train(List<String> words, int[] freqs, String[] tags) {
+        // 词性种类很少，先收集再按字典序编号
+        HashMap<String, Integer> tagIds = new HashMap<>();
+        if (tags != null) {
+            for (String tag : tags) {
+                if (tag != null) {
+                    tagIds.putIfAbsent(tag, 0);
+                }
+            }
+        }
+        String[] tagNames = tagIds.keySet().toArray(new String[0]);
+        Arrays.sort(tagNames);
+        for (int tagId = 0; tagId < tagNames.length; tagId++) {
+            tagIds.put(tagNames[tagId], tagId);
+        }
+        PosHmmModel model = new PosHmmModel(tagNames);
+        int stateNum = model.stateNum;
+        double[] startCount = new double[stateNum];
+        double[] innerCount = new double[model.innerTransP.length];
+        double[] stateCount = new double[stateNum];
+        // 每个字的每次出现记为 (字 * 状态数 + 状态) << 32 | 词频，排序后相同的键相邻
+        long[] emissions = new long[1024];
+        int emissionNum = 0;
+        for (int id = 0; tags != null && id < tags.length; id++) {
+            int freq = freqs[id];
+            if (tags[id] == null || freq <= 0) {
+                continue;
+            }
+            String word = words.get(id);
+            int len = word.length();
+            int base = tagIds.get(tags[id]) * STATE_NUM;
+            startCount[base + (len == 1 ? S : B)] += freq;
+            if (emissionNum + len > emissions.length) {
+                emissions = Arrays.copyOf(emissions, Math.max(emissionNum + len, emissions.length * 2));
+            }
+            for (int i = 0; i < len; i++) {
+                int state = base + (len == 1 ? S : i == 0 ? B : i == len - 1 ? E : M);
+                stateCount[state] += freq;
+                emissions[emissionNum++] = ((long) word.charAt(i) * stateNum + state) << 32 | freq;
+            }
+            int inner = base / STATE_NUM * 4;
+            if (len == 2) {
+                innerCount[inner + BE] += freq;
+            } else if (len > 2) {
+                innerCount[inner + BM] += freq;
+                innerCount[inner + MM] += (double) (len - 3) * freq;
+                innerCount[inner + ME] += freq;
+            }
+        }
+
+        double startTotal = 0;
+        for (double count : startCount) {
+            startTotal += count;
+        }
+        for (int state = 0; state < stateNum; state++) {
+            model.startP[state] = logProb(startCount[state], startTotal);
+        }
+        for (int inner = 0; inner < innerCount.length; inner += 4) {
+            double fromB = innerCount[inner + BM] + innerCount[inner + BE];
+            double fromM = innerCount[inner + MM] + innerCount[inner + ME];
+            model.innerTransP[inner + BM] = logProb(innerCount[inner + BM], fromB);
+            model.innerTransP[inner + BE] = logProb(innerCount[inner + BE], fromB);
+            model.innerTransP[inner + MM] = logProb(innerCount[inner + MM], fromM);
+            model.innerTransP[inner + ME] = logProb(innerCount[inner + ME], fromM);
+        }
+
+        // 合并相同的键，合并后同一个字的状态连续且递增
+        Arrays.sort(emissions, 0, emissionNum);
+        int[] keys = new int[emissionNum];
+        double[] emitCount = new double[emissionNum];
+        int keyNum = 0;
+        for (int i = 0; i < emissionNum; i++) {
+            int key = (int) (emissions[i] >>> 32);
+            if (keyNum == 0 || keys[keyNum - 1] != key) {
+                keys[keyNum++] = key;
+            }
+            emitCount[keyNum - 1] += (int) emissions[i];
+        }
+        for (int from = 0; from < keyNum; ) {
+            int c = keys[from] / stateNum;
+            int to = from;
+            while (to < keyNum && keys[to] / stateNum == c) {
+                to++;
+            }
+            int[] states = new int[to - from];
+            double[] emitP = new double[to - from];
+            for (int i = from; i < to; i++) {
+                int state = keys[i] % stateNum;
+                states[i - from] = state;
+                emitP[i - from] = logProb(emitCount[i], stateCount[state]);
+            }
+            model.charStates[c] = states;
+            model.charEmitP[c] = emitP;
+            from = to;
+        }
+        return model;
+    }
+
+    /**
+     * 从二进制模型的输入流加载
+     */
+    public static PosHmmModel load(InputStream inputStream) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(inputStream));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("not a jaba part-of-speech model");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("unsupported part-of-speech model version " + version);
+        }
+        String[] tags = new String[in.readInt()];
+        for (int i = 0; i < tags.length; i++) {
+            tags[i] = in.readUTF().intern();
+        }
+        PosHmmModel model = new PosHmmModel(tags);
+        for (int i = 0; i < model.startP.length; i++) {
+            model.startP[i] = in.readDouble();
+        }
+        for (int i = 0; i < model.innerTransP.length; i++) {
+            model.innerTransP[i] = in.readDouble();
+        }
+        int charNum = in.readInt();
+        for (int n = 0; n < charNum; n++) {
+            char c = in.readChar();
+            int[] states = new int[in.readInt()];
+            double[] emitP = new double[states.length];
+            for (int i = 0; i < states.length; i++) {
+                states[i] = in.readInt();
+                emitP[i] = in.readDouble();
+            }
+            model.charStates[c] = states;
+            model.charEmitP[c] = emitP;
+        }
+        return model;
+    }
+
+    /**
+     * 写成二进制模型
+     */
+    public void save(OutputStream outputStream) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(tags.length);
+        for (String tag : tags) {
+            out.writeUTF(tag);
+        }
+        for (double p : startP) {
+            out.writeDouble(p);
+        }
+        for (double p : innerTransP) {
+            out.writeDouble(p);
+        }
+        int charNum = 0;
+        for (int[] states : charStates) {
+            if (states != null) {
+                charNum++;
+            }
+        }
+        out.writeInt(charNum);
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            int[] states = charStates[c];
+            if (states != null) {
+                out.writeChar(c);
+                out.writeInt(states.length);
+                for (int i = 0; i < states.length; i++) {
+                    out.writeInt(states[i]);
+                    out.writeDouble(charEmitP[c][i]);
+                }
+            }
+        }
+        out.flush();
+    }
+
+    private static double logProb(double count, double total) {
+        return count > 0 ? Math.log(count / total) : MIN_LOG_PROB_VALUE;
+    }
+
+    /**
+     * 词语内部从 from 转移到 to 的概率，from 为 B 或 M，to 为同一词性的 M 或 E
+     */
+    double innerTransP(int from, int to) {
+        int inner = from / STATE_NUM * 4;
+        if ((from & 3) == B) {
+            return innerTransP[inner + ((to & 3) == M ? BM : BE)];
+        }
+        return innerTransP[inner + ((to & 3) == M ? MM : ME)];
+    }
+
+    /**
+     * 给已经切分好的词 text[start, end) 标注词性：
+     * 中文词语内部的状态固定为 B、M...、E 或 S，只在词性之间选择概率最大的一个；
+     * 非中文的词中连续的数字为 m，其余字母数字为 eng，其他字符为 x
+     */
+    public String tag(CharSequence text, int start, int end) {
+        if (!CharClassifier.isHan(text.charAt(start))) {
+            if (CharClassifier.alnumEnd(text, start, end) < end) {
+                return UNKNOWN_TAG;
+            }
+            return isNumeral(text, start, end) ? NUMERAL_TAG : ENGLISH_TAG;
+        }
+        if (stateNum == 0) {
+            return UNKNOWN_TAG;
+        }
+        int firstPos = end - start == 1 ? S : B;
+        // 先只考虑第一个字见过的词性，都不符合时考虑所有词性
+        int[] firstStates = charStates[text.charAt(start)];
+        int best = -1;
+        double bestProb = 0;
+        for (int pass = 0; pass < 2 && best < 0; pass++) {
+            int candidateCount = pass == 0 ? firstStates == null ? 0 : firstStates.length : tags.length;
+            for (int k = 0; k < candidateCount; k++) {
+                int tag;
+                if (pass == 0) {
+                    if ((firstStates[k] & 3) != firstPos) {
+                        continue;
+                    }
+                    tag = firstStates[k] / STATE_NUM;
+                } else {
+                    tag = k;
+                }
+                double prob = wordProb(text, start, end, tag, best < 0 ? Double.NEGATIVE_INFINITY : bestProb);
+                if (best < 0 || prob > bestProb) {
+                    best = tag;
+                    bestProb = prob;
+                }
+            }
+        }
+        return tags[best];
+    }
+
+    /**
+     * 词语 text[start, end) 整体为词性 tag 的对数概率。
+     * 每一项都不大于 0，低于 bound 后不会再成为最大值，直接返回
+     */
+    private double wordProb(CharSequence text, int start, int end, int tag, double bound) {
+        int base = tag * STATE_NUM;
+        if (end - start == 1) {
+            return startP[base + S] + emitP(text.charAt(start), base + S);
+        }
+        int state = base + B;
+        double prob = startP[state] + emitP(text.charAt(start), state);
+        for (int i = start + 1; i < end && prob >= bound; i++) {
+            int next = base + (i == end - 1 ? E : M);
+            prob += innerTransP(state, next) + emitP(text.charAt(i), next);
+            state = next;
+        }
+        return prob;
+    }
+
+    private double emitP(char c, int state) {
+        int[] states = charStates[c];
+        int k = states == null ? -1 : Arrays.binarySearch(states, state);
+        return k < 0 ? MIN_LOG_PROB_VALUE : charEmitP[c][k];
+    }
+
+    private static boolean isNumeral(CharSequence text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (!CharClassifier.isDigit(c) && c != '.' && c != '%') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 模型中的所有词性
+     */
+    public String[] getTags() {
+        return tags.clone();
+    }
+}
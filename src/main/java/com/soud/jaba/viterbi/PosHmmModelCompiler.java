@@ -0,0 +1,59 @@
+package com.soud.jaba.viterbi;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 用带词性的文本字典训练词性标注的联合 HMM，写成二进制模型。
+ * <pre>
+ * java -cp jaba.jar com.soud.jaba.viterbi.PosHmmModelCompiler prob_pos.bin dict.txt [userdict.txt ...]
+ * </pre>
+ * 每行为 词语 词频 [词性]，同一个词后出现的覆盖先出现的，没有词性时保留之前的词性。
+ * 生成的 prob_pos.bin 放在 classpath 根目录下时，启动时直接加载，不再用字典训练。
+ */
+public class PosHmmModelCompiler {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: PosHmmModelCompiler <output> <dict.txt> [userdict.txt ...]");
+            System.exit(1);
+        }
+        TreeMap<String, Integer> freqMap = new TreeMap<>();
+        Map<String, String> tagMap = new HashMap<>();
+        for (int i = 1; i < args.length; i++) {
+            try (BufferedReader reader = Files.newBufferedReader(Paths.get(args[i]), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] tokens = line.split(" ");
+                    if (tokens.length < 2) {
+                        continue;
+                    }
+                    freqMap.put(tokens[0], Integer.valueOf(tokens[1]));
+                    if (tokens.length > 2) {
+                        tagMap.put(tokens[0], tokens[2].intern());
+                    }
+                }
+            }
+        }
+        List<String> words = new ArrayList<>(freqMap.keySet());
+        int[] freqs = new int[words.size()];
+        String[] tags = new String[words.size()];
+        for (int id = 0; id < freqs.length; id++) {
+            freqs[id] = freqMap.get(words.get(id));
+            tags[id] = tagMap.get(words.get(id));
+        }
+        PosHmmModel model = PosHmmModel.train(words, freqs, tags);
+        try (OutputStream outputStream = Files.newOutputStream(Paths.get(args[0]))) {
+            model.save(outputStream);
+        }
+    }
+}
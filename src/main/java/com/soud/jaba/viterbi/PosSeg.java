@@ -0,0 +1,106 @@
+package com.soud.jaba.viterbi;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 未登录词的词性标注，保存当前使用的 {@link PosHmmModel}。
+ * 未登录词的切分和精确模式一样由 {@link FinalSeg} 完成，这里只在固定的切分上给每个词选择词性。
+ * <p>
+ * classpath 上有 {@link PosHmmModelCompiler} 生成的 prob_pos.bin 时启动时加载；
+ * 否则在加载或合并基础字典时，用基础字典中带词性的词重新训练，分词时不会训练模型
+ *
+ * @author Soud
+ */
+public class PosSeg {
+    private static final String MODEL_PATH = "/prob_pos.bin";
+
+    private volatile PosHmmModel model;
+    /**
+     * 模型是加载的而不是由基础字典训练的，基础字典变化时不再重新训练
+     */
+    private volatile boolean loaded;
+
+    private PosSeg() {
+        loadModel();
+    }
+
+    private static class PosSegHolder {
+        static PosSeg instance = new PosSeg();
+    }
+
+    public static PosSeg getInstance() {
+        return PosSeg.PosSegHolder.instance;
+    }
+
+    /**
+     * 当前使用的模型，还没有加载时为 null
+     */
+    public PosHmmModel getModel() {
+        return model;
+    }
+
+    private void loadModel() {
+        InputStream inputStream = getClass().getResourceAsStream(MODEL_PATH);
+        if (inputStream == null) {
+            return;
+        }
+        try {
+            loadModel(PosHmmModel.load(inputStream));
+        } catch (IOException e) {
+            System.err.println(String.format(Locale.getDefault(), "%s load failed!", MODEL_PATH));
+        } finally {
+            try {
+                inputStream.close();
+            } catch (IOException e) {
+                System.err.println(String.format(Locale.getDefault(), "%s close failed!", MODEL_PATH));
+            }
+        }
+    }
+
+    /**
+     * 加载 {@link PosHmmModelCompiler} 生成的二进制模型，替换当前模型
+     */
+    public void loadModel(InputStream inputStream) throws IOException {
+        loadModel(PosHmmModel.load(inputStream));
+    }
+
+    /**
+     * 替换当前使用的模型，之后基础字典变化时不再重新训练
+     */
+    public synchronized void loadModel(PosHmmModel model) {
+        this.model = model;
+        loaded = true;
+    }
+
+    /**
+     * 基础字典加载或合并后调用：没有加载过模型时，用基础字典中带词性的词重新训练
+     * @param words 按词语 id 排列的词语
+     * @param freqs 按词语 id 排列的词频
+     * @param tags 按词语 id 排列的词性，可以为 null
+     */
+    public void updateModel(List<String> words, int[] freqs, String[] tags) {
+        if (loaded) {
+            return;
+        }
+        PosHmmModel trained = PosHmmModel.train(words, freqs, tags);
+        synchronized (this) {
+            if (!loaded) {
+                model = trained;
+            }
+        }
+    }
+
+    /**
+     * 用当前模型给已经切分好的词 text[start, end) 标注词性，见 {@link PosHmmModel#tag}
+     */
+    public String tag(CharSequence text, int start, int end) {
+        PosHmmModel model = this.model;
+        if (model == null) {
+            throw new IllegalStateException("part-of-speech model is not loaded");
+        }
+        return model.tag(text, start, end);
+    }
+}
@@ -0,0 +1,65 @@
+package com.soud.jaba;
+
+import com.soud.jaba.enumeration.CutModeEnum;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BlockCacheTest {
+
+    private Jaba jaba = Jaba.getInstance();
+
+    private String text = "我爱北京天安门，工信处女干事每月经过下属科室都要亲口交代24口交换机等技术性器件的安装工作。"
+            + "我爱北京天安门！他说的确实在理，I love你，不以为耻，反以为rong";
+
+    @Test
+    public void testSameResult() {
+        Jaba cached = jaba.newLayer();
+        BlockCache cache = new BlockCache(1 << 20);
+        cached.setBlockCache(cache);
+        for (int round = 0; round < 3; round++) {
+            for (CutModeEnum cutMode : CutModeEnum.values()) {
+                assertEquals(jaba.cut(text, cutMode), cached.cut(text, cutMode));
+            }
+        }
+        assertTrue(cache.getHitCount() > cache.getMissCount());
+        System.out.println(cache);
+    }
+
+    @Test
+    public void testInvalidateOnDictionaryChange() {
+        Jaba cached = jaba.newLayer();
+        BlockCache cache = new BlockCache(1 << 20);
+        cached.setBlockCache(cache);
+        List<String> before = cached.cut(text, CutModeEnum.CUT);
+        String word = before.get(0) + before.get(1);
+        cached.addWord(word, 100000);
+        List<String> after = cached.cut(text, CutModeEnum.CUT);
+        assertNotEquals(before, after);
+        assertTrue(after.contains(word));
+        assertTrue(cache.getInvalidationCount() > 0);
+    }
+
+    @Test
+    public void testMaxBytes() {
+        Jaba cached = jaba.newLayer();
+        BlockCache cache = new BlockCache(4096, 1);
+        cached.setBlockCache(cache);
+        List<String> blocks = new ArrayList<>();
+        for (String word : jaba.cut(text, CutModeEnum.CUT)) {
+            for (String other : jaba.cut(text, CutModeEnum.CUT)) {
+                blocks.add(word + other);
+            }
+        }
+        for (String block : blocks) {
+            assertEquals(jaba.cut(block, CutModeEnum.CUT), cached.cut(block, CutModeEnum.CUT));
+            assertTrue(cache.getWeightedSize() <= cache.getMaxBytes());
+        }
+        assertTrue(cache.getEvictionCount() > 0);
+    }
+}
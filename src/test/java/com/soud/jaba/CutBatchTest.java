@@ -0,0 +1,50 @@
+package com.soud.jaba;
+
+import com.soud.jaba.enumeration.CutModeEnum;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+public class CutBatchTest {
+
+    private Jaba jaba = Jaba.getInstance();
+
+    private List<String> documents() {
+        String[] sentences = {
+                "这是一个伸手不见五指的黑夜。我叫孙悟空，我爱北京，我爱Python和C++。",
+                "工信处女干事每月经过下属科室都要亲口交代24口交换机等技术性器件的安装工作",
+                "PS: 我觉得开源有一个好处，就是能够敦促自己不断改进，避免敞帚自珍",
+                "",
+                "2013年，实现营业收入0万元，实现净利润-139.13万元。"
+        };
+        List<String> documents = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            documents.add(sentences[i % sentences.length] + i);
+        }
+        return documents;
+    }
+
+    @Test
+    public void testCutBatch() throws Exception {
+        List<String> documents = documents();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (CutModeEnum cutMode : CutModeEnum.values()) {
+                List<List<String>> expected = documents.stream()
+                        .map(document -> jaba.cut(document, cutMode))
+                        .collect(Collectors.toList());
+                assertEquals(expected, jaba.cutBatch(documents, cutMode));
+                assertEquals(expected, jaba.cutBatch(documents, cutMode, executor));
+                assertEquals(expected, jaba.cutBatch(documents.stream(), cutMode).collect(Collectors.toList()));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
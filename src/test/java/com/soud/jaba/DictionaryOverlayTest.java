@@ -0,0 +1,62 @@
+package com.soud.jaba;
+
+import com.soud.jaba.enumeration.CutModeEnum;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DictionaryOverlayTest {
+
+    private Jaba jaba = Jaba.getInstance();
+    private Tokenizer tokenizer = Tokenizer.getInstance();
+
+    private List<String> cut(String sentence) {
+        return jaba.cut(sentence, CutModeEnum.CUT_WITHOUT_HMM);
+    }
+
+    @Test
+    public void testAddAndDeleteWord() {
+        String sentence = "李小福是创新办主任也是云计算方面的专家";
+        jaba.addWord("创新办", 3);
+        jaba.addWord("云计算方面", 5);
+        List<String> words = cut(sentence);
+        assertTrue(words.contains("创新办"));
+        assertTrue(words.contains("云计算方面"));
+        tokenizer.compact();
+        assertEquals(words, cut(sentence));
+
+        jaba.deleteWord("云计算方面");
+        words = cut(sentence);
+        assertFalse(words.contains("云计算方面"));
+        assertEquals(0, tokenizer.getWordFreq("云计算方面"));
+        tokenizer.compact();
+        assertEquals(words, cut(sentence));
+    }
+
+    @Test
+    public void testSuggestFreq() {
+        String sentence = "我们的小福利院很好";
+        int freq = jaba.suggestFreq("小福利院", true);
+        assertEquals(freq, tokenizer.getWordFreq("小福利院"));
+        assertTrue(cut(sentence).contains("小福利院"));
+        jaba.suggestFreq(new String[]{"小福", "利院"}, true);
+        assertFalse(cut(sentence).contains("小福利院"));
+    }
+
+    @Test
+    public void testLoadUserDictKeepsBaseWords() {
+        String sentence = "我爱北京天安门";
+        List<String> words = cut(sentence);
+        int total = tokenizer.getTotal();
+        jaba.loadUserDict(new ByteArrayInputStream("雷猴网 10 n\n".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(words, cut(sentence));
+        assertEquals(total + 10, tokenizer.getTotal());
+        assertEquals(10, tokenizer.getWordFreq("雷猴网"));
+    }
+}
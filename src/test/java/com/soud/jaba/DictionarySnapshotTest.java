@@ -0,0 +1,50 @@
+package com.soud.jaba;
+
+import com.soud.jaba.enumeration.TrieEngineEnum;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class DictionarySnapshotTest {
+
+    private static InputStream dict(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testCompileAndMap() throws Exception {
+        for (TrieEngineEnum engine : TrieEngineEnum.values()) {
+            List<InputStream> dicts = Arrays.asList(
+                    dict("北京 100 ns\n清华 20 nt\n清华大学 50 nt\n大学 80 n\n"),
+                    dict("北京 300 ns\n"));
+            Path path = Files.createTempFile("jaba", ".snapshot");
+            try {
+                try (OutputStream outputStream = Files.newOutputStream(path)) {
+                    DictionaryCompiler.compile(dicts, engine, outputStream);
+                }
+                DictionarySnapshot snapshot = DictionarySnapshot.map(path);
+                assertEquals(engine, snapshot.getEngine());
+                assertEquals(550, snapshot.getTotal());
+                assertEquals(Arrays.asList("北京", "大学", "清华", "清华大学"), snapshot.getWords());
+                int idx = snapshot.getTrie().exactMatch("北京");
+                assertEquals(300, snapshot.getFreqs()[idx]);
+                assertEquals("ns", snapshot.getTags()[idx]);
+                assertEquals("nt", snapshot.getTags()[snapshot.getTrie().exactMatch("清华大学")]);
+                int[] hits = {0};
+                snapshot.getTrie().parseText("清华大学", (begin, end, wordId) -> hits[0]++);
+                assertEquals(3, hits[0]);
+            } finally {
+                Files.delete(path);
+            }
+        }
+    }
+}
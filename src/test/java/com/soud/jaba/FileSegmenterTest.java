@@ -0,0 +1,82 @@
+package com.soud.jaba;
+
+import com.soud.jaba.enumeration.CutModeEnum;
+import com.soud.jaba.enumeration.OutputFormatEnum;
+import com.soud.jaba.enumeration.TokenKindEnum;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class FileSegmenterTest {
+
+    private Jaba jaba = Jaba.getInstance();
+
+    private String[] sentences = {"我爱北京天安门", "工信处女干事每月经过下属科室都要亲口交代24口交换机等技术性器件的安装工作",
+            "他说的确实在理", "I love你，不以为耻，反以为rong", "\"引号\"和\\反斜杠", "", "  前后 空白  "};
+
+    @Test
+    public void testOrderedOutput() throws IOException {
+        Random random = new Random(17);
+        StringBuilder input = new StringBuilder();
+        StringBuilder expectedText = new StringBuilder();
+        StringBuilder expectedJson = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            String line = sentences[random.nextInt(sentences.length)] + i;
+            if (i == 1500) {
+                // 比一块还长的行
+                StringBuilder longLine = new StringBuilder();
+                for (int k = 0; k < 100; k++) {
+                    longLine.append(sentences[k % 3]);
+                }
+                line = longLine.toString();
+            }
+            input.append(line).append(random.nextBoolean() ? "\r\n" : "\n");
+            expected(line, expectedText, expectedJson);
+        }
+        // 最后一行没有换行符
+        input.append("最后一行");
+        expected("最后一行", expectedText, expectedJson);
+
+        Path file = Files.createTempFile("jaba-segment", ".txt");
+        try {
+            Files.write(file, input.toString().getBytes(StandardCharsets.UTF_8));
+            FileSegmenter text = new FileSegmenter(jaba, CutModeEnum.CUT, 4, OutputFormatEnum.TEXT, 1024);
+            ByteArrayOutputStream textOutput = new ByteArrayOutputStream();
+            text.segment(file, textOutput, null);
+            assertEquals(expectedText.toString(), new String(textOutput.toByteArray(), StandardCharsets.UTF_8));
+            assertEquals(3001, text.getLines());
+            assertEquals(Files.size(file), text.getBytes());
+
+            FileSegmenter json = new FileSegmenter(jaba, CutModeEnum.CUT, 3, OutputFormatEnum.JSON, 1000);
+            ByteArrayOutputStream jsonOutput = new ByteArrayOutputStream();
+            json.segment(file, jsonOutput, null);
+            assertEquals(expectedJson.toString(), new String(jsonOutput.toByteArray(), StandardCharsets.UTF_8));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private void expected(String line, StringBuilder text, StringBuilder json) {
+        TokenBuffer tokens = new TokenBuffer();
+        jaba.tokenize(line, CutModeEnum.CUT, tokens);
+        StringBuilder words = new StringBuilder();
+        json.append('[');
+        for (int i = 0; i < tokens.size(); i++) {
+            String word = tokens.getToken(line, i);
+            if (tokens.getKind(i) != TokenKindEnum.WHITESPACE) {
+                words.append(words.length() > 0 ? " " : "").append(word);
+            }
+            json.append(i > 0 ? "," : "").append('"')
+                    .append(word.replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+        }
+        text.append(words).append('\n');
+        json.append("]\n");
+    }
+}
@@ -1,10 +1,16 @@
 package com.soud.jaba;
 
 import com.soud.jaba.enumeration.CutModeEnum;
+import com.soud.jaba.util.CharClassifier;
 import com.soud.jaba.util.RegexSplitUtils;
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.regex.Pattern;
 
 public class JabaCutTest {
@@ -112,6 +118,56 @@ public class JabaCutTest {
         System.out.println(result);
     }
 
+    @Test
+    public void testCutAllMatchesDAG() {
+        Jaba layer = jaba.newLayer();
+        layer.addWord("孙悟空我爱", 10);
+        layer.addWord("北京", 0);
+        for (Jaba j : new Jaba[]{jaba, layer}) {
+            for (String sentence : testSentences) {
+                int start = 0;
+                while (start < sentence.length()) {
+                    if (!CharClassifier.isHanDefault(sentence.charAt(start))) {
+                        start = CharClassifier.otherEnd(sentence, start, sentence.length());
+                        continue;
+                    }
+                    int end = CharClassifier.hanDefaultEnd(sentence, start, sentence.length());
+                    String block = sentence.substring(start, end);
+                    // 按起始位置顺序输出 DAG 中所有的边
+                    List<String> expected = new ArrayList<>();
+                    Map<Integer, List<Integer>> dag = new TreeMap<>(
+                            SentenceDAG.makeDAG(block, j.getTokenizer().getDictionary()));
+                    dag.forEach((k, lengths) -> lengths.forEach(n -> expected.add(block.substring(k, k + n))));
+                    assertEquals(expected, j.cut(block, CutModeEnum.CUT_ALL));
+                    start = end;
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCutForSearch() {
+        for (String s : testSentences) {
+            // 和 jieba 的 cut_for_search 一样，由精确模式的结果查字典得到
+            List<String> expected = new ArrayList<>();
+            for (String w : jaba.cut(s, CutModeEnum.CUT)) {
+                for (int n = 2; n <= 3; n++) {
+                    if (w.length() > n) {
+                        for (int i = 0; i + n <= w.length(); i++) {
+                            String gram = w.substring(i, i + n);
+                            if (jaba.getTokenizer().getWordFreq(gram) > 0) {
+                                expected.add(gram);
+                            }
+                        }
+                    }
+                }
+                expected.add(w);
+            }
+            assertEquals(expected, jaba.cut(s, CutModeEnum.CUT_FOR_SEARCH));
+        }
+        System.out.println(jaba.cut("小明硕士毕业于中国科学院计算所，后在日本京都大学深造", CutModeEnum.CUT_FOR_SEARCH));
+    }
+
     @Test
     public void testSpeed() {
         long t = System.currentTimeMillis();
@@ -0,0 +1,69 @@
+package com.soud.jaba;
+
+import com.soud.jaba.enumeration.CutModeEnum;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class JabaLayerTest {
+
+    private Jaba jaba = Jaba.getInstance();
+
+    private String sentence = "我爱北京天安门，工信处女干事每月经过下属科室都要亲口交代24口交换机等技术性器件的安装工作";
+
+    private List<String> cut(Jaba jaba) {
+        return jaba.cut(sentence, CutModeEnum.CUT_WITHOUT_HMM);
+    }
+
+    /**
+     * 把相邻的两个多字词连起来作为新词
+     */
+    private List<String> newWords(List<String> words) {
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i + 1 < words.size(); i++) {
+            if (words.get(i).length() > 1 && words.get(i + 1).length() > 1) {
+                result.add(words.get(i) + words.get(i + 1));
+                i++;
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void testTenantWords() {
+        List<String> base = cut(jaba);
+        List<String> newWords = newWords(base);
+        String tenantWord = newWords.get(0);
+        String sharedWord = newWords.get(1);
+
+        Jaba tenantA = jaba.newLayer();
+        Jaba tenantB = jaba.newLayer();
+        tenantA.addWord(tenantWord, 100000);
+        assertTrue(cut(tenantA).contains(tenantWord));
+        assertEquals(base, cut(tenantB));
+        assertEquals(base, cut(jaba));
+
+        // 基础字典的修改对所有租户可见，合并后租户仍然和基础字典共享数组
+        jaba.addWord(sharedWord, 100000);
+        assertTrue(cut(tenantA).contains(tenantWord));
+        assertTrue(cut(tenantA).contains(sharedWord));
+        assertTrue(cut(tenantB).contains(sharedWord));
+        Tokenizer.getInstance().compact();
+        assertTrue(cut(tenantA).contains(tenantWord));
+        assertTrue(cut(tenantA).contains(sharedWord));
+        assertTrue(Tokenizer.getInstance().getDictionary().sameBase(tenantA.getTokenizer().getDictionary()));
+
+        // 租户删除基础字典中的词不影响其他租户
+        tenantB.deleteWord(sharedWord);
+        assertFalse(cut(tenantB).contains(sharedWord));
+        assertTrue(cut(jaba).contains(sharedWord));
+        assertNotEquals(0, tenantA.getTokenizer().getWordFreq(sharedWord));
+        assertEquals(0, tenantB.getTokenizer().getWordFreq(sharedWord));
+    }
+}
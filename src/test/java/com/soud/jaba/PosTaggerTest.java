@@ -0,0 +1,109 @@
+package com.soud.jaba;
+
+import com.soud.jaba.enumeration.CutModeEnum;
+import com.soud.jaba.enumeration.TokenKindEnum;
+import com.soud.jaba.viterbi.PosHmmModel;
+import com.soud.jaba.viterbi.PosSeg;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PosTaggerTest {
+
+    private Jaba jaba = Jaba.getInstance();
+
+    private String text = "我爱北京天安门，工信处女干事每月经过下属科室都要亲口交代24口交换机等技术性器件的安装工作。"
+            + "他说的确实在理，I love你，不以为耻，反以为rong 3.14 T恤\r\n小明硕士毕业于中国科学院计算所";
+
+    @Test
+    public void testSameSpansWithoutHMM() {
+        TokenBuffer expected = new TokenBuffer();
+        jaba.tokenize(text, CutModeEnum.CUT_WITHOUT_HMM, expected);
+        TokenBuffer actual = new TokenBuffer();
+        jaba.tokenizeWithTag(text, CutModeEnum.CUT_WITHOUT_HMM, (start, end, kind, tag) -> {
+            assertNotNull(tag);
+            String word = text.substring(start, end);
+            if (kind == TokenKindEnum.WORD && end - start > 1 && jaba.getTag(word) != null) {
+                assertEquals(word, jaba.getTag(word), tag);
+            }
+            actual.token(start, end, kind);
+        });
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getStart(i), actual.getStart(i));
+            assertEquals(expected.getEnd(i), actual.getEnd(i));
+            assertEquals(expected.getKind(i), actual.getKind(i));
+        }
+    }
+
+    @Test
+    public void testSameSpansWithHMM() {
+        TokenBuffer expected = new TokenBuffer();
+        jaba.tokenize(text, CutModeEnum.CUT, expected);
+        TokenBuffer actual = new TokenBuffer();
+        jaba.tokenizeWithTag(text, CutModeEnum.CUT, (start, end, kind, tag) -> {
+            assertNotNull(tag);
+            if (kind == TokenKindEnum.HMM) {
+                // HMM 切出的词由联合模型在固定的切分上标注
+                assertEquals(PosSeg.getInstance().tag(text, start, end), tag);
+            }
+            actual.token(start, end, kind);
+        });
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getStart(i), actual.getStart(i));
+            assertEquals(expected.getEnd(i), actual.getEnd(i));
+            assertEquals(expected.getKind(i), actual.getKind(i));
+        }
+        System.out.println(jaba.cutWithTag(text, CutModeEnum.CUT));
+    }
+
+    @Test
+    public void testReentrant() {
+        List<Pair<String, String>> expected = jaba.cutWithTag(text, CutModeEnum.CUT);
+        List<Pair<String, String>> actual = new ArrayList<>();
+        jaba.tokenizeWithTag(text, CutModeEnum.CUT, (start, end, kind, tag) -> {
+            actual.add(new Pair<>(text.substring(start, end), tag));
+            // handler 中再次标注不影响外层的结果
+            jaba.cutWithTag(text.substring(start), CutModeEnum.CUT);
+        });
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testAddWordWithTag() {
+        Jaba layer = jaba.newLayer();
+        layer.addWord("天安门广场", 100000, "ns");
+        layer.addWord("工信处", 100000, "nt");
+        List<Pair<String, String>> tagged = layer.cutWithTag("我爱北京天安门广场，工信处", CutModeEnum.CUT);
+        assertTrue(tagged.contains(new Pair<>("天安门广场", "ns")));
+        assertTrue(tagged.contains(new Pair<>("工信处", "nt")));
+        // 只修改词频时保留原来的词性
+        layer.addWord("工信处", 200000);
+        assertEquals("nt", layer.getTag("工信处"));
+    }
+
+    /**
+     * 联合 HMM 的模型由基础字典预先训练，叠加字典中的词和分词都不会改变它
+     */
+    @Test
+    public void testLayerKeepsModel() {
+        PosHmmModel model = PosSeg.getInstance().getModel();
+        assertNotNull(model);
+        Jaba layer = jaba.newLayer();
+        layer.addWord("鑫鑫鑫", 100, "nz");
+        layer.cutWithTag(text, CutModeEnum.CUT);
+        assertSame(model, PosSeg.getInstance().getModel());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedMode() {
+        jaba.cutWithTag(text, CutModeEnum.CUT_ALL);
+    }
+}
@@ -0,0 +1,41 @@
+package com.soud.jaba;
+
+import com.soud.jaba.enumeration.CutModeEnum;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+public class SegmentIteratorTest {
+
+    private Jaba jaba = Jaba.getInstance();
+
+    private String text = "这是一个伸手不见五指的黑夜。我叫孙悟空，我爱北京，我爱Python和C++。\r\n"
+            + "PS: 我觉得开源有一个好处，就是能够敦促自己不断改进，避免敞帚自珍  ，，。。 😀😀\r\n"
+            + "2013年，实现营业收入0万元，实现净利润-139.13万元。";
+
+    @Test
+    public void testSmallBuffer() {
+        for (CutModeEnum cutMode : CutModeEnum.values()) {
+            List<String> expected = jaba.cut(text, cutMode);
+            for (int bufferSize = 1; bufferSize <= 32; bufferSize++) {
+                SegmentIterator iterator = new SegmentIterator(jaba, new StringReader(text), cutMode, bufferSize);
+                List<String> words = new ArrayList<>();
+                iterator.forEachRemaining(words::add);
+                assertEquals(expected, words);
+            }
+        }
+    }
+
+    @Test
+    public void testStream() {
+        for (CutModeEnum cutMode : CutModeEnum.values()) {
+            assertEquals(jaba.cut(text, cutMode),
+                    jaba.cut(new StringReader(text), cutMode).collect(Collectors.toList()));
+        }
+    }
+}
@@ -1,8 +1,23 @@
 package com.soud.jaba;
 
 import com.soud.jaba.analyse.TFIDFAnalyzer;
+import com.soud.jaba.enumeration.CutModeEnum;
 import org.junit.Test;
 
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
+
+import static java.util.stream.Collectors.counting;
+import static java.util.stream.Collectors.groupingBy;
+import static org.junit.Assert.assertEquals;
 
 public class TFIDFTest {
   @Test
@@ -16,4 +31,86 @@ public class TFIDFTest {
     String sentence = "此外，公司拟对全资子公司吉林欧亚置业有限公司增资4.3亿元，增资后，吉林欧亚置业注册资本由7000万元增加到5亿元。吉林欧亚置业主要经营范围为房地产开发及百货零售等业务。目前在建吉林欧亚城市商业综合体项目。2013年，实现营业收入0万元，实现净利润-139.13万元。";
     TFIDFAnalyzer.getInstance().extractTags(sentence, 20).forEach(System.out::println);
   }
+
+  /**
+   * 原先的实现：HashMap 统计词频后整体排序
+   */
+  private static List<Pair<String, Double>> extractTagsBySort(List<String> tokens, int topK, Map<String, Double> idfMap,
+                                                             Set<String> stopWords, double medianIdf) {
+    Map<String, Long> freqMap = tokens.stream()
+        .filter(token -> token.trim().length() > 1 && !stopWords.contains(token.toLowerCase()))
+        .collect(groupingBy(Function.identity(), counting()));
+    long tokenNum = freqMap.values().stream().mapToLong(t -> t).sum();
+    Map<String, Double> tfMap = new HashMap<>();
+    for (String word : freqMap.keySet()) {
+      tfMap.put(word, 1.0 * freqMap.get(word) / tokenNum);
+    }
+    List<Pair<String, Double>> result = new ArrayList<>();
+    for (String word : tfMap.keySet()) {
+      result.add(new Pair<>(word, idfMap.getOrDefault(word, medianIdf) * tfMap.get(word)));
+    }
+    result.sort((o1, o2) -> Double.compare(o2.getValue(), o1.getValue()));
+    if (result.size() > topK) {
+      result = result.subList(0, topK);
+    }
+    return result;
+  }
+
+  private static Map<String, Double> loadIdf() throws Exception {
+    Map<String, Double> idfMap = new HashMap<>();
+    try (InputStream inputStream = TFIDFTest.class.getResourceAsStream("/idf.txt")) {
+      for (String line : new String(readAll(inputStream), "UTF-8").split("\n")) {
+        String[] kv = line.trim().split(" ");
+        if (kv.length == 2) {
+          idfMap.put(kv[0], Double.parseDouble(kv[1]));
+        }
+      }
+    }
+    return idfMap;
+  }
+
+  private static Set<String> loadStopWords() throws Exception {
+    try (InputStream inputStream = TFIDFTest.class.getResourceAsStream("/stop_words.txt")) {
+      Set<String> stopWords = new HashSet<>();
+      Collections.addAll(stopWords, new String(readAll(inputStream), "UTF-8").split("\n"));
+      return stopWords;
+    }
+  }
+
+  private static byte[] readAll(InputStream inputStream) throws Exception {
+    java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+    byte[] buf = new byte[8192];
+    int n;
+    while ((n = inputStream.read(buf)) > 0) {
+      out.write(buf, 0, n);
+    }
+    return out.toByteArray();
+  }
+
+  @Test
+  public void testSameRanking() throws Exception {
+    Map<String, Double> idfMap = loadIdf();
+    Set<String> stopWords = loadStopWords();
+    List<Double> idfList = new ArrayList<>(idfMap.values());
+    Collections.sort(idfList);
+    double medianIdf = idfList.get(idfList.size() / 2);
+
+    String text = "此外，公司拟对全资子公司吉林欧亚置业有限公司增资4.3亿元，增资后，吉林欧亚置业注册资本由7000万元增加到5亿元。"
+        + "吉林欧亚置业主要经营范围为房地产开发及百货零售等业务。目前在建吉林欧亚城市商业综合体项目。"
+        + "孩子上了幼儿园 安全防拐教育要做好，我爱北京天安门，Python 和 C++ 都是 Programming Language";
+    List<String> vocabulary = new ArrayList<>(Jaba.getInstance().cut(text, CutModeEnum.CUT));
+    vocabulary.addAll(idfMap.keySet());
+    Random random = new Random(17);
+    for (int round = 0; round < 300; round++) {
+      List<String> tokens = new ArrayList<>();
+      int n = random.nextInt(400);
+      for (int i = 0; i < n; i++) {
+        tokens.add(vocabulary.get(random.nextInt(Math.min(vocabulary.size(), 20 + round * 10))));
+      }
+      for (int topK : new int[]{0, 1, 5, 20, 1000}) {
+        assertEquals(extractTagsBySort(tokens, topK, idfMap, stopWords, medianIdf),
+            TFIDFAnalyzer.getInstance().extractTags(tokens, topK));
+      }
+    }
+  }
 }
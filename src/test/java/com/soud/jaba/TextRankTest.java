@@ -0,0 +1,101 @@
+package com.soud.jaba;
+
+import com.soud.jaba.analyse.TextRankAnalyzer;
+import com.soud.jaba.enumeration.CutModeEnum;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TextRankTest {
+  private String sentence = "此外，公司拟对全资子公司吉林欧亚置业有限公司增资4.3亿元，增资后，吉林欧亚置业注册资本由7000万元增加到5亿元。"
+      + "吉林欧亚置业主要经营范围为房地产开发及百货零售等业务。目前在建吉林欧亚城市商业综合体项目。"
+      + "2013年，实现营业收入0万元，实现净利润-139.13万元。";
+
+  @Test
+  public void test() {
+    TextRankAnalyzer.getInstance().extractTags(sentence, 20).forEach(System.out::println);
+  }
+
+  /**
+   * jieba 的实现：字符串为键的邻接表，按词语的字典序原地迭代
+   */
+  private static Map<String, Double> rankByMap(List<String> words, Set<String> stopWords) {
+    Map<String, List<String>> graph = new LinkedHashMap<>();
+    for (int i = 0; i < words.size(); i++) {
+      if (!isKeyword(words.get(i), stopWords)) {
+        continue;
+      }
+      for (int j = i + 1; j < i + 5 && j < words.size(); j++) {
+        if (isKeyword(words.get(j), stopWords)) {
+          graph.computeIfAbsent(words.get(i), k -> new ArrayList<>()).add(words.get(j));
+          graph.computeIfAbsent(words.get(j), k -> new ArrayList<>()).add(words.get(i));
+        }
+      }
+    }
+    Map<String, Double> ws = new HashMap<>();
+    graph.keySet().forEach(word -> ws.put(word, 1.0 / graph.size()));
+    for (int iteration = 0; iteration < 100; iteration++) {
+      double delta = 0;
+      for (Map.Entry<String, List<String>> entry : new TreeMap<>(graph).entrySet()) {
+        double s = 0;
+        for (String neighbor : entry.getValue()) {
+          s += ws.get(neighbor) / graph.get(neighbor).size();
+        }
+        double w = 0.15 + 0.85 * s;
+        delta = Math.max(delta, Math.abs(w - ws.get(entry.getKey())));
+        ws.put(entry.getKey(), w);
+      }
+      if (delta < 1e-6) {
+        break;
+      }
+    }
+    double min = ws.values().stream().mapToDouble(Double::doubleValue).min().orElse(0);
+    double max = ws.values().stream().mapToDouble(Double::doubleValue).max().orElse(0);
+    ws.replaceAll((word, w) -> (w - min / 10.0) / (max - min / 10.0));
+    return ws;
+  }
+
+  private static boolean isKeyword(String word, Set<String> stopWords) {
+    return word.trim().length() > 1 && !stopWords.contains(word.toLowerCase());
+  }
+
+  @Test
+  public void testSameRank() throws Exception {
+    Set<String> stopWords = new HashSet<>();
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+        getClass().getResourceAsStream("/stop_words.txt"), StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        stopWords.add(line);
+      }
+    }
+    StringBuilder article = new StringBuilder();
+    for (int i = 0; i < 20; i++) {
+      article.append(sentence).append("工信处女干事每月经过下属科室都要亲口交代24口交换机等技术性器件的安装工作。");
+    }
+    for (String text : new String[]{sentence, article.toString(), "吉林欧亚", "，。"}) {
+      List<String> words = Jaba.getInstance().cut(text, CutModeEnum.CUT);
+      Map<String, Double> expected = rankByMap(words, stopWords);
+      List<Pair<String, Double>> tags = TextRankAnalyzer.getInstance().extractTags(words, Integer.MAX_VALUE);
+      assertEquals(expected.size(), tags.size());
+      for (int i = 0; i < tags.size(); i++) {
+        assertEquals(expected.get(tags.get(i).getKey()), tags.get(i).getValue(), 1e-9);
+        assertTrue(i == 0 || tags.get(i - 1).getValue() >= tags.get(i).getValue());
+      }
+      assertEquals(Math.min(3, tags.size()), TextRankAnalyzer.getInstance().extractTags(words, 3).size());
+    }
+  }
+}
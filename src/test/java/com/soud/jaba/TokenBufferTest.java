@@ -0,0 +1,100 @@
+package com.soud.jaba;
+
+import com.soud.jaba.enumeration.CutModeEnum;
+import com.soud.jaba.enumeration.TokenKindEnum;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TokenBufferTest {
+
+    private Jaba jaba = Jaba.getInstance();
+
+    private String text = "这是一个伸手不见五指的黑夜。我叫孙悟空，我爱北京，我爱Python和C++。\r\n"
+            + "PS: 我觉得开源有一个好处，就是能够敦促自己不断改进，避免敞帚自珍  ，，。。 😀\r\n"
+            + "2013年，实现营业收入0万元，实现净利润-139.13万元。";
+
+    /**
+     * jieba 文档中的分词结果，不与 cut 比较，因为 cut 也由 tokenize 实现
+     */
+    @Test
+    public void testExpectedTokens() {
+        assertTokens("我来到北京清华大学", CutModeEnum.CUT_WITHOUT_HMM, "我", "来到", "北京", "清华大学");
+        assertTokens("他来到了网易杭研大厦", CutModeEnum.CUT, "他", "来到", "了", "网易", "杭研", "大厦");
+        assertTokens("小明硕士毕业于中国科学院计算所，后在日本京都大学深造", CutModeEnum.CUT_FOR_SEARCH,
+                "小明", "硕士", "毕业", "于", "中国", "科学", "学院", "科学院", "中国科学院", "计算", "计算所", "，",
+                "后", "在", "日本", "京都", "大学", "日本京都大学", "深造");
+    }
+
+    private void assertTokens(String sentence, CutModeEnum cutMode, String... expected) {
+        TokenBuffer buffer = new TokenBuffer(1);
+        jaba.tokenize(sentence, cutMode, buffer);
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < buffer.size(); i++) {
+            words.add(buffer.getToken(sentence, i));
+        }
+        assertEquals(Arrays.asList(expected), words);
+    }
+
+    /**
+     * 除全模式外，词语首尾相接地覆盖整个段落
+     */
+    @Test
+    public void testCoverage() {
+        TokenBuffer buffer = new TokenBuffer(1);
+        for (CutModeEnum cutMode : new CutModeEnum[]{CutModeEnum.CUT, CutModeEnum.CUT_WITHOUT_HMM}) {
+            buffer.clear();
+            jaba.tokenize(text, cutMode, buffer);
+            int position = 0;
+            for (int i = 0; i < buffer.size(); i++) {
+                assertEquals(position, buffer.getStart(i));
+                position = buffer.getEnd(i);
+            }
+            assertEquals(text.length(), position);
+        }
+    }
+
+    /**
+     * 在 handler 中再次分词不影响外层的结果
+     */
+    @Test
+    public void testReentrant() {
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        for (CutModeEnum cutMode : CutModeEnum.values()) {
+            TokenBuffer expected = new TokenBuffer();
+            jaba.tokenize(text, cutMode, expected);
+            List<String> nestedWords = new ArrayList<>();
+            TokenBuffer buffer = new TokenBuffer();
+            jaba.tokenize(text, cutMode, (start, end, kind) -> {
+                buffer.token(start, end, kind);
+                nestedWords.addAll(jaba.cut(text.substring(start, end) + "我来到北京清华大学", cutMode));
+                jaba.tokenize(utf8, 0, utf8.length, cutMode, new TokenBuffer());
+            });
+            assertEquals(expected.size(), buffer.size());
+            for (int i = 0; i < buffer.size(); i++) {
+                assertEquals(expected.getStart(i), buffer.getStart(i));
+                assertEquals(expected.getEnd(i), buffer.getEnd(i));
+                assertEquals(expected.getKind(i), buffer.getKind(i));
+            }
+            assertTrue(nestedWords.size() > buffer.size());
+        }
+    }
+
+    @Test
+    public void testKind() {
+        String sentence = "我爱北京， \r\n";
+        TokenBuffer buffer = new TokenBuffer();
+        jaba.tokenize(sentence, CutModeEnum.CUT_WITHOUT_HMM, buffer);
+        assertEquals(TokenKindEnum.WORD, buffer.getKind(0));
+        assertEquals(TokenKindEnum.PUNCTUATION, buffer.getKind(buffer.size() - 3));
+        assertEquals(TokenKindEnum.WHITESPACE, buffer.getKind(buffer.size() - 2));
+        assertEquals(sentence.length() - 2, buffer.getStart(buffer.size() - 1));
+        assertEquals(sentence.length(), buffer.getEnd(buffer.size() - 1));
+    }
+}
@@ -0,0 +1,143 @@
+package com.soud.jaba;
+
+import com.soud.jaba.enumeration.CutModeEnum;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class Utf8TokenizeTest {
+
+    private Jaba jaba = Jaba.getInstance();
+
+    private String text = "这是一个伸手不见五指的黑夜。我叫孙悟空，我爱北京，我爱Python和C++。\r\n"
+            + "PS: 我觉得开源有一个好处，就是能够敦促自己不断改进，避免敞帚自珍  ，，。。 😀\r\n"
+            + "2013年，实现营业收入0万元，实现净利润-139.13万元。ü";
+
+    /**
+     * 第 index 个 char 之前的 UTF-8 字节数，切开的代理对算在前一个词中
+     */
+    private static int byteOffset(String text, int index) {
+        if (index > 0 && index < text.length() && Character.isLowSurrogate(text.charAt(index))) {
+            index++;
+        }
+        return text.substring(0, index).getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    /**
+     * 字符串分词结果对应的字节位置，只包含被切开的低位代理的词为空，不输出
+     */
+    private static int[] expected(String text, TokenBuffer tokens, int base) {
+        int[] spans = new int[tokens.size() * 3];
+        int n = 0;
+        for (int i = 0; i < tokens.size(); i++) {
+            int start = byteOffset(text, tokens.getStart(i));
+            int end = byteOffset(text, tokens.getEnd(i));
+            if (start < end) {
+                spans[n++] = base + start;
+                spans[n++] = base + end;
+                spans[n++] = tokens.getKind(i).ordinal();
+            }
+        }
+        return Arrays.copyOf(spans, n);
+    }
+
+    private static int[] spans(TokenBuffer tokens) {
+        int[] spans = new int[tokens.size() * 3];
+        System.arraycopy(tokens.getData(), 0, spans, 0, spans.length);
+        return spans;
+    }
+
+    @Test
+    public void testSameAsString() {
+        byte[] encoded = text.getBytes(StandardCharsets.UTF_8);
+        byte[] padded = new byte[encoded.length + 7];
+        System.arraycopy(encoded, 0, padded, 5, encoded.length);
+        ByteBuffer direct = ByteBuffer.allocateDirect(padded.length);
+        direct.put(padded);
+        direct.position(5).limit(5 + encoded.length);
+        ByteBuffer slice = ByteBuffer.wrap(padded, 3, padded.length - 3).slice();
+        slice.position(2).limit(2 + encoded.length);
+
+        TokenBuffer tokens = new TokenBuffer();
+        TokenBuffer bytes = new TokenBuffer(1);
+        for (CutModeEnum cutMode : CutModeEnum.values()) {
+            tokens.clear();
+            jaba.tokenize(text, cutMode, tokens);
+
+            bytes.clear();
+            jaba.tokenize(encoded, 0, encoded.length, cutMode, bytes);
+            assertArrayEquals(cutMode.name(), expected(text, tokens, 0), spans(bytes));
+
+            bytes.clear();
+            jaba.tokenize(padded, 5, encoded.length, cutMode, bytes);
+            assertArrayEquals(cutMode.name(), expected(text, tokens, 5), spans(bytes));
+
+            bytes.clear();
+            jaba.tokenize(direct, cutMode, bytes);
+            assertArrayEquals(cutMode.name(), expected(text, tokens, 5), spans(bytes));
+            assertEquals(5, direct.position());
+
+            bytes.clear();
+            jaba.tokenize(slice, cutMode, bytes);
+            assertArrayEquals(cutMode.name(), expected(text, tokens, 2), spans(bytes));
+        }
+    }
+
+    /**
+     * emoji 等补充平面的字符在字符串分词时被切成两个 char，按字节分词时整个字符在一个词中，没有空词
+     */
+    @Test
+    public void testNoEmptySpan() {
+        String emoji = "我爱😀北京，😀😀 😀a😀1\uD83D\uDE00。";
+        byte[] utf8 = emoji.getBytes(StandardCharsets.UTF_8);
+        TokenBuffer bytes = new TokenBuffer();
+        for (CutModeEnum cutMode : CutModeEnum.values()) {
+            bytes.clear();
+            jaba.tokenize(utf8, 0, utf8.length, cutMode, bytes);
+            for (int i = 0; i < bytes.size(); i++) {
+                assertTrue(cutMode.name(), bytes.getStart(i) < bytes.getEnd(i));
+            }
+        }
+
+        bytes.clear();
+        jaba.tokenize("我爱😀北京".getBytes(StandardCharsets.UTF_8), 0, 16, CutModeEnum.CUT, bytes);
+        int emojiToken = -1;
+        for (int i = 0; i < bytes.size(); i++) {
+            if (bytes.getStart(i) == 6) {
+                emojiToken = i;
+            }
+        }
+        assertTrue(emojiToken >= 0);
+        assertEquals(10, bytes.getEnd(emojiToken));
+        assertEquals(10, bytes.getStart(emojiToken + 1));
+    }
+
+    @Test
+    public void testMalformed() {
+        // 截断的三字节序列、单独的续字节、超长编码和代理区
+        byte[] utf8 = {(byte) 0xE5, (byte) 0x8C, 'a', (byte) 0x80, (byte) 0xC0, (byte) 0xAF,
+                (byte) 0xED, (byte) 0xA0, (byte) 0x80, (byte) 0xE5, (byte) 0x8C, (byte) 0x97};
+        Utf8Text text = new Utf8Text();
+        text.decode(utf8, 0, utf8.length, 0);
+        assertEquals("\uFFFD\uFFFDa\uFFFD\uFFFD\uFFFD\uFFFD\uFFFD\uFFFD北", text.toString());
+        assertEquals(0, text.byteOffset(0));
+        assertEquals(2, text.byteOffset(2));
+        assertEquals(9, text.byteOffset(9));
+        assertEquals(12, text.byteOffset(10));
+
+        TokenBuffer bytes = new TokenBuffer();
+        jaba.tokenize(utf8, 0, utf8.length, CutModeEnum.CUT, bytes);
+        int position = 0;
+        for (int i = 0; i < bytes.size(); i++) {
+            assertEquals(position, bytes.getStart(i));
+            position = bytes.getEnd(i);
+        }
+        assertEquals(utf8.length, position);
+    }
+}
@@ -0,0 +1,96 @@
+package com.soud.jaba.analyse;
+
+import com.soud.jaba.Jaba;
+import com.soud.jaba.enumeration.CutModeEnum;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class IdfBuilderTest {
+
+    private Jaba jaba = Jaba.getInstance();
+
+    private List<String> documents() {
+        String[] sentences = {"我爱北京天安门", "工信处女干事每月经过下属科室都要亲口交代24口交换机等技术性器件的安装工作",
+                "他说的确实在理", "I love你，不以为耻，反以为rong", "我来到北京清华大学", "小明硕士毕业于中国科学院计算所",
+                "他来到了网易杭研大厦", "结婚的和尚未结婚的"};
+        Random random = new Random(7);
+        List<String> documents = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder document = new StringBuilder();
+            for (int j = random.nextInt(4); j >= 0; j--) {
+                document.append(sentences[random.nextInt(sentences.length)]).append('。');
+            }
+            documents.add(document.toString());
+        }
+        return documents;
+    }
+
+    @Test
+    public void testDocumentFrequency() throws IOException {
+        List<String> documents = documents();
+        IdfBuilder builder = new IdfBuilder(jaba, CutModeEnum.CUT, IdfBuilder.DEFAULT_MAX_TERMS);
+        builder.addDocuments(documents.stream());
+        Map<String, Integer> expected = new HashMap<>();
+        for (String document : documents) {
+            Set<String> terms = new HashSet<>();
+            for (String word : jaba.cut(document, CutModeEnum.CUT)) {
+                if (word.trim().length() > 1) {
+                    terms.add(word);
+                }
+            }
+            terms.forEach(term -> expected.merge(term, 1, Integer::sum));
+        }
+        assertEquals(documents.size(), builder.getDocumentCount());
+        assertEquals(expected.size(), builder.getTermCount());
+        expected.forEach((term, df) -> assertEquals(term, (int) df, builder.getDocumentFrequency(term)));
+
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        builder.writeText(text, 1);
+        Map<String, Double> idfMap = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new ByteArrayInputStream(text.toByteArray()), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] kv = line.split(" ");
+                idfMap.put(kv[0], Double.parseDouble(kv[1]));
+            }
+        }
+        assertEquals(expected.size(), idfMap.size());
+        expected.forEach((term, df) ->
+                assertEquals(term, Math.log((double) documents.size() / df), idfMap.get(term), 1e-12));
+
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        builder.writeBinary(binary, 1);
+        Map<String, Double> binaryIdfMap = IdfBuilder.readBinary(new ByteArrayInputStream(binary.toByteArray()));
+        assertEquals(idfMap.keySet(), binaryIdfMap.keySet());
+        idfMap.forEach((term, idf) -> assertEquals(term, idf, binaryIdfMap.get(term), 1e-5));
+        assertTrue(binary.size() < text.size());
+    }
+
+    @Test
+    public void testBoundedTerms() {
+        IdfBuilder builder = new IdfBuilder(jaba, CutModeEnum.CUT, 64 * 16);
+        Random random = new Random(11);
+        for (int i = 0; i < 5000; i++) {
+            builder.addDocument("编号" + random.nextInt(1000000) + "和" + Integer.toString(random.nextInt(), 36) + "北京天安门");
+            assertTrue(builder.getTermCount() <= 64 * 16);
+        }
+        assertTrue(builder.getDocumentFrequency("北京") > 4000);
+    }
+}
@@ -0,0 +1,118 @@
+package com.soud.jaba.analyse;
+
+import com.soud.jaba.Jaba;
+import com.soud.jaba.enumeration.CutModeEnum;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class NewWordDiscovererTest {
+
+    private Jaba jaba = Jaba.getInstance();
+
+    private String[] newWords = {"蓝莓奶昔", "氪金", "躺平", "柠檬茶"};
+
+    private List<String> corpus() {
+        String[] words = {"我们", "今天", "北京", "喜欢", "一起", "工作", "学习", "公司", "产品", "用户",
+                "发布", "他们", "已经", "非常", "可以", "的", "了", "在", "是"};
+        Random random = new Random(3);
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            StringBuilder line = new StringBuilder();
+            for (int j = 5 + random.nextInt(10); j > 0; j--) {
+                line.append(random.nextInt(8) == 0 ? newWords[random.nextInt(newWords.length)]
+                        : words[random.nextInt(words.length)]);
+                if (random.nextInt(6) == 0) {
+                    line.append('，');
+                }
+            }
+            lines.add(line.append('。').toString());
+        }
+        return lines;
+    }
+
+    @Test
+    public void testDiscover() throws IOException {
+        List<String> lines = corpus();
+        NewWordDiscoverer discoverer = new NewWordDiscoverer(jaba, 4, NewWordDiscoverer.DEFAULT_MAX_TERMS);
+        discoverer.addTexts(lines.stream());
+        List<NewWordDiscoverer.NewWord> discovered = discoverer.discover(5, 3.0, 1.0);
+        Set<String> found = discovered.stream().map(NewWordDiscoverer.NewWord::getWord).collect(Collectors.toSet());
+        for (String word : newWords) {
+            assertTrue(word, found.contains(word));
+        }
+        // 新词的片段和跨词的片段都不应该被发现
+        assertFalse(found.contains("莓奶"));
+        assertFalse(found.contains("蓝莓奶"));
+
+        for (NewWordDiscoverer.NewWord newWord : discovered) {
+            String word = newWord.getWord();
+            assertEquals(0, jaba.getWordFreq(word));
+            Map<Character, Integer> left = new HashMap<>();
+            Map<Character, Integer> right = new HashMap<>();
+            int count = 0;
+            for (String line : lines) {
+                for (int i = line.indexOf(word); i >= 0; i = line.indexOf(word, i + 1)) {
+                    count++;
+                    if (i > 0) {
+                        left.merge(line.charAt(i - 1), 1, Integer::sum);
+                    }
+                    if (i + word.length() < line.length()) {
+                        right.merge(line.charAt(i + word.length()), 1, Integer::sum);
+                    }
+                }
+            }
+            assertEquals(word, count, newWord.getCount());
+            assertEquals(word, entropy(left), newWord.getLeftEntropy(), 1e-9);
+            assertEquals(word, entropy(right), newWord.getRightEntropy(), 1e-9);
+        }
+
+        // 加载后能被切分出来
+        ByteArrayOutputStream userDict = new ByteArrayOutputStream();
+        NewWordDiscoverer.writeUserDict(discovered, userDict);
+        Jaba layer = jaba.newLayer();
+        layer.loadUserDict(new ByteArrayInputStream(userDict.toByteArray()));
+        List<String> words = layer.cut("我们今天一起喝蓝莓奶昔，不想躺平", CutModeEnum.CUT_WITHOUT_HMM);
+        assertTrue(words.toString(), words.contains("蓝莓奶昔"));
+        assertTrue(words.toString(), words.contains("躺平"));
+    }
+
+    private static double entropy(Map<Character, Integer> neighbors) {
+        double sum = 0;
+        for (int count : neighbors.values()) {
+            sum += count;
+        }
+        double entropy = 0;
+        for (int count : neighbors.values()) {
+            entropy -= count / sum * Math.log(count / sum);
+        }
+        return entropy;
+    }
+
+    @Test
+    public void testBoundedTerms() {
+        NewWordDiscoverer discoverer = new NewWordDiscoverer(jaba, 4, 64 * 64);
+        Random random = new Random(5);
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder line = new StringBuilder();
+            for (int j = 0; j < 20; j++) {
+                line.append((char) (0x4E00 + random.nextInt(2000)));
+            }
+            discoverer.addText(line.toString());
+            assertTrue(discoverer.getTermCount() <= 64 * 64);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.soud.jaba.analyse;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+
+public class TermCounterTest {
+
+    /**
+     * 前半部分大量计数较高的词反复淘汰，后半部分才变得常见的词仍然能留下，并且计数不会多算
+     */
+    @Test
+    public void testLateFrequentTermKept() {
+        // 每段最多 16 个词
+        TermCounter counter = new TermCounter(64 * 16);
+        for (int round = 0; round < 40; round++) {
+            for (int t = 0; t < 3000; t++) {
+                counter.increment("early" + t, 1);
+            }
+        }
+        int late = 0;
+        for (int i = 0; i < 60000; i++) {
+            counter.increment("noise" + i, 1);
+            if (i % 100 == 0) {
+                counter.increment("late", 1);
+                late++;
+            }
+        }
+        int count = counter.get("late");
+        assertTrue("late count " + count, count > late / 2 && count <= late);
+
+        List<String> terms = new ArrayList<>();
+        List<Integer> counts = new ArrayList<>();
+        counter.forEach(late / 2, terms, counts);
+        assertTrue(terms.contains("late"));
+        assertTrue(counter.size() <= 64 * 16);
+    }
+}
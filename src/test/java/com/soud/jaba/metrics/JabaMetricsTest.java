@@ -0,0 +1,75 @@
+package com.soud.jaba.metrics;
+
+import com.soud.jaba.Jaba;
+import com.soud.jaba.enumeration.CounterEnum;
+import com.soud.jaba.enumeration.CutModeEnum;
+import com.soud.jaba.enumeration.StageEnum;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class JabaMetricsTest {
+
+    private Jaba jaba = Jaba.getInstance();
+
+    private String text = "小明硕士毕业于中国科学院计算所，后在日本京都大学深造。他说的确实在理，I love你，不以为耻，反以为rong";
+
+    @Test
+    public void testRecord() throws Exception {
+        Jaba measured = jaba.newLayer();
+        JabaMetrics metrics = new JabaMetrics();
+        measured.setInstrumentation(metrics);
+        long tokens = 0;
+        for (CutModeEnum cutMode : CutModeEnum.values()) {
+            assertEquals(jaba.cut(text, cutMode), measured.cut(text, cutMode));
+            tokens += jaba.cut(text, cutMode).size();
+        }
+        MetricsSnapshot snapshot = metrics.snapshot();
+        System.out.println(snapshot);
+        int calls = CutModeEnum.values().length;
+        assertEquals(calls, snapshot.getCount(CounterEnum.CALLS));
+        assertEquals(calls * text.length(), snapshot.getCount(CounterEnum.CHARS));
+        assertEquals(tokens, snapshot.getCount(CounterEnum.TOKENS));
+        assertEquals(calls, snapshot.getStage(StageEnum.TOKENIZE).getCount());
+        assertEquals(snapshot.getCount(CounterEnum.BLOCKS), snapshot.getStage(StageEnum.DAG).getCount());
+        assertEquals(snapshot.getCount(CounterEnum.HMM_CALLS), snapshot.getStage(StageEnum.HMM).getCount());
+        assertTrue(snapshot.getCount(CounterEnum.DAG_EDGES) >= snapshot.getCount(CounterEnum.BLOCKS));
+        assertTrue(snapshot.getDictionaryBytes() > 0);
+        assertTrue(snapshot.getHmmModelBytes() > 0);
+
+        String name = "com.soud.jaba:type=JabaMetrics,name=test";
+        metrics.registerMBean(name);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            assertEquals((long) calls, server.getAttribute(new ObjectName(name), "Calls"));
+        } finally {
+            server.unregisterMBean(new ObjectName(name));
+        }
+        metrics.reset();
+        assertEquals(0, metrics.getCalls());
+    }
+
+    @Test
+    public void testHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(1000000, snapshot.getMax());
+        // 每个桶的相对误差不超过 12.5%
+        assertTrue(Math.abs(snapshot.getP50() - 500000) <= 500000 / 8);
+        assertTrue(Math.abs(snapshot.getP99() - 990000) <= 990000 / 8);
+        for (long v = 0; v < 100000; v += 7) {
+            int index = LatencyHistogram.index(v);
+            assertTrue(LatencyHistogram.upperBound(index) >= v);
+            assertTrue(index == 0 || LatencyHistogram.upperBound(index - 1) < v);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.soud.jaba.trie;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+
+public class DoubleArrayTrieTest {
+
+    private static TreeMap<String, Integer> words(String... words) {
+        TreeMap<String, Integer> map = new TreeMap<>();
+        for (String word : words) {
+            map.put(word, 0);
+        }
+        int id = 0;
+        for (String word : map.keySet()) {
+            map.put(word, id++);
+        }
+        return map;
+    }
+
+    @Test
+    public void testExactMatch() {
+        TreeMap<String, Integer> words = words("北京", "北京大学", "大学", "大学生", "学生", "C++", "a");
+        DoubleArrayTrie trie = DoubleArrayTrie.build(words);
+        words.forEach((word, id) -> assertEquals(id.intValue(), trie.exactMatch(word)));
+        assertEquals(-1, trie.exactMatch("北"));
+        assertEquals(-1, trie.exactMatch("北京大"));
+        assertEquals(-1, trie.exactMatch("C"));
+    }
+
+    @Test
+    public void testSameHitsAsHankcs() {
+        TreeMap<String, Integer> words = words("北京", "北京大学", "大学", "大学生", "学生", "生活", "京", "学");
+        String text = "我在北京大学生活，北京大学生很多";
+        List<String> expected = new ArrayList<>();
+        HankcsTrie.build(words).parseText(text, (begin, end, id) -> expected.add(begin + "," + end + "," + id));
+        List<String> actual = new ArrayList<>();
+        DoubleArrayTrie.build(words).parseText(text, (begin, end, id) -> actual.add(begin + "," + end + "," + id));
+        expected.sort(null);
+        actual.sort(null);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testCommonPrefixSearchBuffer() {
+        DoubleArrayTrie trie = DoubleArrayTrie.build(words("北京", "北京大学", "大学", "北"));
+        int[] ends = new int[8];
+        int[] ids = new int[8];
+        int count = trie.commonPrefixSearch("北京大学生", 0, 5, ends, ids);
+        assertEquals(3, count);
+        assertEquals(1, ends[0]);
+        assertEquals(2, ends[1]);
+        assertEquals(4, ends[2]);
+        assertEquals(trie.exactMatch("北京大学"), ids[2]);
+    }
+
+    /**
+     * 从直接缓冲区加载的 trie 在缓冲区上查询，结果与构建的 trie 相同
+     */
+    @Test
+    public void testLoadFromDirectBuffer() throws IOException {
+        TreeMap<String, Integer> words = words("北京", "北京大学", "大学", "大学生", "学生", "C++", "a");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(42);
+        DoubleArrayTrie.build(words).save(out);
+        out.flush();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.size());
+        buffer.put(bytes.toByteArray());
+        buffer.flip();
+        assertEquals(42, buffer.getInt());
+        DoubleArrayTrie trie = DoubleArrayTrie.load(buffer);
+        assertEquals(0, buffer.remaining());
+        words.forEach((word, id) -> assertEquals(id.intValue(), trie.exactMatch(word)));
+        assertEquals(-1, trie.exactMatch("北京大"));
+
+        // 再保存一次得到相同的字节
+        ByteArrayOutputStream again = new ByteArrayOutputStream();
+        DataOutputStream againOut = new DataOutputStream(again);
+        againOut.writeInt(42);
+        trie.save(againOut);
+        againOut.flush();
+        assertEquals(bytes.size(), again.size());
+        assertEquals(ByteBuffer.wrap(bytes.toByteArray()), ByteBuffer.wrap(again.toByteArray()));
+    }
+}
@@ -0,0 +1,73 @@
+package com.soud.jaba.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+
+public class CharClassifierTest {
+
+    private static final Pattern RE_HAN_DEFAULT = Pattern.compile("([一-\\u9FD5a-zA-Z0-9+#&\\._%\\-]+)");
+    private static final Pattern RE_SKIP = Pattern.compile("([a-zA-Z0-9]+(?:\\.\\d+)?%?)");
+
+    private static final String ALPHABET = "我爱北京一鿕鿖䷿abcXYZ059.%+#&_- \t\n\r\u000B\f，。😀";
+
+    private static String randomText(Random random) {
+        StringBuilder sb = new StringBuilder();
+        int len = random.nextInt(20);
+        for (int i = 0; i < len; i++) {
+            sb.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return sb.toString();
+    }
+
+    private static List<Integer> matches(Pattern pattern, String text) {
+        List<Integer> positions = new ArrayList<>();
+        Matcher m = pattern.matcher(text);
+        while (m.find()) {
+            positions.add(m.start());
+            positions.add(m.end());
+        }
+        return positions;
+    }
+
+    @Test
+    public void testSameAsRegex() {
+        Random random = new Random(7);
+        for (int n = 0; n < 10000; n++) {
+            String text = randomText(random);
+            int len = text.length();
+
+            List<Integer> han = new ArrayList<>();
+            for (int i = 0; i < len; ) {
+                if (CharClassifier.isHanDefault(text.charAt(i))) {
+                    int end = CharClassifier.hanDefaultEnd(text, i, len);
+                    han.add(i);
+                    han.add(end);
+                    i = end;
+                } else {
+                    i = CharClassifier.otherEnd(text, i, len);
+                }
+            }
+            assertEquals(text, matches(RE_HAN_DEFAULT, text), han);
+
+            List<Integer> alnum = new ArrayList<>();
+            for (int i = 0; i < len; ) {
+                int end = CharClassifier.alnumEnd(text, i, len);
+                if (end > i) {
+                    alnum.add(i);
+                    alnum.add(end);
+                    i = end;
+                } else {
+                    i = CharClassifier.nonAlnumEnd(text, i, len);
+                }
+            }
+            assertEquals(text, matches(RE_SKIP, text), alnum);
+        }
+    }
+}
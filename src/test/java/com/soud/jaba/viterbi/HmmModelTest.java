@@ -0,0 +1,36 @@
+package com.soud.jaba.viterbi;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class HmmModelTest {
+
+    @Test
+    public void testBinaryRoundTrip() throws Exception {
+        HmmModel model = HmmModel.fromText(getClass().getResourceAsStream("/prob_emit.txt"), null, null);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        model.save(out, false);
+        HmmModel loaded = HmmModel.load(new ByteArrayInputStream(out.toByteArray()));
+        assertArrayEquals(model.startP, loaded.startP, 0);
+        for (int i = 0; i < HmmModel.STATE_NUM; i++) {
+            assertArrayEquals(model.transP[i], loaded.transP[i], 0);
+        }
+        assertArrayEquals(model.emitP, loaded.emitP, 0);
+    }
+
+    @Test
+    public void testFloatPrecision() throws Exception {
+        HmmModel model = HmmModel.fromText(getClass().getResourceAsStream("/prob_emit.txt"), null, null);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        model.save(out, true);
+        HmmModel loaded = HmmModel.load(new ByteArrayInputStream(out.toByteArray()));
+        int c = '一' * HmmModel.STATE_NUM + HmmModel.B;
+        assertEquals(model.emitP[c], loaded.emitP[c], 1e-6);
+        assertEquals(HmmModel.MIN_LOG_PROB_VALUE, loaded.emitP['a' * HmmModel.STATE_NUM], 0);
+    }
+}
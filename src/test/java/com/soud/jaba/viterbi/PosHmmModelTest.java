@@ -0,0 +1,69 @@
+package com.soud.jaba.viterbi;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+public class PosHmmModelTest {
+
+    private static PosHmmModel model() {
+        return PosHmmModel.train(
+                Arrays.asList("上海", "北京", "吃饭", "学习", "学生", "老师", "跑步", "饭"),
+                new int[]{100, 100, 100, 80, 80, 80, 100, 10},
+                new String[]{"ns", "ns", "v", "v", "n", "n", "v", "n"});
+    }
+
+    private static String tag(PosHmmModel model, String text) {
+        return model.tag(text, 0, text.length());
+    }
+
+    /**
+     * 切分固定时，按每个字在词中的位置选择词性
+     */
+    @Test
+    public void testTagFixedWord() {
+        PosHmmModel model = model();
+        assertEquals("ns", tag(model, "北海"));
+        assertEquals("v", tag(model, "吃习"));
+        // 第一个字在两个词性中都作为词首出现过，由后面的字决定
+        assertEquals("n", tag(model, "学师"));
+        assertEquals("v", tag(model, "学步"));
+        assertEquals("n", tag(model, "饭"));
+        // 位置是在 text 中的位置
+        assertEquals("ns", model.tag("我们去北海", 3, 5));
+        // 没有训练过的字也有词性
+        assertNotNull(tag(model, "鑫鑫"));
+    }
+
+    @Test
+    public void testTagNonHan() {
+        PosHmmModel model = model();
+        assertEquals("m", tag(model, "3.14"));
+        assertEquals("eng", tag(model, "rong"));
+        assertEquals("x", tag(model, "，"));
+    }
+
+    @Test
+    public void testBinaryRoundTrip() throws Exception {
+        PosHmmModel model = model();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        model.save(out);
+        PosHmmModel loaded = PosHmmModel.load(new ByteArrayInputStream(out.toByteArray()));
+        assertArrayEquals(model.getTags(), loaded.getTags());
+        assertArrayEquals(model.startP, loaded.startP, 0);
+        assertArrayEquals(model.innerTransP, loaded.innerTransP, 0);
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            assertArrayEquals(model.charStates[c], loaded.charStates[c]);
+            if (model.charEmitP[c] != null) {
+                assertArrayEquals(model.charEmitP[c], loaded.charEmitP[c], 0);
+            }
+        }
+        assertEquals("n", tag(loaded, "学师"));
+    }
+}